@@ -0,0 +1,67 @@
+package com.ecommerce.product.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Product change as delivered to downstream services; {@code product} is null for deletions
+ */
+public class ProductChangeEvent {
+
+    private Long eventId;
+    private Long productId;
+    private String type;
+    private ProductDTO product;
+    private LocalDateTime occurredAt;
+
+    // Constructors
+    public ProductChangeEvent() {}
+
+    public ProductChangeEvent(Long eventId, Long productId, String type, ProductDTO product, LocalDateTime occurredAt) {
+        this.eventId = eventId;
+        this.productId = productId;
+        this.type = type;
+        this.product = product;
+        this.occurredAt = occurredAt;
+    }
+
+    // Getters and Setters
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductDTO product) {
+        this.product = product;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.product.entity.ProductOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductOutboxRepository extends JpaRepository<ProductOutboxEvent, Long> {
+
+    // Oldest unpublished events first, so each product's changes are delivered in order
+    @Query("SELECT e FROM ProductOutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.id ASC")
+    List<ProductOutboxEvent> findUnpublished(Pageable pageable);
+
+    // Drop events that were delivered before the cutoff
+    @Modifying
+    @Query("DELETE FROM ProductOutboxEvent e WHERE e.publishedAt IS NOT NULL AND e.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.dto.ProductDTO;
+import com.ecommerce.product.entity.ProductOutboxEvent;
+import com.ecommerce.product.repository.ProductOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records product changes in the outbox table. Must run inside the transaction of the
+ * product write, so an event exists if and only if the write committed.
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class ProductOutbox {
+
+    @Autowired
+    private ProductOutboxRepository outboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void recordUpsert(ProductDTO product) {
+        try {
+            outboxRepository.save(new ProductOutboxEvent(product.getId(), ProductOutboxEvent.EventType.PRODUCT_UPSERTED,
+                    objectMapper.writeValueAsString(product)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize product " + product.getId() + " for the outbox", e);
+        }
+    }
+
+    public void recordDelete(Long productId) {
+        outboxRepository.save(new ProductOutboxEvent(productId, ProductOutboxEvent.EventType.PRODUCT_DELETED, null));
+    }
+}
@@ -0,0 +1,107 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.dto.ProductChangeEvent;
+import com.ecommerce.product.dto.ProductDTO;
+import com.ecommerce.product.entity.ProductOutboxEvent;
+import com.ecommerce.product.repository.ProductOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Polls the outbox table and delivers unpublished product changes to recommendation-service
+ * in id order. Delivery is at-least-once: a batch is marked published only after the
+ * receiver accepted it, and a failed batch is retried on the next poll.
+ */
+@Service
+public class ProductOutboxPublisher {
+
+    private static final Logger log = Logger.getLogger(ProductOutboxPublisher.class.getName());
+
+    @Autowired
+    private ProductOutboxRepository outboxRepository;
+
+    @Autowired
+    private RestTemplate loadBalancedRestTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.endpoint:http://recommendation-service/internal/product-events}")
+    private String endpoint;
+
+    @Value("${outbox.retention-hours:24}")
+    private long retentionHours;
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:1000}")
+    @Transactional
+    public void publish() {
+        if (!enabled) {
+            return;
+        }
+        List<ProductOutboxEvent> events = outboxRepository.findUnpublished(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<ProductChangeEvent> changes = new ArrayList<>(events.size());
+        for (ProductOutboxEvent event : events) {
+            changes.add(toChange(event));
+        }
+        try {
+            loadBalancedRestTemplate.postForEntity(endpoint, changes, Void.class);
+        } catch (RestClientException e) {
+            for (ProductOutboxEvent event : events) {
+                event.setAttempts(event.getAttempts() + 1);
+            }
+            log.warning("Failed to deliver " + events.size() + " product events, retrying next poll: " + e.getMessage());
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (ProductOutboxEvent event : events) {
+            event.setPublishedAt(now);
+        }
+        log.fine("Delivered " + events.size() + " product events");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval:3600000}")
+    @Transactional
+    public void purgePublished() {
+        int purged = outboxRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (purged > 0) {
+            log.info("Purged " + purged + " published product events");
+        }
+    }
+
+    private ProductChangeEvent toChange(ProductOutboxEvent event) {
+        ProductDTO product = null;
+        if (event.getPayload() != null) {
+            try {
+                product = objectMapper.readValue(event.getPayload(), ProductDTO.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Corrupt outbox payload for event " + event.getId(), e);
+            }
+        }
+        return new ProductChangeEvent(event.getId(), event.getProductId(), event.getEventType().name(), product,
+                event.getCreatedAt());
+    }
+}
@@ -21,6 +21,9 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductOutbox productOutbox;
+
     // Create a new product
     public ProductDTO createProduct(ProductDTO productDTO) {
         if (productRepository.existsByName(productDTO.getName())) {
@@ -29,7 +32,9 @@ public class ProductService {
 
         Product product = convertToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
-        return convertToDTO(savedProduct);
+        ProductDTO savedDTO = convertToDTO(savedProduct);
+        productOutbox.recordUpsert(savedDTO);
+        return savedDTO;
     }
 
     // Get all products with pagination
@@ -57,7 +62,9 @@ public class ProductService {
 
         updateEntityFromDTO(existingProduct, productDTO);
         Product updatedProduct = productRepository.save(existingProduct);
-        return convertToDTO(updatedProduct);
+        ProductDTO updatedDTO = convertToDTO(updatedProduct);
+        productOutbox.recordUpsert(updatedDTO);
+        return updatedDTO;
     }
 
     // Delete product
@@ -66,6 +73,7 @@ public class ProductService {
             throw new IllegalArgumentException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        productOutbox.recordDelete(id);
     }
 
     // Search products
@@ -0,0 +1,143 @@
+package com.ecommerce.product.service;
+
+import com.ecommerce.product.dto.ProductChangeEvent;
+import com.ecommerce.product.entity.ProductOutboxEvent;
+import com.ecommerce.product.repository.ProductOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * At-least-once delivery: a batch is marked published only once the receiver answered
+ * with success, and a rejected batch stays unpublished for the next poll
+ */
+class ProductOutboxPublisherTest {
+
+    private ProductOutboxRepository repository;
+    private ProductOutboxPublisher publisher;
+    private final List<List<ProductChangeEvent>> delivered = new ArrayList<>();
+    private HttpStatus receiverStatus = HttpStatus.OK;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ProductOutboxRepository.class);
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        doAnswer(call -> {
+            if (receiverStatus.is5xxServerError()) {
+                throw new HttpServerErrorException(receiverStatus);
+            }
+            delivered.add(new ArrayList<>((List<ProductChangeEvent>) call.getArgument(1)));
+            return ResponseEntity.ok().build();
+        }).when(restTemplate).postForEntity(anyString(), any(), eq(Void.class));
+
+        publisher = new ProductOutboxPublisher();
+        ReflectionTestUtils.setField(publisher, "outboxRepository", repository);
+        ReflectionTestUtils.setField(publisher, "loadBalancedRestTemplate", restTemplate);
+        ReflectionTestUtils.setField(publisher, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(publisher, "enabled", true);
+        ReflectionTestUtils.setField(publisher, "batchSize", 100);
+        ReflectionTestUtils.setField(publisher, "endpoint", "http://recommendation-service/internal/product-events");
+    }
+
+    @Test
+    void deliveredBatchIsMarkedPublishedInOrder() {
+        ProductOutboxEvent upsert = event(1L, 5L, ProductOutboxEvent.EventType.PRODUCT_UPSERTED,
+                "{\"id\":5,\"name\":\"Desk lamp\"}");
+        ProductOutboxEvent delete = event(2L, 6L, ProductOutboxEvent.EventType.PRODUCT_DELETED, null);
+        unpublished(upsert, delete);
+
+        publisher.publish();
+
+        assertEquals(1, delivered.size());
+        List<ProductChangeEvent> batch = delivered.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(1L, batch.get(0).getEventId().longValue());
+        assertEquals("PRODUCT_UPSERTED", batch.get(0).getType());
+        assertEquals("Desk lamp", batch.get(0).getProduct().getName());
+        assertEquals("PRODUCT_DELETED", batch.get(1).getType());
+        assertNull(batch.get(1).getProduct());
+        assertNotNull(upsert.getPublishedAt());
+        assertNotNull(delete.getPublishedAt());
+    }
+
+    @Test
+    void rejectedBatchStaysUnpublishedAndIsRetried() {
+        ProductOutboxEvent upsert = event(1L, 5L, ProductOutboxEvent.EventType.PRODUCT_UPSERTED,
+                "{\"id\":5,\"name\":\"Desk lamp\"}");
+        unpublished(upsert);
+        receiverStatus = HttpStatus.SERVICE_UNAVAILABLE;
+
+        publisher.publish();
+
+        assertTrue(delivered.isEmpty());
+        assertNull(upsert.getPublishedAt());
+        assertEquals(1, upsert.getAttempts());
+
+        receiverStatus = HttpStatus.OK;
+        publisher.publish();
+
+        assertEquals(1, delivered.size());
+        assertNotNull(upsert.getPublishedAt());
+        assertEquals(1, upsert.getAttempts());
+    }
+
+    @Test
+    void emptyOutboxSendsNothing() {
+        unpublished();
+
+        publisher.publish();
+
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    void disabledPublisherDoesNotPoll() {
+        ReflectionTestUtils.setField(publisher, "enabled", false);
+        unpublished(event(1L, 5L, ProductOutboxEvent.EventType.PRODUCT_DELETED, null));
+
+        publisher.publish();
+
+        assertTrue(delivered.isEmpty());
+    }
+
+    /**
+     * Make the repository return the events while they are unpublished, as the query would
+     */
+    private void unpublished(ProductOutboxEvent... events) {
+        doAnswer(call -> {
+            List<ProductOutboxEvent> pending = new ArrayList<>();
+            for (ProductOutboxEvent event : events) {
+                if (event.getPublishedAt() == null) {
+                    pending.add(event);
+                }
+            }
+            return pending;
+        }).when(repository).findUnpublished(any(Pageable.class));
+    }
+
+    private static ProductOutboxEvent event(Long id, Long productId, ProductOutboxEvent.EventType type, String payload) {
+        ProductOutboxEvent event = new ProductOutboxEvent(productId, type, payload);
+        ReflectionTestUtils.setField(event, "id", id);
+        return event;
+    }
+}
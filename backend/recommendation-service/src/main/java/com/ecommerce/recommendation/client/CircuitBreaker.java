@@ -0,0 +1,119 @@
+package com.ecommerce.recommendation.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Consecutive-failure circuit breaker for a remote dependency.
+ *
+ * Closed, calls pass through and {@code failureThreshold} failures in a row (errors or
+ * deadline overruns) open it. Open, calls fail immediately with {@link OpenException}
+ * until {@code openDuration} has passed; then a single trial call is let through
+ * (half-open), which closes the breaker on success and re-opens it on failure.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Counter shortCircuited;
+    private final Counter opened;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.shortCircuited = meterRegistry.counter(name + ".circuit.short-circuited");
+        this.opened = meterRegistry.counter(name + ".circuit.opened");
+        meterRegistry.gauge(name + ".circuit.state", this, breaker -> breaker.state().ordinal());
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Whether a call would currently be refused without being attempted
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openNanos;
+    }
+
+    /**
+     * Run the call unless the breaker is open, failing it if it does not complete within
+     * {@code deadline}; the outcome updates the breaker
+     */
+    public <T> Mono<T> protect(Supplier<Mono<T>> call, Duration deadline) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                shortCircuited.increment();
+                return Mono.error(new OpenException(name + " circuit is open"));
+            }
+            return Mono.defer(call)
+                    .timeout(deadline)
+                    .doOnSuccess(result -> onSuccess())
+                    .doOnError(error -> onFailure())
+                    .doOnCancel(this::onFailure);
+        });
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                // Half-open: only the single trial call goes through
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        if (state == State.OPEN) {
+            return; // a call started before the breaker opened
+        }
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            opened.increment();
+        }
+    }
+
+    /**
+     * Call refused because the circuit is open
+     */
+    public static final class OpenException extends RuntimeException {
+        OpenException(String message) {
+            super(message);
+        }
+    }
+}
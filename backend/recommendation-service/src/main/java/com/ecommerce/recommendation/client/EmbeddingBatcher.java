@@ -0,0 +1,102 @@
+package com.ecommerce.recommendation.client;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Micro-batching collector for single-text embedding requests. Texts submitted within
+ * {@code windowMillis} of the first pending one are sent together as one batch request;
+ * a batch is sent immediately once it reaches {@code maxBatchSize}. Identical texts in
+ * the same batch share one input. When a batch returns, {@code settle} sees all of its
+ * texts, with the embeddings or null on failure, before any of its futures completes.
+ */
+class EmbeddingBatcher {
+
+    private final Function<List<String>, Mono<List<double[]>>> sender;
+    private final BiConsumer<List<String>, List<double[]>> settle;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "embedding-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Map<String, CompletableFuture<double[]>> pending = new HashMap<>();
+
+    EmbeddingBatcher(Function<List<String>, Mono<List<double[]>>> sender,
+                     BiConsumer<List<String>, List<double[]>> settle, int maxBatchSize, long windowMillis) {
+        this.sender = sender;
+        this.settle = settle;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Embedding of the text, completed when the batch it joined returns
+     */
+    CompletableFuture<double[]> submit(String text) {
+        Map<String, CompletableFuture<double[]>> full = null;
+        CompletableFuture<double[]> future;
+        synchronized (this) {
+            future = pending.get(text);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(text, future);
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new HashMap<>();
+            } else if (pending.size() == 1) {
+                Map<String, CompletableFuture<double[]>> batch = pending;
+                timer.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void flush(Map<String, CompletableFuture<double[]>> batch) {
+        synchronized (this) {
+            // Already sent because it filled up
+            if (pending != batch) {
+                return;
+            }
+            pending = new HashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<String, CompletableFuture<double[]>> batch) {
+        List<String> texts = new ArrayList<>(batch.keySet());
+        sender.apply(texts).subscribe(embeddings -> {
+            settle.accept(texts, embeddings);
+            for (int i = 0; i < texts.size(); i++) {
+                batch.get(texts.get(i)).complete(embeddings.get(i));
+            }
+        }, error -> fail(texts, batch, error),
+                () -> fail(texts, batch, new IllegalStateException("Empty embedding batch response")));
+    }
+
+    private void fail(List<String> texts, Map<String, CompletableFuture<double[]>> batch, Throwable error) {
+        settle.accept(texts, null);
+        batch.values().forEach(future -> future.completeExceptionally(error));
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecommerce.recommendation.client;
+
+import com.ecommerce.recommendation.engine.EmbeddingStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Two-tier cache of text embeddings keyed by a SHA-256 hash of model name and text:
+ * an in-heap LRU in front of a memory-mapped {@link EmbeddingStore} on disk, so
+ * repeated texts are served without a remote call and survive restarts.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger log = Logger.getLogger(EmbeddingCache.class.getName());
+
+    @Value("${recommendation.embedding-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.embedding-cache.heap-entries:10000}")
+    private int heapEntries;
+
+    @Value("${recommendation.embedding-cache.path:data/embeddings.bin}")
+    private String storePath;
+
+    @Value("${recommendation.algorithms.content-based.embedding-dimensions:384}")
+    private int dimensions;
+
+    private Map<Key, float[]> heap;
+    private EmbeddingStore store;
+
+    @PostConstruct
+    public void open() {
+        heap = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+                return size() > heapEntries;
+            }
+        };
+        if (!enabled) {
+            return;
+        }
+        try {
+            store = EmbeddingStore.open(Paths.get(storePath), dimensions);
+            log.info("Opened embedding store " + store.path() + " with " + store.size() + " vectors");
+        } catch (IOException | RuntimeException e) {
+            // The heap tier still works without the disk tier
+            log.log(Level.WARNING, "Embedding store unavailable at " + storePath + ", caching in heap only", e);
+        }
+    }
+
+    /**
+     * Cache key for a text embedded by the given model
+     */
+    public static Key key(String model, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+            return new Key(hash.getLong(0), hash.getLong(8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cached embedding, or null on a miss in both tiers
+     */
+    public double[] get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+        float[] vector;
+        synchronized (heap) {
+            vector = heap.get(key);
+        }
+        if (vector == null && store != null) {
+            vector = store.get(key.high, key.low);
+            if (vector != null) {
+                synchronized (heap) {
+                    heap.put(key, vector);
+                }
+            }
+        }
+        return vector != null ? toDoubles(vector) : null;
+    }
+
+    public void put(Key key, double[] embedding) {
+        if (!enabled) {
+            return;
+        }
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = (float) embedding[i];
+        }
+        synchronized (heap) {
+            heap.put(key, vector);
+        }
+        if (store != null) {
+            try {
+                store.put(key.high, key.low, vector);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to persist embedding", e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.embedding-cache.flush-interval:60000}")
+    public void flush() {
+        if (store != null) {
+            store.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to close embedding store", e);
+            }
+        }
+    }
+
+    private static double[] toDoubles(float[] vector) {
+        double[] embedding = new double[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            embedding[i] = vector[i];
+        }
+        return embedding;
+    }
+
+    /**
+     * 128-bit content hash of (model, text)
+     */
+    public static final class Key {
+        private final long high;
+        private final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return high == key.high && low == key.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.recommendation.client;
+
+import com.ecommerce.recommendation.engine.VectorMath;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Source of text embeddings for content-based scoring. The implementation is chosen with
+ * {@code recommendation.embedding.provider}: {@code huggingface} (remote inference, the
+ * default) or {@code local} (in-process feature hashing, no network).
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Identifies the embedding space; vectors from different models are not comparable
+     */
+    String model();
+
+    Mono<double[]> getEmbeddings(String text);
+
+    /**
+     * Embeddings for many texts, in input order
+     */
+    Mono<List<double[]>> getEmbeddingsBatch(List<String> texts);
+
+    /**
+     * Calculate similarity between two texts using embeddings
+     */
+    default Mono<Double> calculateSimilarity(String text1, String text2) {
+        return Mono.zip(getEmbeddings(text1), getEmbeddings(text2))
+                .map(tuple -> VectorMath.cosine(tuple.getT1(), tuple.getT2()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.recommendation.client;
+
+import com.ecommerce.recommendation.engine.VectorMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process embeddings: sublinear term frequencies of word unigrams, word bigrams and
+ * character trigrams, feature-hashed into a fixed number of signed buckets and
+ * L2-normalized. Runs in microseconds with no network, for latency-critical deployments
+ * and offline use.
+ *
+ * The embedding is a pure function of the text, with no corpus statistics, so vectors
+ * computed after a restart or a re-embed stay comparable with those in the persisted
+ * product index.
+ */
+@Component
+@ConditionalOnProperty(name = "recommendation.embedding.provider", havingValue = "local")
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on",
+            "or", "that", "the", "this", "to", "with");
+
+    private final int dimensions;
+
+    public HashingEmbeddingProvider(@Value("${recommendation.algorithms.content-based.embedding-dimensions:384}") int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public String model() {
+        return "local-hashing-tf-" + dimensions;
+    }
+
+    @Override
+    public Mono<double[]> getEmbeddings(String text) {
+        return Mono.fromSupplier(() -> embed(features(text)));
+    }
+
+    @Override
+    public Mono<List<double[]>> getEmbeddingsBatch(List<String> texts) {
+        return Mono.fromSupplier(() -> {
+            List<double[]> embeddings = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                embeddings.add(embed(features(text)));
+            }
+            return embeddings;
+        });
+    }
+
+    private double[] embed(Map<Long, float[]> features) {
+        float[] vector = new float[dimensions];
+        for (Map.Entry<Long, float[]> feature : features.entrySet()) {
+            long hash = feature.getKey();
+            float[] countAndWeight = feature.getValue();
+            // Sublinear term frequency, scaled by the feature kind's weight
+            double tf = (1.0 + Math.log(countAndWeight[0])) * countAndWeight[1];
+            int bucket = (int) Long.remainderUnsigned(hash, dimensions);
+            float sign = (hash >>> 63) == 0 ? 1f : -1f;
+            vector[bucket] += (float) (sign * tf);
+        }
+        VectorMath.normalize(vector);
+        double[] embedding = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            embedding[i] = vector[i];
+        }
+        return embedding;
+    }
+
+    /**
+     * Occurrence count and kind weight of each hashed feature in the text
+     */
+    private static Map<Long, float[]> features(String text) {
+        Map<Long, float[]> features = new HashMap<>();
+        String previous = null;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            count(features, hash("w:" + token), 1f);
+            if (previous != null) {
+                count(features, hash("b:" + previous + " " + token), 1f);
+            }
+            previous = token;
+            String padded = "^" + token + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                count(features, hash("c:" + padded.substring(i, i + 3)), TRIGRAM_WEIGHT);
+            }
+        }
+        return features;
+    }
+
+    private static void count(Map<Long, float[]> features, long hash, float weight) {
+        features.computeIfAbsent(hash, key -> new float[] {0f, weight})[0]++;
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche so low and high bits are both usable
+     */
+    private static long hash(String feature) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
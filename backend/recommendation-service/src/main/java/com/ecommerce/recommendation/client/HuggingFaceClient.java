@@ -1,20 +1,41 @@
 package com.ecommerce.recommendation.client;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+/**
+ * Embeddings from the Hugging Face inference API, behind the embedding cache
+ */
 @Component
-public class HuggingFaceClient {
+@ConditionalOnProperty(name = "recommendation.embedding.provider", havingValue = "huggingface", matchIfMissing = true)
+public class HuggingFaceClient implements EmbeddingProvider {
 
     private final WebClient webClient;
+    private final EmbeddingCache embeddingCache;
+    private final EmbeddingBatcher batcher;
+    private final RequestLimiter limiter;
+    private final Duration requestTimeout;
+    private final Counter coalescedCounter;
+    // Embeddings being computed right now, shared by every concurrent caller for the same text
+    private final Map<EmbeddingCache.Key, CompletableFuture<double[]>> inFlight = new ConcurrentHashMap<>();
     private static final Logger log = Logger.getLogger(HuggingFaceClient.class.getName());
 
     @Value("${huggingface.api.token}")
@@ -23,76 +44,229 @@ public class HuggingFaceClient {
     @Value("${huggingface.api.url}")
     private String baseUrl;
 
-    public HuggingFaceClient(WebClient webClient) {
-        this.webClient = webClient;
+    @Value("${huggingface.api.model:sentence-transformers/all-MiniLM-L6-v2}")
+    private String model;
+
+    private final int maxBatchSize;
+
+    public HuggingFaceClient(WebClient.Builder webClientBuilder, EmbeddingCache embeddingCache, MeterRegistry meterRegistry,
+                             @Value("${huggingface.api.max-batch-size:32}") int maxBatchSize,
+                             @Value("${huggingface.api.batch-window:5}") long batchWindowMillis,
+                             @Value("${huggingface.api.max-concurrent-requests:8}") int maxConcurrentRequests,
+                             @Value("${huggingface.api.max-queued-requests:256}") int maxQueuedRequests,
+                             @Value("${huggingface.api.queue-timeout:2000}") long queueTimeoutMillis,
+                             @Value("${huggingface.api.request-timeout:10000}") long requestTimeoutMillis) {
+        this.webClient = webClientBuilder.build();
+        this.embeddingCache = embeddingCache;
+        this.maxBatchSize = maxBatchSize;
+        this.batcher = new EmbeddingBatcher(this::requestEmbeddings, this::settleBatch, maxBatchSize, batchWindowMillis);
+        this.limiter = new RequestLimiter("huggingface", maxConcurrentRequests, maxQueuedRequests,
+                Duration.ofMillis(queueTimeoutMillis), meterRegistry);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.coalescedCounter = meterRegistry.counter("huggingface.requests.coalesced");
+        meterRegistry.gauge("huggingface.requests.in-flight", inFlight, Map::size);
+    }
+
+    @Override
+    public String model() {
+        return model;
     }
 
     /**
-     * Get embeddings for product text using Hugging Face inference API
+     * Get embeddings for product text, from the embedding cache when the same text was
+     * embedded before. Otherwise callers for a text already in flight join that call, and
+     * the first caller goes through the micro-batching collector so concurrent single-text
+     * calls share one Hugging Face inference request.
      */
+    @Override
     public Mono<double[]> getEmbeddings(String text) {
+        EmbeddingCache.Key key = EmbeddingCache.key(model, text);
+        double[] cached = embeddingCache.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+            CompletableFuture<double[]> shared = inFlight.get(key);
+            if (shared != null) {
+                coalescedCounter.increment();
+            } else {
+                CompletableFuture<double[]> created = new CompletableFuture<>();
+                shared = inFlight.putIfAbsent(key, created);
+                if (shared != null) {
+                    coalescedCounter.increment();
+                } else {
+                    shared = created;
+                    // The batch is cached and leaves inFlight in settleBatch, before this runs
+                    batcher.submit(text).whenComplete((embedding, error) -> {
+                        if (error != null) {
+                            created.completeExceptionally(error);
+                        } else {
+                            created.complete(embedding);
+                        }
+                    });
+                }
+            }
+            // A copy, so one caller cancelling does not cancel the call for everyone else
+            return Mono.fromFuture(shared.copy());
+        });
+    }
+
+    /**
+     * Get embeddings for many texts, in input order. Cached texts are served locally, texts
+     * already in flight join that call, and each remaining distinct text is registered as in
+     * flight and sent in requests of at most {@code huggingface.api.max-batch-size} inputs.
+     */
+    @Override
+    public Mono<List<double[]>> getEmbeddingsBatch(List<String> texts) {
+        return Mono.defer(() -> {
+            double[][] embeddings = new double[texts.size()][];
+            // Every distinct text missing from the cache once, with the positions it fills
+            Map<EmbeddingCache.Key, List<Integer>> missing = new LinkedHashMap<>();
+            for (int i = 0; i < texts.size(); i++) {
+                EmbeddingCache.Key key = EmbeddingCache.key(model, texts.get(i));
+                embeddings[i] = embeddingCache.get(key);
+                if (embeddings[i] == null) {
+                    missing.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+                }
+            }
+
+            List<Mono<?>> waits = new ArrayList<>(missing.size());
+            List<EmbeddingCache.Key> ownedKeys = new ArrayList<>();
+            List<String> ownedTexts = new ArrayList<>();
+            List<CompletableFuture<double[]>> owned = new ArrayList<>();
+            for (Map.Entry<EmbeddingCache.Key, List<Integer>> entry : missing.entrySet()) {
+                EmbeddingCache.Key key = entry.getKey();
+                List<Integer> positions = entry.getValue();
+                CompletableFuture<double[]> created = new CompletableFuture<>();
+                CompletableFuture<double[]> shared = inFlight.putIfAbsent(key, created);
+                if (shared != null) {
+                    coalescedCounter.increment();
+                } else {
+                    shared = created;
+                    ownedKeys.add(key);
+                    ownedTexts.add(texts.get(positions.get(0)));
+                    owned.add(created);
+                }
+                // A copy, so one caller cancelling does not cancel the call for everyone else
+                waits.add(Mono.fromFuture(shared.copy()).doOnNext(embedding -> {
+                    for (int position : positions) {
+                        embeddings[position] = embedding;
+                    }
+                }));
+            }
+
+            for (int start = 0; start < owned.size(); start += maxBatchSize) {
+                int end = Math.min(owned.size(), start + maxBatchSize);
+                sendChunk(ownedKeys.subList(start, end), ownedTexts.subList(start, end), owned.subList(start, end));
+            }
+
+            if (waits.isEmpty()) {
+                return Mono.just(Arrays.asList(embeddings));
+            }
+            return Mono.zip(waits, results -> Arrays.asList(embeddings));
+        });
+    }
+
+    /**
+     * Send one request for texts this client registered as in flight, then cache the
+     * results and settle their futures the same way the single-text path does. Every key
+     * of the chunk leaves {@code inFlight} before any future completes: a waiter woken by
+     * the first one may retry at once and must not join a call that is already over.
+     */
+    private void sendChunk(List<EmbeddingCache.Key> keys, List<String> texts, List<CompletableFuture<double[]>> futures) {
+        requestEmbeddings(texts).subscribe(result -> {
+            for (int i = 0; i < keys.size(); i++) {
+                embeddingCache.put(keys.get(i), result.get(i));
+            }
+            release(keys, futures);
+            for (int i = 0; i < keys.size(); i++) {
+                futures.get(i).complete(result.get(i));
+            }
+        }, error -> fail(keys, futures, error),
+                () -> fail(keys, futures, new IllegalStateException("Empty embedding batch response")));
+    }
+
+    /**
+     * Cache a returned micro-batch and take all of its texts out of {@code inFlight}.
+     * Only the single-text path submits to the batcher, and it holds each key in
+     * {@code inFlight} until here, so the registered future is the one for this batch.
+     */
+    private void settleBatch(List<String> texts, List<double[]> embeddings) {
+        for (int i = 0; i < texts.size(); i++) {
+            EmbeddingCache.Key key = EmbeddingCache.key(model, texts.get(i));
+            if (embeddings != null) {
+                embeddingCache.put(key, embeddings.get(i));
+            }
+            inFlight.remove(key);
+        }
+    }
+
+    private void fail(List<EmbeddingCache.Key> keys, List<CompletableFuture<double[]>> futures, Throwable error) {
+        release(keys, futures);
+        for (CompletableFuture<double[]> future : futures) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void release(List<EmbeddingCache.Key> keys, List<CompletableFuture<double[]>> futures) {
+        for (int i = 0; i < keys.size(); i++) {
+            inFlight.remove(keys.get(i), futures.get(i));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+    }
+
+    /**
+     * One inference request with a list of inputs, run under the concurrency limit; the
+     * response holds one vector per input
+     */
+    private Mono<List<double[]>> requestEmbeddings(List<String> texts) {
+        return limiter.execute(() -> sendRequest(texts));
+    }
+
+    private Mono<List<double[]>> sendRequest(List<String> texts) {
         Map<String, Object> requestBody = Map.of(
-            "inputs", text,
+            "inputs", texts,
             "options", Map.of("wait_for_model", true)
         );
 
         return webClient.post()
-                .uri(baseUrl + "/models/sentence-transformers/all-MiniLM-L6-v2")
+                .uri(baseUrl + model)
                 .header("Authorization", "Bearer " + apiKey)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(requestBody)
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .map(this::extractEmbeddings)
-                .doOnError(error -> log.error("Error calling Hugging Face API: {}", error.getMessage()));
+                .timeout(requestTimeout)
+                .map(response -> extractBatchEmbeddings(response, texts.size()))
+                .doOnError(error -> log.warning("Error calling Hugging Face API for " + texts.size()
+                        + " inputs: " + error.getMessage()));
     }
 
-    /**
-     * Calculate similarity between two texts using embeddings
-     */
-    public Mono<Double> calculateSimilarity(String text1, String text2) {
-        return Mono.zip(getEmbeddings(text1), getEmbeddings(text2))
-                .map(tuple -> cosineSimilarity(tuple.getT1(), tuple.getT2()));
+    private List<double[]> extractBatchEmbeddings(JsonNode response, int expected) {
+        if (!response.isArray() || response.size() != expected) {
+            throw new RuntimeException("Unexpected response format from Hugging Face API");
+        }
+        List<double[]> embeddings = new ArrayList<>(expected);
+        for (JsonNode result : response) {
+            embeddings.add(extractEmbeddings(result));
+        }
+        return embeddings;
     }
 
-    private double[] extractEmbeddings(JsonNode response) {
-        if (response.isArray() && response.size() > 0) {
-            JsonNode firstResult = response.get(0);
-            if (firstResult.has("data")) {
-                // For some models, embeddings are in 'data' field
-                JsonNode data = firstResult.get("data");
-                double[] embeddings = new double[data.size()];
-                for (int i = 0; i < data.size(); i++) {
-                    embeddings[i] = data.get(i).asDouble();
-                }
-                return embeddings;
-            } else if (firstResult.isArray()) {
-                // Direct array of embeddings
-                double[] embeddings = new double[firstResult.size()];
-                for (int i = 0; i < firstResult.size(); i++) {
-                    embeddings[i] = firstResult.get(i).asDouble();
-                }
-                return embeddings;
+    private double[] extractEmbeddings(JsonNode result) {
+        // For some models, embeddings are in 'data' field, otherwise a direct array
+        JsonNode values = result.has("data") ? result.get("data") : result;
+        if (values.isArray() && values.size() > 0 && values.get(0).isNumber()) {
+            double[] embeddings = new double[values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                embeddings[i] = values.get(i).asDouble();
             }
+            return embeddings;
         }
         throw new RuntimeException("Unexpected response format from Hugging Face API");
     }
-
-    private double cosineSimilarity(double[] vectorA, double[] vectorB) {
-        if (vectorA.length != vectorB.length) {
-            throw new IllegalArgumentException("Vectors must have same length");
-        }
-
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-
-        for (int i = 0; i < vectorA.length; i++) {
-            dotProduct += vectorA[i] * vectorB[i];
-            normA += Math.pow(vectorA[i], 2);
-            normB += Math.pow(vectorB[i], 2);
-        }
-
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
-    }
 }
@@ -0,0 +1,21 @@
+package com.ecommerce.recommendation.client;
+
+import com.ecommerce.recommendation.dto.ProductDTO;
+import com.ecommerce.recommendation.dto.ProductPageDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Product catalog lookups against product-service, resolved through Eureka
+ */
+@FeignClient(name = "product-service")
+public interface ProductServiceClient {
+
+    @GetMapping("/api/products")
+    ProductPageDTO getProducts(@RequestParam("page") int page, @RequestParam("size") int size);
+
+    @GetMapping("/api/products/{id}")
+    ProductDTO getProduct(@PathVariable("id") Long id);
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.recommendation.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking permit pool for upstream calls. At most {@code maxConcurrent} calls run at
+ * once; further callers wait in a FIFO queue of at most {@code maxQueued} entries for up
+ * to {@code queueTimeout}, and are rejected when the queue is full or the wait times out.
+ * Waiting never blocks a thread: a queued caller is resumed by the release of a permit.
+ */
+class RequestLimiter {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration queueTimeout;
+    private final ArrayDeque<Permit> waiting = new ArrayDeque<>();
+    private final Timer queueWait;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private int active;
+
+    RequestLimiter(String name, int maxConcurrent, int maxQueued, Duration queueTimeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.queueWait = Timer.builder(name + ".limiter.queue.wait")
+                .description("Time upstream calls waited for a permit")
+                .register(meterRegistry);
+        this.rejectedQueueFull = meterRegistry.counter(name + ".limiter.rejected", "reason", "queue_full");
+        this.rejectedTimeout = meterRegistry.counter(name + ".limiter.rejected", "reason", "timeout");
+        meterRegistry.gauge(name + ".limiter.active", this, RequestLimiter::activeCount);
+        meterRegistry.gauge(name + ".limiter.queued", this, RequestLimiter::queuedCount);
+    }
+
+    /**
+     * Subscribe to the call once a permit is available and release it when the call
+     * terminates or is cancelled
+     */
+    <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return acquire().flatMap(permit -> {
+            if (!permit.claim()) {
+                return Mono.error(new IllegalStateException("Permit already released"));
+            }
+            return Mono.defer(call).doFinally(signal -> release());
+        });
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            Permit permit = new Permit(sink);
+            boolean granted;
+            synchronized (this) {
+                granted = active < maxConcurrent;
+                if (granted) {
+                    active++;
+                } else if (waiting.size() >= maxQueued) {
+                    rejectedQueueFull.increment();
+                    sink.error(new RejectedException(name + " queue is full (" + maxQueued + " waiting)"));
+                    return;
+                } else {
+                    waiting.add(permit);
+                }
+            }
+            sink.onCancel(() -> abandon(permit));
+            if (granted) {
+                permit.grant();
+            }
+        }).timeout(queueTimeout).onErrorMap(TimeoutException.class, error -> {
+            rejectedTimeout.increment();
+            return new RejectedException(name + " permit not granted within " + queueTimeout.toMillis() + " ms");
+        });
+    }
+
+    private void release() {
+        Permit next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+            // The permit passes straight to the next waiter, active stays the same
+        }
+        next.grant();
+    }
+
+    /**
+     * Subscriber went away while waiting, or after its permit was granted but not used
+     */
+    private void abandon(Permit permit) {
+        synchronized (this) {
+            if (waiting.remove(permit)) {
+                return;
+            }
+        }
+        if (permit.claim()) {
+            release();
+        }
+    }
+
+    private synchronized double activeCount() {
+        return active;
+    }
+
+    private synchronized double queuedCount() {
+        return waiting.size();
+    }
+
+    private final class Permit {
+        private final MonoSink<Permit> sink;
+        private final long queuedAt = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Permit(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        void grant() {
+            queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            sink.success(this);
+        }
+
+        /**
+         * Exactly one of the call and the cancellation path takes ownership of the permit
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Call refused because no permit became available
+     */
+    static final class RejectedException extends RuntimeException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.recommendation.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+
+/**
+ * Backs {@code @Cacheable} with a local Caffeine tier in front of Redis. Set
+ * {@code recommendation.cache.remote.enabled=false} to cache per instance only.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(ObjectProvider<RedisConnectionFactory> connectionFactory,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${recommendation.cache.ttl:3600000}") long ttlMillis,
+                                             @Value("${recommendation.cache.local.max-entries:10000}") long localMaxEntries,
+                                             @Value("${recommendation.cache.remote.enabled:true}") boolean remoteEnabled) {
+        RedisConnectionFactory factory = remoteEnabled ? connectionFactory.getIfAvailable() : null;
+        RedisTemplate<String, Object> remote = null;
+        if (factory != null) {
+            JdkSerializationRedisSerializer values = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+            remote = new RedisTemplate<>();
+            remote.setConnectionFactory(factory);
+            remote.setKeySerializer(StringRedisSerializer.UTF_8);
+            remote.setHashKeySerializer(StringRedisSerializer.UTF_8);
+            remote.setValueSerializer(values);
+            remote.setHashValueSerializer(values);
+            remote.afterPropertiesSet();
+        }
+        return new TwoLevelCacheManager(remote, Duration.ofMillis(ttlMillis), localMaxEntries, meterRegistry);
+    }
+
+    /**
+     * Receives per-user invalidations published by any instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "recommendation.cache.remote.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
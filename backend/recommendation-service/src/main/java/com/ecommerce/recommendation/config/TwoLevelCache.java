@@ -0,0 +1,238 @@
+package com.ecommerce.recommendation.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache with a bounded in-process Caffeine tier in front of a shared Redis tier.
+ *
+ * Keys of the form {@code <owner>_<rest>} (for example {@code userId_limit}) are grouped
+ * per owner: in Redis all entries of one owner live in a single hash, so everything
+ * cached for a user can be dropped with one delete. Redis errors are counted and the
+ * cache degrades to its local tier rather than failing the call.
+ */
+class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final Logger log = Logger.getLogger(TwoLevelCache.class.getName());
+
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final RedisTemplate<String, Object> remote;
+    private final Duration ttl;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+    private final Timer loadTimer;
+
+    // Miss observed on this thread, closed by the put of the loaded value or the next lookup
+    private final ThreadLocal<PendingLoad> pendingLoad = new ThreadLocal<>();
+
+    TwoLevelCache(String name, Cache<Object, Object> local,
+                  RedisTemplate<String, Object> remote, Duration ttl, MeterRegistry meterRegistry) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.ttl = ttl;
+        this.localHits = meterRegistry.counter("cache.gets", "cache", name, "tier", "local", "result", "hit");
+        this.localMisses = meterRegistry.counter("cache.gets", "cache", name, "tier", "local", "result", "miss");
+        this.remoteHits = meterRegistry.counter("cache.gets", "cache", name, "tier", "remote", "result", "hit");
+        this.remoteMisses = meterRegistry.counter("cache.gets", "cache", name, "tier", "remote", "result", "miss");
+        this.remoteErrors = meterRegistry.counter("cache.remote.errors", "cache", name);
+        this.loadTimer = Timer.builder("cache.load")
+                .description("Time to compute a value after a miss in both tiers")
+                .tag("cache", name)
+                .register(meterRegistry);
+        meterRegistry.gauge("cache.hit.ratio", Tags.of("cache", name), this, TwoLevelCache::hitRatio);
+        meterRegistry.gauge("cache.size", Tags.of("cache", name), local, Cache::estimatedSize);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        // A miss whose value was never put, because an unless condition vetoed it, ends here
+        pendingLoad.remove();
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+
+        if (remote != null) {
+            try {
+                value = remote.opsForHash().get(remoteKey(key), field(key));
+            } catch (RuntimeException e) {
+                remoteError("read", e);
+            }
+            if (value != null) {
+                remoteHits.increment();
+                local.put(key, value);
+                return value;
+            }
+            remoteMisses.increment();
+        }
+        pendingLoad.set(new PendingLoad(key, System.nanoTime()));
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            pendingLoad.remove();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        PendingLoad load = pendingLoad.get();
+        if (load != null) {
+            pendingLoad.remove();
+            if (load.key.equals(key)) {
+                loadTimer.record(System.nanoTime() - load.startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        Object stored = toStoreValue(value);
+        local.put(key, stored);
+        if (remote != null) {
+            try {
+                String remoteKey = remoteKey(key);
+                remote.opsForHash().put(remoteKey, field(key), stored);
+                // One TTL per owner hash: the newest entry keeps its siblings alive with it
+                remote.expire(remoteKey, ttl);
+            } catch (RuntimeException e) {
+                remoteError("write", e);
+            }
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (remote != null) {
+            try {
+                remote.opsForHash().delete(remoteKey(key), field(key));
+            } catch (RuntimeException e) {
+                remoteError("evict", e);
+            }
+        }
+    }
+
+    /**
+     * Drop every entry cached for the owner from both tiers
+     */
+    void evictOwner(String owner) {
+        evictLocalOwner(owner);
+        if (remote != null) {
+            try {
+                remote.delete(remoteKeyPrefix() + owner);
+            } catch (RuntimeException e) {
+                remoteError("evict", e);
+            }
+        }
+    }
+
+    /**
+     * Drop the owner's entries from this instance only, after another instance has
+     * already removed them from Redis
+     */
+    void evictLocalOwner(String owner) {
+        local.asMap().keySet().removeIf(key -> owner(key).equals(owner));
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            try {
+                // Only reached from an explicit allEntries eviction, so a key scan is acceptable
+                Set<String> keys = remote.keys(remoteKeyPrefix() + "*");
+                if (keys != null && !keys.isEmpty()) {
+                    remote.delete(keys);
+                }
+            } catch (RuntimeException e) {
+                remoteError("clear", e);
+            }
+        }
+    }
+
+    private double hitRatio() {
+        double hits = localHits.count() + remoteHits.count();
+        double gets = localHits.count() + localMisses.count();
+        return gets > 0 ? hits / gets : 0.0;
+    }
+
+    private void remoteError(String operation, RuntimeException e) {
+        remoteErrors.increment();
+        log.log(Level.FINE, "Redis " + operation + " failed for cache " + name + ", using local tier only", e);
+    }
+
+    private String remoteKeyPrefix() {
+        return "recommendation:cache:" + name + ":";
+    }
+
+    private String remoteKey(Object key) {
+        return remoteKeyPrefix() + owner(key);
+    }
+
+    static String owner(Object key) {
+        String text = key.toString();
+        int separator = text.indexOf('_');
+        return separator >= 0 ? text.substring(0, separator) : text;
+    }
+
+    private static String field(Object key) {
+        String text = key.toString();
+        int separator = text.indexOf('_');
+        return separator >= 0 ? text.substring(separator + 1) : "";
+    }
+
+    private static final class PendingLoad {
+        final Object key;
+        final long startNanos;
+
+        PendingLoad(Object key, long startNanos) {
+            this.key = key;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.recommendation.config;
+
+import com.ecommerce.recommendation.service.InteractionRecordedEvent;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates {@link TwoLevelCache}s on demand and invalidates a user's entries in every
+ * cache when that user records an interaction. The eviction is broadcast on a Redis
+ * channel so other instances drop their local copies too; per-user state kept outside the
+ * caches can follow the same invalidations with {@link #addOwnerEvictionListener}.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger log = Logger.getLogger(TwoLevelCacheManager.class.getName());
+
+    public static final String INVALIDATION_CHANNEL = "recommendation:cache:invalidate";
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> remote;
+    private final Duration ttl;
+    private final long localMaxEntries;
+    private final MeterRegistry meterRegistry;
+    private final List<Consumer<String>> ownerEvictionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param remote shared tier, or null to cache in this instance only
+     */
+    public TwoLevelCacheManager(RedisTemplate<String, Object> remote, Duration ttl, long localMaxEntries,
+                                MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.ttl = ttl;
+        this.localMaxEntries = localMaxEntries;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> new TwoLevelCache(cacheName,
+                Caffeine.newBuilder()
+                        .maximumSize(localMaxEntries)
+                        .expireAfterWrite(ttl)
+                        .build(),
+                remote, ttl, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * Called with the owner of every invalidation, on every instance. The instance that
+     * evicted also hears its own broadcast, so listeners must be idempotent.
+     */
+    public void addOwnerEvictionListener(Consumer<String> listener) {
+        ownerEvictionListeners.add(listener);
+    }
+
+    @EventListener
+    public void onInteractionRecorded(InteractionRecordedEvent event) {
+        evictUser(event.getUserId());
+    }
+
+    /**
+     * Drop everything cached for the user in both tiers and tell other instances to do the same
+     */
+    public void evictUser(Long userId) {
+        String owner = String.valueOf(userId);
+        for (TwoLevelCache cache : caches.values()) {
+            cache.evictOwner(owner);
+        }
+        notifyListeners(owner);
+        if (remote != null) {
+            try {
+                remote.convertAndSend(INVALIDATION_CHANNEL, owner);
+            } catch (RuntimeException e) {
+                log.log(Level.FINE, "Failed to broadcast cache invalidation for user " + userId, e);
+            }
+        }
+    }
+
+    /**
+     * Invalidation broadcast by any instance, including this one
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object owner = remote.getValueSerializer().deserialize(message.getBody());
+        if (owner != null) {
+            for (TwoLevelCache cache : caches.values()) {
+                cache.evictLocalOwner(owner.toString());
+            }
+            notifyListeners(owner.toString());
+        }
+    }
+
+    private void notifyListeners(String owner) {
+        for (Consumer<String> listener : ownerEvictionListeners) {
+            try {
+                listener.accept(owner);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Owner eviction listener failed for " + owner, e);
+            }
+        }
+    }
+}
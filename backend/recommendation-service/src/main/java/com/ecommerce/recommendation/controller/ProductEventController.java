@@ -0,0 +1,43 @@
+package com.ecommerce.recommendation.controller;
+
+import com.ecommerce.recommendation.dto.ProductChangeEventDTO;
+import com.ecommerce.recommendation.service.ProductVectorIndexService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives product change events from the product-service outbox. Service-to-service only,
+ * not routed through the API gateway.
+ */
+@RestController
+@RequestMapping("/internal/product-events")
+public class ProductEventController {
+
+    private static final Logger log = Logger.getLogger(ProductEventController.class.getName());
+
+    private final ProductVectorIndexService productVectorIndexService;
+
+    public ProductEventController(ProductVectorIndexService productVectorIndexService) {
+        this.productVectorIndexService = productVectorIndexService;
+    }
+
+    /**
+     * Apply a batch of events before answering. A 503 leaves the batch unpublished in the
+     * sender's outbox, which retries it on its next poll.
+     */
+    @PostMapping
+    public ResponseEntity<Void> onProductEvents(@RequestBody List<ProductChangeEventDTO> events) {
+        try {
+            productVectorIndexService.applyChanges(events);
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed to apply " + events.size() + " product events", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -2,29 +2,37 @@ package com.ecommerce.recommendation.controller;
 
 import com.ecommerce.recommendation.dto.RecommendationDTO;
 import com.ecommerce.recommendation.dto.UserInteractionDTO;
-import com.ecommerce.recommendation.service.CollaborativeFilteringService;
+import com.ecommerce.recommendation.ranking.RecommendationAlgorithm;
 import com.ecommerce.recommendation.service.ContentBasedFilteringService;
 import com.ecommerce.recommendation.service.HybridRecommendationService;
+import com.ecommerce.recommendation.service.InteractionService;
+import com.ecommerce.recommendation.service.RecommendationBatchService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/recommendations")
 public class RecommendationController {
 
-    private final CollaborativeFilteringService collaborativeFilteringService;
+    private static final Logger log = Logger.getLogger(RecommendationController.class.getName());
+
     private final ContentBasedFilteringService contentBasedFilteringService;
     private final HybridRecommendationService hybridRecommendationService;
+    private final InteractionService interactionService;
+    private final RecommendationBatchService recommendationBatchService;
 
-    public RecommendationController(CollaborativeFilteringService collaborativeFilteringService,
-                                   ContentBasedFilteringService contentBasedFilteringService,
-                                   HybridRecommendationService hybridRecommendationService) {
-        this.collaborativeFilteringService = collaborativeFilteringService;
+    public RecommendationController(ContentBasedFilteringService contentBasedFilteringService,
+                                   HybridRecommendationService hybridRecommendationService,
+                                   InteractionService interactionService,
+                                   RecommendationBatchService recommendationBatchService) {
         this.contentBasedFilteringService = contentBasedFilteringService;
         this.hybridRecommendationService = hybridRecommendationService;
+        this.interactionService = interactionService;
+        this.recommendationBatchService = recommendationBatchService;
     }
 
     /**
@@ -36,34 +44,14 @@ public class RecommendationController {
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "HYBRID") String algorithm) {
 
-        System.out.println("Getting recommendations for user: {} with algorithm: {}", userId, algorithm);
-
-        List<RecommendationDTO> recommendations;
-
-        switch (algorithm.toUpperCase()) {
-            case "USER_BASED":
-                recommendations = collaborativeFilteringService.getUserBasedRecommendations(userId, limit)
-                        .stream()
-                        .map(this::convertToDTO)
-                        .collect(Collectors.toList());
-                break;
-            case "ITEM_BASED":
-                recommendations = collaborativeFilteringService.getItemBasedRecommendations(userId, limit)
-                        .stream()
-                        .map(this::convertToDTO)
-                        .collect(Collectors.toList());
-                break;
-            case "CONTENT_BASED":
-                recommendations = contentBasedFilteringService.getContentBasedRecommendations(userId, limit)
-                        .stream()
-                        .map(this::convertToDTO)
-                        .collect(Collectors.toList());
-                break;
-            case "HYBRID":
-            default:
-                // Use the new hybrid service
-                recommendations = hybridRecommendationService.getHybridRecommendations(userId, limit);
-                break;
+        log.info("Getting recommendations for user: " + userId + " with algorithm: " + algorithm);
+
+        // Only hybrid lists are batch-materialized; rank online when there is none
+        RecommendationAlgorithm requested = RecommendationAlgorithm.parse(algorithm);
+        List<RecommendationDTO> recommendations = requested == RecommendationAlgorithm.HYBRID
+                ? recommendationBatchService.getMaterialized(userId, limit) : null;
+        if (recommendations == null) {
+            recommendations = hybridRecommendationService.getRecommendations(userId, limit, requested);
         }
 
         return ResponseEntity.ok(recommendations);
@@ -77,7 +65,7 @@ public class RecommendationController {
             @PathVariable Long productId,
             @RequestParam(defaultValue = "10") int limit) {
 
-        System.out.println("Getting similar products for product: {}", productId);
+        log.info("Getting similar products for product: " + productId);
 
         List<RecommendationDTO> recommendations = contentBasedFilteringService
                 .getSimilarProducts(productId, limit)
@@ -93,11 +81,12 @@ public class RecommendationController {
      */
     @PostMapping("/interaction")
     public ResponseEntity<Void> recordInteraction(@RequestBody UserInteractionDTO interactionDTO) {
-        System.out.println("Recording interaction: {}", interactionDTO);
-
-        // This would typically call a service to save the interaction
-        // For now, we'll just log it
-        // interactionService.saveInteraction(interactionDTO);
+        // Persists the interaction and feeds it to the live collaborative filtering model
+        try {
+            interactionService.saveInteraction(interactionDTO);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
         return ResponseEntity.ok().build();
     }
@@ -109,7 +98,7 @@ public class RecommendationController {
     public ResponseEntity<List<RecommendationDTO>> getTrendingProducts(
             @RequestParam(defaultValue = "10") int limit) {
 
-        System.out.println("Getting trending products");
+        log.info("Getting trending products");
 
         List<RecommendationDTO> recommendations = contentBasedFilteringService
                 .getTrendingProducts(limit)
@@ -125,7 +114,7 @@ public class RecommendationController {
      */
     @GetMapping("/user/{userId}/realtime")
     public ResponseEntity<List<RecommendationDTO>> getRealTimeUpdates(@PathVariable Long userId) {
-        System.out.println("Getting real-time updates for user: {}", userId);
+        log.info("Getting real-time updates for user: " + userId);
 
         List<RecommendationDTO> updates = hybridRecommendationService.getRealTimeUpdates(userId);
         return ResponseEntity.ok(updates);
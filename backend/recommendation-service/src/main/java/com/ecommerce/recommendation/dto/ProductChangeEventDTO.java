@@ -0,0 +1,31 @@
+package com.ecommerce.recommendation.dto;
+
+/**
+ * Product change delivered by the product-service outbox; {@code product} is null for deletions
+ */
+public class ProductChangeEventDTO {
+
+    public static final String PRODUCT_UPSERTED = "PRODUCT_UPSERTED";
+    public static final String PRODUCT_DELETED = "PRODUCT_DELETED";
+
+    private Long eventId;
+    private Long productId;
+    private String type;
+    private ProductDTO product;
+
+    // Default constructor
+    public ProductChangeEventDTO() {}
+
+    // Getters and setters
+    public Long getEventId() { return eventId; }
+    public void setEventId(Long eventId) { this.eventId = eventId; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public ProductDTO getProduct() { return product; }
+    public void setProduct(ProductDTO product) { this.product = product; }
+}
@@ -0,0 +1,46 @@
+package com.ecommerce.recommendation.dto;
+
+import java.util.List;
+
+/**
+ * Catalog fields of a product-service product that are used for content embeddings
+ */
+public class ProductDTO {
+
+    private Long id;
+    private String name;
+    private String description;
+    private String category;
+    private List<String> tags;
+
+    // Default constructor
+    public ProductDTO() {}
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    /**
+     * Text embedded for content similarity: name, category, tags and description
+     */
+    public String embeddingText() {
+        StringBuilder text = new StringBuilder();
+        if (name != null) text.append(name);
+        if (category != null) text.append(". ").append(category);
+        if (tags != null && !tags.isEmpty()) text.append(". ").append(String.join(", ", tags));
+        if (description != null) text.append(". ").append(description);
+        return text.toString();
+    }
+}
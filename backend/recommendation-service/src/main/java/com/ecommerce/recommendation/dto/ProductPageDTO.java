@@ -0,0 +1,23 @@
+package com.ecommerce.recommendation.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of the product-service catalog, as serialized from a Spring Data Page
+ */
+public class ProductPageDTO {
+
+    private List<ProductDTO> content = new ArrayList<>();
+    private boolean last = true;
+
+    // Default constructor
+    public ProductPageDTO() {}
+
+    // Getters and setters
+    public List<ProductDTO> getContent() { return content; }
+    public void setContent(List<ProductDTO> content) { this.content = content; }
+
+    public boolean isLast() { return last; }
+    public void setLast(boolean last) { this.last = last; }
+}
@@ -1,9 +1,12 @@
 package com.ecommerce.recommendation.dto;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public class RecommendationDTO {
+public class RecommendationDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private Long id;
     private Long userId;
@@ -16,6 +19,7 @@ public class RecommendationDTO {
     private Integer rankPosition;
     private LocalDateTime createdAt;
     private String reason; // Human-readable reason for recommendation
+    private boolean degraded; // Served without full content-based scoring (deadline exceeded or circuit open)
 
     // Default constructor
     public RecommendationDTO() {}
@@ -68,4 +72,7 @@ public class RecommendationDTO {
 
     public String getReason() { return reason; }
     public void setReason(String reason) { this.reason = reason; }
+
+    public boolean isDegraded() { return degraded; }
+    public void setDegraded(boolean degraded) { this.degraded = degraded; }
 }
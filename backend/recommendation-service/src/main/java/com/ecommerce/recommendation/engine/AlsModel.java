@@ -0,0 +1,79 @@
+package com.ecommerce.recommendation.engine;
+
+/**
+ * Latent-factor model produced by {@link AlsTrainer}: one dense float vector per user and
+ * per product, indexed by the dense ids of the interaction matrix it was trained on.
+ *
+ * A user's score for a product is the dot product of their factors. Serving scans the
+ * product factors in blocks so each block's scores are computed in a tight loop over
+ * contiguous memory before being offered to a bounded top-K heap.
+ */
+public final class AlsModel {
+
+    private static final int SCORE_BLOCK = 1024;
+
+    private final int factors;
+    private final int numUsers;
+    private final int numProducts;
+    // Row-major: entity i occupies [i * factors, (i + 1) * factors)
+    private final float[] userFactors;
+    private final float[] productFactors;
+    private final long builtAt;
+
+    AlsModel(int factors, int numUsers, int numProducts, float[] userFactors, float[] productFactors) {
+        this.factors = factors;
+        this.numUsers = numUsers;
+        this.numProducts = numProducts;
+        this.userFactors = userFactors;
+        this.productFactors = productFactors;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    public int factors() { return factors; }
+
+    public int numUsers() { return numUsers; }
+
+    public int numProducts() { return numProducts; }
+
+    public long builtAt() { return builtAt; }
+
+    /**
+     * True if the user was part of the training snapshot
+     */
+    public boolean hasUser(int user) {
+        return user >= 0 && user < numUsers;
+    }
+
+    public float score(int user, int product) {
+        return VectorMath.dot(userFactors, user * factors, productFactors, product * factors, factors);
+    }
+
+    /**
+     * Put the user's {@code limit} best-scoring products that they have not interacted with
+     * into {@code out}, keyed by dense product index
+     */
+    public void recommend(int user, int limit, InteractionMatrix matrix, ScoreAccumulator out) {
+        if (!hasUser(user)) {
+            return;
+        }
+        int userBase = user * factors;
+        TopK top = new TopK(limit);
+        float[] block = new float[SCORE_BLOCK];
+        for (int start = 0; start < numProducts; start += SCORE_BLOCK) {
+            int end = Math.min(numProducts, start + SCORE_BLOCK);
+            for (int product = start; product < end; product++) {
+                block[product - start] = VectorMath.dot(userFactors, userBase, productFactors, product * factors, factors);
+            }
+            for (int product = start; product < end; product++) {
+                float score = block[product - start];
+                // Cheap heap check first: the membership test only runs for contenders
+                if (top.accepts(score) && !matrix.hasInteraction(user, product)) {
+                    top.offer(product, score);
+                }
+            }
+        }
+        for (int product : top.drainDescending()) {
+            out.put(product, score(user, product));
+        }
+    }
+}
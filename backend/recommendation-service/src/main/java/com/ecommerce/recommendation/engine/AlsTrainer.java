@@ -0,0 +1,201 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Implicit-feedback alternating least squares (Hu, Koren, Volinsky).
+ *
+ * Every observed (user, product) pair has preference 1 and confidence
+ * {@code 1 + alpha * w}, where w is the interaction strength stored in the matrix; all
+ * other pairs have preference 0 and confidence 1. Each half-step solves one regularized
+ * least squares system per user (or product) using the shared Gram matrix Y'Y plus a
+ * correction for the observed entries only, so a sweep costs O(nnz * f^2 + n * f^3).
+ * Rows are solved in parallel on the common fork/join pool.
+ */
+public final class AlsTrainer {
+
+    private final int factors;
+    private final int iterations;
+    private final double regularization;
+    private final double alpha;
+    private final long seed;
+
+    public AlsTrainer(int factors, int iterations, double regularization, double alpha, long seed) {
+        this.factors = factors;
+        this.iterations = iterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.seed = seed;
+    }
+
+    /**
+     * Train on the matrix snapshot; interactions recorded after the snapshot are ignored
+     */
+    public AlsModel train(InteractionMatrix matrix) {
+        int numUsers = matrix.numUsers();
+        int numProducts = matrix.numProducts();
+
+        // User rows straight from the CSR arrays
+        int nnz = numUsers > 0 ? matrix.userEnd(numUsers - 1) : 0;
+        int[] userOffsets = new int[numUsers + 1];
+        int[] userItems = new int[nnz];
+        float[] userConfidence = new float[nnz];
+        for (int user = 0; user < numUsers; user++) {
+            userOffsets[user + 1] = matrix.userEnd(user);
+            for (int k = matrix.userStart(user); k < matrix.userEnd(user); k++) {
+                userItems[k] = matrix.productAt(k);
+                userConfidence[k] = (float) (alpha * matrix.weightAt(k));
+            }
+        }
+
+        // Product rows by counting-sort transpose
+        int[] productOffsets = new int[numProducts + 1];
+        for (int k = 0; k < nnz; k++) {
+            productOffsets[userItems[k] + 1]++;
+        }
+        for (int p = 0; p < numProducts; p++) {
+            productOffsets[p + 1] += productOffsets[p];
+        }
+        int[] productUsers = new int[nnz];
+        float[] productConfidence = new float[nnz];
+        int[] fill = Arrays.copyOf(productOffsets, numProducts);
+        for (int user = 0; user < numUsers; user++) {
+            for (int k = userOffsets[user]; k < userOffsets[user + 1]; k++) {
+                int slot = fill[userItems[k]]++;
+                productUsers[slot] = user;
+                productConfidence[slot] = userConfidence[k];
+            }
+        }
+
+        float[] userFactors = new float[numUsers * factors];
+        float[] productFactors = new float[numProducts * factors];
+        Random random = new Random(seed);
+        double scale = 0.1 / Math.sqrt(factors);
+        for (int i = 0; i < productFactors.length; i++) {
+            productFactors[i] = (float) (random.nextGaussian() * scale);
+        }
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solve(userFactors, numUsers, userOffsets, userItems, userConfidence, productFactors, numProducts);
+            solve(productFactors, numProducts, productOffsets, productUsers, productConfidence, userFactors, numUsers);
+        }
+        return new AlsModel(factors, numUsers, numProducts, userFactors, productFactors);
+    }
+
+    /**
+     * Recompute every row of {@code target} with {@code fixed} held constant
+     */
+    private void solve(float[] target, int numRows, int[] offsets, int[] columns, float[] confidence,
+                       float[] fixed, int numFixed) {
+        double[] gram = gram(fixed, numFixed);
+        ThreadLocal<double[][]> buffers = ThreadLocal.withInitial(() ->
+                new double[][] {new double[factors * factors], new double[factors]});
+
+        IntStream.range(0, numRows).parallel().forEach(row -> {
+            int base = row * factors;
+            if (offsets[row] == offsets[row + 1]) {
+                Arrays.fill(target, base, base + factors, 0f);
+                return;
+            }
+            double[][] buffer = buffers.get();
+            double[] a = buffer[0];
+            double[] b = buffer[1];
+            System.arraycopy(gram, 0, a, 0, a.length);
+            Arrays.fill(b, 0.0);
+            for (int i = 0; i < factors; i++) {
+                a[i * factors + i] += regularization;
+            }
+
+            // A = Y'Y + Y'(C - I)Y + lambda I and b = Y'C p, touching observed entries only
+            for (int k = offsets[row]; k < offsets[row + 1]; k++) {
+                int yBase = columns[k] * factors;
+                double extra = confidence[k];
+                for (int i = 0; i < factors; i++) {
+                    double yi = fixed[yBase + i];
+                    b[i] += (1.0 + extra) * yi;
+                    double scaled = extra * yi;
+                    int aRow = i * factors;
+                    for (int j = 0; j <= i; j++) {
+                        a[aRow + j] += scaled * fixed[yBase + j];
+                    }
+                }
+            }
+            choleskySolve(a, b, factors);
+            for (int i = 0; i < factors; i++) {
+                target[base + i] = (float) b[i];
+            }
+        });
+    }
+
+    /**
+     * Y'Y for the fixed side, lower triangle filled, summed over parallel chunks
+     */
+    private double[] gram(float[] fixed, int numFixed) {
+        int chunk = 4096;
+        int chunks = (numFixed + chunk - 1) / chunk;
+        return IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            double[] partial = new double[factors * factors];
+            int end = Math.min(numFixed, (c + 1) * chunk);
+            for (int row = c * chunk; row < end; row++) {
+                int base = row * factors;
+                for (int i = 0; i < factors; i++) {
+                    double yi = fixed[base + i];
+                    int aRow = i * factors;
+                    for (int j = 0; j <= i; j++) {
+                        partial[aRow + j] += yi * fixed[base + j];
+                    }
+                }
+            }
+            return partial;
+        }).reduce(new double[factors * factors], (x, y) -> {
+            double[] sum = new double[x.length];
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] = x[i] + y[i];
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Solve A x = b in place for symmetric positive definite A given by its lower
+     * triangle; the solution is left in {@code b}
+     */
+    static void choleskySolve(double[] a, double[] b, int n) {
+        for (int j = 0; j < n; j++) {
+            int jRow = j * n;
+            double diagonal = a[jRow + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[jRow + k] * a[jRow + k];
+            }
+            diagonal = Math.sqrt(Math.max(diagonal, 1e-12));
+            a[jRow + j] = diagonal;
+            for (int i = j + 1; i < n; i++) {
+                int iRow = i * n;
+                double value = a[iRow + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[iRow + k] * a[jRow + k];
+                }
+                a[iRow + j] = value / diagonal;
+            }
+        }
+        // Forward substitution L y = b
+        for (int i = 0; i < n; i++) {
+            int iRow = i * n;
+            double value = b[i];
+            for (int k = 0; k < i; k++) {
+                value -= a[iRow + k] * b[k];
+            }
+            b[i] = value / a[iRow + i];
+        }
+        // Back substitution L' x = y
+        for (int i = n - 1; i >= 0; i--) {
+            double value = b[i];
+            for (int k = i + 1; k < n; k++) {
+                value -= a[k * n + i] * b[k];
+            }
+            b[i] = value / a[i * n + i];
+        }
+    }
+}
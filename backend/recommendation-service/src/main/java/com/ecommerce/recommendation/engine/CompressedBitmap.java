@@ -0,0 +1,223 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable Roaring-style compressed bitmap over non-negative ints.
+ *
+ * Values are partitioned by their high 16 bits. Each partition is stored either as a
+ * sorted char array (up to 4096 values) or as a 1024-word bitset, whichever is smaller,
+ * so sparse posting lists cost two bytes per value and dense ones one bit. Intersection
+ * cardinality between two bitset partitions is a popcount over ANDed words.
+ */
+public final class CompressedBitmap {
+
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new char[0][], new long[0][], 0);
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITSET_WORDS = 1024;
+
+    private final char[] keys;
+    // Exactly one of arrays[i] / bitsets[i] is non-null for partition i
+    private final char[][] arrays;
+    private final long[][] bitsets;
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, char[][] arrays, long[][] bitsets, int cardinality) {
+        this.keys = keys;
+        this.arrays = arrays;
+        this.bitsets = bitsets;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Bitmap of {@code values[from, to)}, which must be sorted ascending and distinct
+     */
+    public static CompressedBitmap of(int[] values, int from, int to) {
+        if (from >= to) {
+            return EMPTY;
+        }
+
+        int partitions = 1;
+        for (int i = from + 1; i < to; i++) {
+            if ((values[i] >>> 16) != (values[i - 1] >>> 16)) {
+                partitions++;
+            }
+        }
+
+        char[] keys = new char[partitions];
+        char[][] arrays = new char[partitions][];
+        long[][] bitsets = new long[partitions][];
+        int partition = 0;
+        int start = from;
+        while (start < to) {
+            int high = values[start] >>> 16;
+            int end = start + 1;
+            while (end < to && (values[end] >>> 16) == high) {
+                end++;
+            }
+            keys[partition] = (char) high;
+            if (end - start <= ARRAY_LIMIT) {
+                char[] array = new char[end - start];
+                for (int i = start; i < end; i++) {
+                    array[i - start] = (char) values[i];
+                }
+                arrays[partition] = array;
+            } else {
+                long[] bitset = new long[BITSET_WORDS];
+                for (int i = start; i < end; i++) {
+                    int low = values[i] & 0xFFFF;
+                    bitset[low >>> 6] |= 1L << low;
+                }
+                bitsets[partition] = bitset;
+            }
+            partition++;
+            start = end;
+        }
+        return new CompressedBitmap(keys, arrays, bitsets, to - from);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int partition = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (partition < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (arrays[partition] != null) {
+            return Arrays.binarySearch(arrays[partition], low) >= 0;
+        }
+        return (bitsets[partition][low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * |this n other|
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            char a = keys[i];
+            char b = other.keys[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                count += andCardinality(arrays[i], bitsets[i], other.arrays[j], other.bitsets[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * |this u other|
+     */
+    public int orCardinality(CompressedBitmap other) {
+        return cardinality + other.cardinality - andCardinality(other);
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int p = 0; p < keys.length; p++) {
+            int high = keys[p] << 16;
+            char[] array = arrays[p];
+            if (array != null) {
+                for (char low : array) {
+                    consumer.accept(high | low);
+                }
+            } else {
+                long[] bitset = bitsets[p];
+                for (int w = 0; w < BITSET_WORDS; w++) {
+                    long word = bitset[w];
+                    while (word != 0) {
+                        consumer.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    private static int andCardinality(char[] array1, long[] bitset1, char[] array2, long[] bitset2) {
+        if (bitset1 != null && bitset2 != null) {
+            int count = 0;
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                count += Long.bitCount(bitset1[w] & bitset2[w]);
+            }
+            return count;
+        }
+        if (bitset1 != null) {
+            return probe(array2, bitset1);
+        }
+        if (bitset2 != null) {
+            return probe(array1, bitset2);
+        }
+        return intersect(array1, array2);
+    }
+
+    private static int probe(char[] array, long[] bitset) {
+        int count = 0;
+        for (char low : array) {
+            if ((bitset[low >>> 6] & (1L << low)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int intersect(char[] small, char[] large) {
+        if (small.length > large.length) {
+            char[] swap = small;
+            small = large;
+            large = swap;
+        }
+        // Gallop through the larger list when sizes are very skewed
+        if (small.length * 32 < large.length) {
+            int count = 0;
+            int from = 0;
+            for (char value : small) {
+                int found = Arrays.binarySearch(large, from, large.length, value);
+                if (found >= 0) {
+                    count++;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return count;
+        }
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            if (small[i] < large[j]) {
+                i++;
+            } else if (small[i] > large[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+}
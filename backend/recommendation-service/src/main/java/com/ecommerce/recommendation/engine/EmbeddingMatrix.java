@@ -0,0 +1,108 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Embeddings stacked into one contiguous row-major float matrix with L2-normalized rows,
+ * so cosine similarity between two sets of texts is a single matrix product.
+ *
+ * The product is computed in row tiles: a tile of left rows is multiplied against a tile
+ * of right rows while both are cache resident, instead of streaming the whole right
+ * matrix once per left row.
+ */
+public final class EmbeddingMatrix {
+
+    private static final int TILE = 64;
+
+    private final int rows;
+    private final int dimensions;
+    private final float[] values;
+
+    private EmbeddingMatrix(int rows, int dimensions, float[] values) {
+        this.rows = rows;
+        this.dimensions = dimensions;
+        this.values = values;
+    }
+
+    /**
+     * Stack and normalize the vectors, which must all have the same length. Zero vectors
+     * stay zero and so have similarity 0 with everything.
+     */
+    public static EmbeddingMatrix of(List<double[]> vectors) {
+        int rows = vectors.size();
+        int dimensions = rows > 0 ? vectors.get(0).length : 0;
+        float[] values = new float[rows * dimensions];
+        for (int row = 0; row < rows; row++) {
+            double[] vector = vectors.get(row);
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Vectors must have same length");
+            }
+            double norm = 0.0;
+            for (double value : vector) {
+                norm += value * value;
+            }
+            double scale = norm > 0 ? 1.0 / Math.sqrt(norm) : 0.0;
+            int base = row * dimensions;
+            for (int i = 0; i < dimensions; i++) {
+                values[base + i] = (float) (vector[i] * scale);
+            }
+        }
+        return new EmbeddingMatrix(rows, dimensions, values);
+    }
+
+    public int rows() { return rows; }
+
+    public int dimensions() { return dimensions; }
+
+    /**
+     * Full cosine similarity matrix {@code out[i * other.rows() + j] = cos(this_i, other_j)}
+     */
+    public float[] cosine(EmbeddingMatrix other) {
+        checkDimensions(other);
+        float[] out = new float[rows * other.rows];
+        for (int rowTile = 0; rowTile < rows; rowTile += TILE) {
+            int rowEnd = Math.min(rows, rowTile + TILE);
+            for (int colTile = 0; colTile < other.rows; colTile += TILE) {
+                int colEnd = Math.min(other.rows, colTile + TILE);
+                for (int i = rowTile; i < rowEnd; i++) {
+                    VectorMath.dotMany(values, i * dimensions, other.values, colTile, colEnd, dimensions,
+                            out, i * other.rows + colTile);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * For every row of this matrix, its highest cosine similarity to any row of {@code other}
+     * (negative infinity when {@code other} is empty)
+     */
+    public double[] maxCosine(EmbeddingMatrix other) {
+        checkDimensions(other);
+        double[] best = new double[rows];
+        Arrays.fill(best, Double.NEGATIVE_INFINITY);
+        float[] tile = new float[TILE];
+        for (int rowTile = 0; rowTile < rows; rowTile += TILE) {
+            int rowEnd = Math.min(rows, rowTile + TILE);
+            for (int colTile = 0; colTile < other.rows; colTile += TILE) {
+                int colEnd = Math.min(other.rows, colTile + TILE);
+                for (int i = rowTile; i < rowEnd; i++) {
+                    VectorMath.dotMany(values, i * dimensions, other.values, colTile, colEnd, dimensions, tile, 0);
+                    double rowBest = best[i];
+                    for (int j = 0; j < colEnd - colTile; j++) {
+                        rowBest = Math.max(rowBest, tile[j]);
+                    }
+                    best[i] = rowBest;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void checkDimensions(EmbeddingMatrix other) {
+        if (rows > 0 && other.rows > 0 && dimensions != other.dimensions) {
+            throw new IllegalArgumentException("Vectors must have same length");
+        }
+    }
+}
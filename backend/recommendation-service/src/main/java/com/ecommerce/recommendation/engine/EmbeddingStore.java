@@ -0,0 +1,183 @@
+package com.ecommerce.recommendation.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, memory-mapped file of fixed-dimension float vectors keyed by a 128-bit
+ * content hash.
+ *
+ * The file is a 64-byte header (magic, version, dimensions, record count) followed by
+ * records of {@code [keyHigh, keyLow, dims floats]}. Records are mapped in fixed-size
+ * segments so the file can grow past the 2 GB limit of a single mapping. The record
+ * slot of a key is its dense index in an {@link IdIndex} over the high key half, which
+ * is rebuilt by scanning the records on open; the low half is verified on read so a
+ * 64-bit collision is a miss rather than a wrong vector.
+ */
+public final class EmbeddingStore implements Closeable {
+
+    private static final int MAGIC = 0x454D4231; // "EMB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final long SEGMENT_TARGET_BYTES = 256L << 20;
+
+    private final Path path;
+    private final int dimensions;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final IdIndex slots = new IdIndex();
+    private int count;
+
+    private EmbeddingStore(Path path, int dimensions, FileChannel channel, MappedByteBuffer header) {
+        this.path = path;
+        this.dimensions = dimensions;
+        this.recordBytes = 16 + 4 * dimensions;
+        this.recordsPerSegment = (int) Math.max(1, SEGMENT_TARGET_BYTES / recordBytes);
+        this.channel = channel;
+        this.header = header;
+    }
+
+    /**
+     * Open the store at {@code path}, creating it if missing. A file written with other
+     * dimensions or by another format version is discarded and started over.
+     */
+    public static EmbeddingStore open(Path path, int dimensions) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_BYTES;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (!fresh && (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != dimensions)) {
+            channel.truncate(HEADER_BYTES);
+            fresh = true;
+        }
+        if (fresh) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, dimensions);
+            header.putLong(COUNT_OFFSET, 0L);
+        }
+
+        EmbeddingStore store = new EmbeddingStore(path, dimensions, channel, header);
+        store.load((int) header.getLong(COUNT_OFFSET));
+        return store;
+    }
+
+    public int dimensions() { return dimensions; }
+
+    public synchronized int size() { return count; }
+
+    public Path path() { return path; }
+
+    /**
+     * Stored vector for the key, or null if absent
+     */
+    public synchronized float[] get(long keyHigh, long keyLow) {
+        int slot = slots.indexOf(keyHigh);
+        if (slot < 0 || slot >= count) {
+            return null;
+        }
+        MappedByteBuffer segment = segments.get(slot / recordsPerSegment);
+        int offset = (slot % recordsPerSegment) * recordBytes;
+        if (segment.getLong(offset) != keyHigh || segment.getLong(offset + 8) != keyLow) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = segment.getFloat(offset + 16 + 4 * i);
+        }
+        return vector;
+    }
+
+    /**
+     * Append the vector unless a record with the same high key half already exists
+     */
+    public synchronized void put(long keyHigh, long keyLow, float[] vector) {
+        if (vector.length != dimensions || slots.indexOf(keyHigh) >= 0) {
+            return;
+        }
+        int slot = count;
+        int segmentIndex = slot / recordsPerSegment;
+        try {
+            while (segments.size() <= segmentIndex) {
+                mapSegment(segments.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow embedding store " + path, e);
+        }
+
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        int offset = (slot % recordsPerSegment) * recordBytes;
+        segment.putLong(offset, keyHigh);
+        segment.putLong(offset + 8, keyLow);
+        for (int i = 0; i < dimensions; i++) {
+            segment.putFloat(offset + 16 + 4 * i, vector[i]);
+        }
+        // Publish the record only once its payload is in place
+        if (slots.getOrAdd(keyHigh) != slot) {
+            throw new IllegalStateException("Embedding store index out of sync with " + path);
+        }
+        count = slot + 1;
+        header.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Flush dirty pages to disk
+     */
+    public synchronized void force() {
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void load(int storedCount) throws IOException {
+        long available = (channel.size() - HEADER_BYTES) / recordBytes;
+        int records = (int) Math.min(storedCount, available);
+        int segmentsNeeded = (records + recordsPerSegment - 1) / recordsPerSegment;
+        for (int s = 0; s < segmentsNeeded; s++) {
+            mapSegment(s);
+        }
+        for (int slot = 0; slot < records; slot++) {
+            MappedByteBuffer segment = segments.get(slot / recordsPerSegment);
+            long keyHigh = segment.getLong((slot % recordsPerSegment) * recordBytes);
+            if (slots.getOrAdd(keyHigh) != slot) {
+                // Duplicate key from an unclean shutdown: keep the prefix before it
+                records = slot;
+                break;
+            }
+        }
+        count = records;
+        header.putLong(COUNT_OFFSET, count);
+    }
+
+    private void mapSegment(int index) throws IOException {
+        long start = HEADER_BYTES + (long) index * recordsPerSegment * recordBytes;
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                (long) recordsPerSegment * recordBytes);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segments.add(segment);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Full-precision vectors in one contiguous on-heap float array
+ */
+public final class HeapVectorStore implements VectorStore {
+
+    private final int dimensions;
+    private float[] values = new float[0];
+
+    public HeapVectorStore(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() { return dimensions; }
+
+    @Override
+    public void ensureCapacity(int slots) {
+        int capacity = values.length / Math.max(1, dimensions);
+        if (slots > capacity) {
+            values = Arrays.copyOf(values, Math.max(slots, capacity + (capacity >> 1)) * dimensions);
+        }
+    }
+
+    @Override
+    public void set(int slot, float[] vector) {
+        System.arraycopy(vector, 0, values, slot * dimensions, dimensions);
+    }
+
+    @Override
+    public float[] get(int slot) {
+        return Arrays.copyOfRange(values, slot * dimensions, (slot + 1) * dimensions);
+    }
+
+    @Override
+    public float dot(float[] query, int slot) {
+        return VectorMath.dot(query, 0, values, slot * dimensions, dimensions);
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        return VectorMath.dot(values, a * dimensions, values, b * dimensions, dimensions);
+    }
+}
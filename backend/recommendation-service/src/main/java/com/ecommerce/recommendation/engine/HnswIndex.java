@@ -0,0 +1,702 @@
+package com.ecommerce.recommendation.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over L2-normalized float
+ * vectors, ranked by cosine similarity.
+ *
+ * Every node lives on layer 0 and on each higher layer with probability 1/M. A search
+ * descends greedily through the sparse upper layers and then runs a best-first search of
+ * width {@code ef} on layer 0, so lookups touch O(log n) nodes instead of the whole set.
+ * Neighbors are picked with the diversity heuristic, keeping at most M links per node on
+ * upper layers and 2M on layer 0.
+ *
+ * Vectors live in a {@link VectorStore}, on heap at full precision by default. With a
+ * quantized store the graph is traversed on the compressed vectors and, if the store keeps
+ * full precision too, the layer-0 results are re-ranked exactly before the top k are cut.
+ *
+ * Vectors are keyed by external (product) id. Re-inserting an id replaces its vector and
+ * re-links its node; removal tombstones the node, which keeps routing searches but is
+ * never returned. Writers are serialized and exclude readers, searches run concurrently.
+ */
+public final class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int VERSION = 1;
+
+    private final int dimensions;
+    private final VectorStore store;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private final IdIndex ids = new IdIndex();
+    private int[] levels;
+    private boolean[] deleted;
+    // Layer 0 links, node-major: [count, neighbor...] in blocks of maxM0 + 1
+    private int[] level0Links;
+    // Layers 1..level per node: [count, neighbor...] in blocks of m + 1, null for layer-0-only nodes
+    private int[][] upperLinks;
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        this(new HeapVectorStore(dimensions), m, efConstruction, seed);
+    }
+
+    public HnswIndex(VectorStore store, int m, int efConstruction, long seed) {
+        this.dimensions = store.dimensions();
+        this.store = store;
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(efConstruction, this.m);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        this.random = new Random(seed);
+        allocate(1024);
+    }
+
+    public int dimensions() { return dimensions; }
+
+    /**
+     * Number of live (not removed) vectors
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            int node = ids.indexOf(id);
+            return node >= 0 && node < size && !deleted[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normalized vector stored for the id, or null if absent or removed
+     */
+    public float[] vector(long id) {
+        lock.readLock().lock();
+        try {
+            int node = ids.indexOf(id);
+            if (node < 0 || node >= size || deleted[node]) {
+                return null;
+            }
+            return store.get(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert the vector for the id, or replace it if the id is already indexed
+     */
+    public void upsert(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            int node = ids.indexOf(id);
+            if (node >= 0 && node < size) {
+                store.set(node, normalized);
+                if (deleted[node]) {
+                    deleted[node] = false;
+                    deletedCount--;
+                }
+                relink(node, normalized);
+                return;
+            }
+
+            node = ids.getOrAdd(id);
+            if (node != size) {
+                throw new IllegalStateException("HNSW id index out of sync");
+            }
+            ensureCapacity(size + 1);
+            store.set(node, normalized);
+            int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+            levels[node] = level;
+            upperLinks[node] = level > 0 ? new int[level * (m + 1)] : null;
+            size++;
+            connect(node, level, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstone the id; returns false if it was not indexed
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int node = ids.indexOf(id);
+            if (node < 0 || node >= size || deleted[node]) {
+                return false;
+            }
+            deleted[node] = true;
+            deletedCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code k} most similar live vectors to the query, best first
+     *
+     * @param ef        search width on layer 0; larger is slower with higher recall
+     * @param excludeId id never returned (e.g. the query product itself)
+     */
+    public Neighbors search(float[] query, int k, int ef, long excludeId) {
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return Neighbors.EMPTY;
+            }
+            int exclude = ids.indexOf(excludeId);
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = greedy(normalized, current, level);
+            }
+            Scratch local = scratch.get();
+            int found = searchLayer(normalized, current, Math.max(ef, k), 0, true, exclude, local);
+            if (store.reranks()) {
+                for (int i = 0; i < found; i++) {
+                    local.resultScores[i] = store.exactDot(normalized, local.resultNodes[i]);
+                }
+                sortDescending(local.resultNodes, local.resultScores, found);
+            }
+
+            int count = Math.min(k, found);
+            long[] resultIds = new long[count];
+            float[] similarities = new float[count];
+            for (int i = 0; i < count; i++) {
+                resultIds[i] = ids.idAt(local.resultNodes[i]);
+                similarities[i] = local.resultScores[i];
+            }
+            return new Neighbors(resultIds, similarities, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the graph to {@code path} atomically (via a temporary file in the same directory)
+     */
+    public void save(Path path) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimensions);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(size);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < size; node++) {
+                    out.writeLong(ids.idAt(node));
+                    out.writeInt(levels[node]);
+                    out.writeBoolean(deleted[node]);
+                    for (float value : store.get(node)) {
+                        out.writeFloat(value);
+                    }
+                    int linkBase = node * (maxM0 + 1);
+                    int count = level0Links[linkBase];
+                    out.writeInt(count);
+                    for (int i = 1; i <= count; i++) {
+                        out.writeInt(level0Links[linkBase + i]);
+                    }
+                    int[] upper = upperLinks[node];
+                    if (upper != null) {
+                        for (int value : upper) {
+                            out.writeInt(value);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read a graph written by {@link #save}; fails if it was built with other dimensions or M
+     */
+    public static HnswIndex load(Path path, int dimensions, int m, int efConstruction, long seed) throws IOException {
+        return load(path, new HeapVectorStore(dimensions), m, efConstruction, seed);
+    }
+
+    /**
+     * Read a graph written by {@link #save} into the given (empty) vector store
+     */
+    public static HnswIndex load(Path path, VectorStore store, int m, int efConstruction, long seed) throws IOException {
+        int dimensions = store.dimensions();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an HNSW index file: " + path);
+            }
+            int storedDimensions = in.readInt();
+            int storedM = in.readInt();
+            in.readInt(); // efConstruction at build time; the configured value applies from now on
+            HnswIndex index = new HnswIndex(store, m, efConstruction, seed);
+            if (storedDimensions != dimensions || storedM != index.m) {
+                throw new IOException("HNSW index " + path + " was built with dims=" + storedDimensions
+                        + ", M=" + storedM);
+            }
+            int size = in.readInt();
+            index.ensureCapacity(size);
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            for (int node = 0; node < size; node++) {
+                if (index.ids.getOrAdd(in.readLong()) != node) {
+                    throw new IOException("Duplicate id in HNSW index file: " + path);
+                }
+                int level = in.readInt();
+                index.levels[node] = level;
+                index.deleted[node] = in.readBoolean();
+                if (index.deleted[node]) {
+                    index.deletedCount++;
+                }
+                float[] vector = new float[dimensions];
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = in.readFloat();
+                }
+                store.set(node, vector);
+                int linkBase = node * (index.maxM0 + 1);
+                int count = in.readInt();
+                index.level0Links[linkBase] = count;
+                for (int i = 1; i <= count; i++) {
+                    index.level0Links[linkBase + i] = in.readInt();
+                }
+                if (level > 0) {
+                    int[] upper = new int[level * (index.m + 1)];
+                    for (int i = 0; i < upper.length; i++) {
+                        upper[i] = in.readInt();
+                    }
+                    index.upperLinks[node] = upper;
+                }
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    private void connect(int node, int level, float[] query) {
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(query, current, l);
+        }
+        Scratch local = scratch.get();
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            int found = searchLayer(query, current, efConstruction, l, false, node, local);
+            if (found == 0) {
+                continue;
+            }
+            current = local.resultNodes[0];
+            int[] selected = selectNeighbors(local.resultNodes, local.resultScores, found, m);
+            setLinks(node, l, selected, selected.length);
+            for (int neighbor : selected) {
+                addLink(neighbor, node, l);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Recompute the links of a node whose vector changed
+     */
+    private void relink(int node, float[] vector) {
+        for (int l = 0; l <= levels[node]; l++) {
+            setLinks(node, l, new int[0], 0);
+        }
+        if (size == 1) {
+            return;
+        }
+        if (entryPoint == node) {
+            // Route from any other node on the top layer, or fall back to node 0/1
+            entryPoint = node == 0 ? 1 : 0;
+            int topLevel = levels[node];
+            for (int other = 0; other < size; other++) {
+                if (other != node && levels[other] >= levels[entryPoint]) {
+                    entryPoint = other;
+                    if (levels[other] >= topLevel) {
+                        break;
+                    }
+                }
+            }
+            maxLevel = levels[entryPoint];
+        }
+        connect(node, levels[node], vector);
+    }
+
+    private int greedy(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = links(current, level);
+            int base = linkBase(current, level);
+            int count = links[base];
+            for (int i = 1; i <= count; i++) {
+                int candidate = links[base + i];
+                float score = similarity(query, candidate);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Leaves up to {@code ef} results in
+     * {@code scratch.resultNodes/resultScores} sorted by descending similarity.
+     */
+    private int searchLayer(float[] query, int entry, int ef, int level, boolean liveOnly, int exclude,
+                            Scratch scratch) {
+        scratch.reset(size);
+        NodeHeap candidates = scratch.candidates;  // max-similarity first (scores negated)
+        NodeHeap results = scratch.results;        // worst kept result first
+
+        scratch.visit(entry);
+        float entryScore = similarity(query, entry);
+        candidates.push(entry, -entryScore);
+        if (accept(entry, liveOnly, exclude)) {
+            results.push(entry, entryScore);
+        }
+
+        while (candidates.size() > 0) {
+            int current = candidates.topNode();
+            float currentScore = -candidates.topScore();
+            if (results.size() >= ef && currentScore < results.topScore()) {
+                break;
+            }
+            candidates.pop();
+
+            int[] links = links(current, level);
+            int base = linkBase(current, level);
+            int count = links[base];
+            for (int i = 1; i <= count; i++) {
+                int neighbor = links[base + i];
+                if (!scratch.visit(neighbor)) {
+                    continue;
+                }
+                float score = similarity(query, neighbor);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbor, -score);
+                    if (accept(neighbor, liveOnly, exclude)) {
+                        results.push(neighbor, score);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+
+        int found = results.size();
+        scratch.ensureResultCapacity(found);
+        for (int i = found - 1; i >= 0; i--) {
+            scratch.resultNodes[i] = results.topNode();
+            scratch.resultScores[i] = results.topScore();
+            results.pop();
+        }
+        return found;
+    }
+
+    private boolean accept(int node, boolean liveOnly, int exclude) {
+        return node != exclude && !(liveOnly && deleted[node]);
+    }
+
+    /**
+     * Diversity heuristic: keep a candidate only if it is closer to the query than to every
+     * neighbor already kept, then top up with the best pruned candidates
+     */
+    private int[] selectNeighbors(int[] nodes, float[] scores, int count, int limit) {
+        int[] selected = new int[Math.min(limit, count)];
+        boolean[] taken = new boolean[count];
+        int kept = 0;
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < kept; j++) {
+                if (similarity(nodes[i], selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[kept++] = nodes[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            if (!taken[i]) {
+                selected[kept++] = nodes[i];
+            }
+        }
+        return selected;
+    }
+
+    private void addLink(int node, int neighbor, int level) {
+        int[] links = links(node, level);
+        int base = linkBase(node, level);
+        int capacity = level == 0 ? maxM0 : m;
+        int count = links[base];
+        for (int i = 1; i <= count; i++) {
+            if (links[base + i] == neighbor) {
+                return;
+            }
+        }
+        if (count < capacity) {
+            links[base + count + 1] = neighbor;
+            links[base] = count + 1;
+            return;
+        }
+
+        // Full: re-select among the existing links plus the new one
+        int[] candidates = new int[count + 1];
+        float[] scores = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = links[base + i + 1];
+        }
+        candidates[count] = neighbor;
+        for (int i = 0; i <= count; i++) {
+            scores[i] = similarity(node, candidates[i]);
+        }
+        sortDescending(candidates, scores, candidates.length);
+        int[] selected = selectNeighbors(candidates, scores, count + 1, capacity);
+        setLinks(node, level, selected, selected.length);
+    }
+
+    private void setLinks(int node, int level, int[] neighbors, int count) {
+        int[] links = links(node, level);
+        int base = linkBase(node, level);
+        links[base] = count;
+        System.arraycopy(neighbors, 0, links, base + 1, count);
+    }
+
+    private int[] links(int node, int level) {
+        return level == 0 ? level0Links : upperLinks[node];
+    }
+
+    private int linkBase(int node, int level) {
+        return level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+    }
+
+    private float similarity(float[] query, int node) {
+        return store.dot(query, node);
+    }
+
+    private float similarity(int a, int b) {
+        return store.dot(a, b);
+    }
+
+    private static float[] normalize(float[] vector) {
+        return VectorMath.normalize(vector.clone());
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores, int length) {
+        // Insertion sort: link lists are at most 2M + 1 long, re-ranked results at most ef
+        for (int i = 1; i < length; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    private void allocate(int capacity) {
+        store.ensureCapacity(capacity);
+        levels = new int[capacity];
+        deleted = new boolean[capacity];
+        level0Links = new int[capacity * (maxM0 + 1)];
+        upperLinks = new int[capacity][];
+    }
+
+    private void ensureCapacity(int needed) {
+        int capacity = levels.length;
+        if (needed <= capacity) {
+            return;
+        }
+        int grown = Math.max(needed, capacity + (capacity >> 1));
+        store.ensureCapacity(grown);
+        levels = Arrays.copyOf(levels, grown);
+        deleted = Arrays.copyOf(deleted, grown);
+        level0Links = Arrays.copyOf(level0Links, grown * (maxM0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, grown);
+    }
+
+    /**
+     * Search result: external ids with cosine similarity, best first
+     */
+    public static final class Neighbors {
+        public static final Neighbors EMPTY = new Neighbors(new long[0], new float[0], 0);
+
+        private final long[] ids;
+        private final float[] similarities;
+        private final int size;
+
+        Neighbors(long[] ids, float[] similarities, int size) {
+            this.ids = ids;
+            this.similarities = similarities;
+            this.size = size;
+        }
+
+        public int size() { return size; }
+
+        public long idAt(int i) { return ids[i]; }
+
+        public float similarityAt(int i) { return similarities[i]; }
+    }
+
+    /**
+     * Binary min-heap of (node, score)
+     */
+    private static final class NodeHeap {
+        private int[] nodes = new int[64];
+        private float[] scores = new float[64];
+        private int size;
+
+        int size() { return size; }
+
+        int topNode() { return nodes[0]; }
+
+        float topScore() { return scores[0]; }
+
+        void clear() { size = 0; }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        void pop() {
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+                if (lastScore <= scores[smallest]) {
+                    break;
+                }
+                nodes[i] = nodes[smallest];
+                scores[i] = scores[smallest];
+                i = smallest;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+        }
+    }
+
+    /**
+     * Per-thread search state; visited marks use a generation counter so they are never cleared
+     */
+    private static final class Scratch {
+        final NodeHeap candidates = new NodeHeap();
+        final NodeHeap results = new NodeHeap();
+        int[] resultNodes = new int[64];
+        float[] resultScores = new float[64];
+        int[] visited = new int[0];
+        int generation;
+
+        void reset(int size) {
+            candidates.clear();
+            results.clear();
+            if (visited.length < size) {
+                visited = new int[Math.max(size, visited.length + (visited.length >> 1))];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Mark the node visited; false if it already was in this search
+         */
+        boolean visit(int node) {
+            if (visited[node] == generation) {
+                return false;
+            }
+            visited[node] = generation;
+            return true;
+        }
+
+        void ensureResultCapacity(int count) {
+            if (resultNodes.length < count) {
+                resultNodes = new int[count];
+                resultScores = new float[count];
+            }
+        }
+    }
+}
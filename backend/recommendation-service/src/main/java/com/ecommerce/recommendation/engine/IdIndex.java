@@ -0,0 +1,147 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Append-only dictionary mapping external ids (user or product ids) to dense
+ * int indices, so interaction structures can be addressed with primitive arrays.
+ * Indices are never reused, which keeps them stable across matrix rebuilds.
+ * Lookups are lock-free under an optimistic read stamp.
+ */
+public final class IdIndex {
+
+    private final StampedLock lock = new StampedLock();
+
+    // Interleaved open-addressing table: [key, index + 1] pairs, 0 marks an empty bucket
+    private long[] table;
+    private long[] ids;
+    private int size;
+
+    public IdIndex() {
+        this(1024);
+    }
+
+    public IdIndex(int expectedSize) {
+        int buckets = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.table = new long[buckets << 1];
+        this.ids = new long[Math.max(16, expectedSize)];
+    }
+
+    /**
+     * Dense index for the given id, or -1 if the id has never been seen
+     */
+    public int indexOf(long id) {
+        long stamp = lock.tryOptimisticRead();
+        int index = find(table, id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                index = find(table, id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Dense index for the given id, assigning the next free index on first sight
+     */
+    public int getOrAdd(long id) {
+        int existing = indexOf(id);
+        if (existing >= 0) {
+            return existing;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int index = find(table, id);
+            if (index >= 0) {
+                return index;
+            }
+            if ((size + 1) * 4L > (table.length >> 1) * 3L) {
+                rehash(table.length);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            index = size++;
+            ids[index] = id;
+            insert(table, id, index);
+            return index;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * External id stored at the given dense index
+     */
+    public long idAt(int index) {
+        long stamp = lock.tryOptimisticRead();
+        long[] snapshot = ids;
+        long id = index < snapshot.length ? snapshot[index] : 0L;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = ids[index];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return id;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
+    }
+
+    private void rehash(int newLength) {
+        long[] grown = new long[newLength << 1];
+        for (int i = 0; i < size; i++) {
+            insert(grown, ids[i], i);
+        }
+        table = grown;
+    }
+
+    private static int find(long[] table, long id) {
+        int mask = (table.length >> 1) - 1;
+        int bucket = mix(id) & mask;
+        while (true) {
+            long slot = table[(bucket << 1) + 1];
+            if (slot == 0) {
+                return -1;
+            }
+            if (table[bucket << 1] == id) {
+                return (int) slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    private static void insert(long[] table, long id, int index) {
+        int mask = (table.length >> 1) - 1;
+        int bucket = mix(id) & mask;
+        while (table[(bucket << 1) + 1] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        table[bucket << 1] = id;
+        table[(bucket << 1) + 1] = index + 1L;
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
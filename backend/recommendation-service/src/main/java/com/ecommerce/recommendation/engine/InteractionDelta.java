@@ -0,0 +1,162 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write overlay of interactions recorded after an {@link InteractionMatrix}
+ * snapshot was built. Rows are small immutable arrays held in tables indexed by dense
+ * user and product index, so lookups on the scoring path neither hash nor box. Writers
+ * are serialized by the owning matrix and republish a table after every store, so
+ * readers never lock.
+ */
+final class InteractionDelta {
+
+    static final Row EMPTY_ROW = new Row(new int[0], new float[0], new boolean[0], new boolean[0], 0);
+    static final int[] EMPTY_COLUMN = new int[0];
+
+    private volatile Row[] userRows = new Row[0];
+    private volatile int[][] productColumns = new int[0][];
+    private volatile int size;
+
+    Row row(int user) {
+        Row[] rows = userRows;
+        Row row = user < rows.length ? rows[user] : null;
+        return row != null ? row : EMPTY_ROW;
+    }
+
+    int[] column(int product) {
+        int[][] columns = productColumns;
+        int[] column = product < columns.length ? columns[product] : null;
+        return column != null ? column : EMPTY_COLUMN;
+    }
+
+    boolean hasUser(int user) {
+        Row[] rows = userRows;
+        return user < rows.length && rows[user] != null;
+    }
+
+    boolean hasProduct(int product) {
+        int[][] columns = productColumns;
+        return product < columns.length && columns[product] != null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Visit every (user, product) pair absent from the snapshot
+     */
+    void forEachFreshPair(InteractionMatrix.PairVisitor visitor) {
+        Row[] rows = userRows;
+        for (int user = 0; user < rows.length; user++) {
+            Row row = rows[user];
+            if (row == null) {
+                continue;
+            }
+            for (int k = 0; k < row.products.length; k++) {
+                if (row.fresh[k]) {
+                    visitor.visit(user, row.products[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge an interaction into the user's delta row and, for a pair unseen in the
+     * snapshot, into the product's delta column.
+     *
+     * @param fresh whether the pair is absent from the snapshot
+     */
+    void add(int user, int product, float weight, boolean purchase, boolean fresh) {
+        Row current = row(user);
+        int position = Arrays.binarySearch(current.products, 0, current.products.length, product);
+        if (position >= 0) {
+            setRow(user, current.merge(position, weight, purchase));
+            return;
+        }
+
+        if (current == EMPTY_ROW) {
+            size++;
+        }
+        setRow(user, current.insert(-position - 1, product, weight, purchase, fresh));
+        if (fresh) {
+            int[] column = column(product);
+            int at = -Arrays.binarySearch(column, user) - 1;
+            int[] grown = new int[column.length + 1];
+            System.arraycopy(column, 0, grown, 0, at);
+            grown[at] = user;
+            System.arraycopy(column, at, grown, at + 1, column.length - at);
+            setColumn(product, grown);
+        }
+    }
+
+    private void setRow(int user, Row row) {
+        Row[] rows = userRows;
+        if (user >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(user + 1, rows.length + (rows.length >> 1)));
+        }
+        rows[user] = row;
+        // Volatile write publishes the element store to readers of the table
+        userRows = rows;
+    }
+
+    private void setColumn(int product, int[] column) {
+        int[][] columns = productColumns;
+        if (product >= columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(product + 1, columns.length + (columns.length >> 1)));
+        }
+        columns[product] = column;
+        productColumns = columns;
+    }
+
+    /**
+     * Immutable delta row: products sorted by index with their accumulated weight,
+     * purchase flag and whether the pair is new relative to the snapshot
+     */
+    static final class Row {
+        final int[] products;
+        final float[] weights;
+        final boolean[] purchases;
+        final boolean[] fresh;
+        final int freshCount;
+
+        Row(int[] products, float[] weights, boolean[] purchases, boolean[] fresh, int freshCount) {
+            this.products = products;
+            this.weights = weights;
+            this.purchases = purchases;
+            this.fresh = fresh;
+            this.freshCount = freshCount;
+        }
+
+        Row merge(int position, float weight, boolean purchase) {
+            float[] mergedWeights = weights.clone();
+            boolean[] mergedPurchases = purchases.clone();
+            mergedWeights[position] += weight;
+            mergedPurchases[position] |= purchase;
+            return new Row(products, mergedWeights, mergedPurchases, fresh, freshCount);
+        }
+
+        Row insert(int at, int product, float weight, boolean purchase, boolean isFresh) {
+            int length = products.length + 1;
+            int[] newProducts = new int[length];
+            float[] newWeights = new float[length];
+            boolean[] newPurchases = new boolean[length];
+            boolean[] newFresh = new boolean[length];
+            copyAround(products, newProducts, at, products.length);
+            copyAround(weights, newWeights, at, products.length);
+            copyAround(purchases, newPurchases, at, products.length);
+            copyAround(fresh, newFresh, at, products.length);
+            newProducts[at] = product;
+            newWeights[at] = weight;
+            newPurchases[at] = purchase;
+            newFresh[at] = isFresh;
+            return new Row(newProducts, newWeights, newPurchases, newFresh, freshCount + (isFresh ? 1 : 0));
+        }
+
+        private static void copyAround(Object source, Object target, int at, int length) {
+            System.arraycopy(source, 0, target, 0, at);
+            System.arraycopy(source, at, target, at + 1, length - at);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Sparse user x product interaction matrix over dense int indices. Rows are held in
+ * CSR layout (with weights and purchase flags) and, together with columns, as
+ * compressed bitmap posting lists for set operations.
+ *
+ * Repeated interactions between the same user and product are collapsed into a single
+ * entry whose weight is the sum of the interaction weights. Rows and columns are sorted
+ * by index; co-occurrence counts are bitmap intersection cardinalities.
+ *
+ * The CSR arrays and postings are an immutable snapshot. Interactions recorded after the snapshot
+ * was built go to a small copy-on-write delta via {@link #record}, and the live accessors
+ * ({@link #forEachProduct}, {@link #forEachUser}, degrees, {@link #coUsers}) see both.
+ * The raw snapshot accessors ({@link #userStart}, {@link #productAt}, postings) do not.
+ */
+public final class InteractionMatrix {
+
+    /**
+     * Receives one (product, weight, purchased) entry of a user's live row
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(int product, float weight, boolean purchased);
+    }
+
+    /**
+     * Receives one (user, product) pair
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(int user, int product);
+    }
+
+    private final IdIndex userIndex;
+    private final IdIndex productIndex;
+    private final int numUsers;
+    private final int numProducts;
+
+    // CSR: user -> products
+    private final int[] userOffsets;
+    private final int[] userProducts;
+    private final float[] userWeights;
+    private final boolean[] userPurchases;
+
+    // Posting lists: product -> users, user -> products
+    private final CompressedBitmap[] productPostings;
+    private final CompressedBitmap[] userPostings;
+
+    private final InteractionDelta delta = new InteractionDelta();
+    private final long builtAt;
+
+    private InteractionMatrix(IdIndex userIndex, IdIndex productIndex, int numUsers, int numProducts,
+                              int[] userOffsets, int[] userProducts, float[] userWeights, boolean[] userPurchases,
+                              CompressedBitmap[] productPostings, CompressedBitmap[] userPostings) {
+        this.userIndex = userIndex;
+        this.productIndex = productIndex;
+        this.numUsers = numUsers;
+        this.numProducts = numProducts;
+        this.userOffsets = userOffsets;
+        this.userProducts = userProducts;
+        this.userWeights = userWeights;
+        this.userPurchases = userPurchases;
+        this.productPostings = productPostings;
+        this.userPostings = userPostings;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    public static Builder builder(IdIndex userIndex, IdIndex productIndex) {
+        return new Builder(userIndex, productIndex);
+    }
+
+    // Dimensions
+
+    public int numUsers() { return numUsers; }
+
+    public int numProducts() { return numProducts; }
+
+    public int nonZeros() { return userOffsets[numUsers]; }
+
+    public long builtAt() { return builtAt; }
+
+    // Id mapping
+
+    /**
+     * Dense user index, or -1 if the user has no interactions in this matrix
+     */
+    public int userIndex(long userId) {
+        int index = userIndex.indexOf(userId);
+        return index >= 0 && (index < numUsers || delta.hasUser(index)) ? index : -1;
+    }
+
+    /**
+     * Dense product index, or -1 if the product has no interactions in this matrix
+     */
+    public int productIndex(long productId) {
+        int index = productIndex.indexOf(productId);
+        return index >= 0 && (index < numProducts || delta.hasProduct(index)) ? index : -1;
+    }
+
+    public long userId(int user) { return userIndex.idAt(user); }
+
+    public long productId(int product) { return productIndex.idAt(product); }
+
+    // Live updates
+
+    /**
+     * Record an interaction that arrived after the snapshot was built.
+     * Writers are serialized; readers keep going against the copy-on-write delta.
+     *
+     * @return true if this is the first interaction between the user and the product
+     */
+    public synchronized boolean record(long userId, long productId, float weight, boolean purchase) {
+        int user = userIndex.getOrAdd(userId);
+        int product = productIndex.getOrAdd(productId);
+        boolean inSnapshot = user < numUsers && userPostings[user].contains(product);
+        boolean fresh = !inSnapshot && Arrays.binarySearch(delta.row(user).products, product) < 0;
+        delta.add(user, product, weight, purchase, !inSnapshot);
+        return fresh;
+    }
+
+    /**
+     * Number of users touched by interactions recorded since the snapshot
+     */
+    public int deltaUsers() { return delta.size(); }
+
+    /**
+     * Visit every (user, product) pair first recorded after the snapshot was built
+     */
+    public void forEachRecordedPair(PairVisitor visitor) {
+        delta.forEachFreshPair(visitor);
+    }
+
+    // Live access (snapshot + delta)
+
+    /**
+     * Visit every distinct product the user interacted with. Snapshot entries that were
+     * interacted with again after the snapshot are visited once with merged weight and flag.
+     */
+    public void forEachProduct(int user, EntryVisitor visitor) {
+        InteractionDelta.Row row = delta.row(user);
+        boolean hasDelta = row.products.length > 0;
+        for (int k = userStart(user); k < userEnd(user); k++) {
+            int product = userProducts[k];
+            float weight = userWeights[k];
+            boolean purchased = userPurchases[k];
+            if (hasDelta) {
+                int d = Arrays.binarySearch(row.products, product);
+                if (d >= 0) {
+                    weight += row.weights[d];
+                    purchased |= row.purchases[d];
+                }
+            }
+            visitor.visit(product, weight, purchased);
+        }
+        for (int k = 0; k < row.products.length; k++) {
+            if (row.fresh[k]) {
+                visitor.visit(row.products[k], row.weights[k], row.purchases[k]);
+            }
+        }
+    }
+
+    /**
+     * Visit every user who interacted with the product
+     */
+    public void forEachUser(int product, IntConsumer visitor) {
+        snapshotUsers(product).forEach(visitor);
+        for (int user : delta.column(product)) {
+            visitor.accept(user);
+        }
+    }
+
+    /**
+     * Whether the user purchased the product
+     */
+    public boolean hasPurchased(int user, int product) {
+        if (user < numUsers) {
+            int k = Arrays.binarySearch(userProducts, userOffsets[user], userOffsets[user + 1], product);
+            if (k >= 0 && userPurchases[k]) {
+                return true;
+            }
+        }
+        InteractionDelta.Row row = delta.row(user);
+        int k = Arrays.binarySearch(row.products, product);
+        return k >= 0 && row.purchases[k];
+    }
+
+    // CSR access (snapshot only)
+
+    public int userStart(int user) { return user < numUsers ? userOffsets[user] : 0; }
+
+    public int userEnd(int user) { return user < numUsers ? userOffsets[user + 1] : 0; }
+
+    public int userDegree(int user) { return userEnd(user) - userStart(user) + delta.row(user).freshCount; }
+
+    public int productAt(int entry) { return userProducts[entry]; }
+
+    public float weightAt(int entry) { return userWeights[entry]; }
+
+    public boolean purchasedAt(int entry) { return userPurchases[entry]; }
+
+    // Posting lists (snapshot only)
+
+    /**
+     * Users who interacted with the product in the snapshot
+     */
+    public CompressedBitmap snapshotUsers(int product) {
+        return product < numProducts ? productPostings[product] : CompressedBitmap.EMPTY;
+    }
+
+    /**
+     * Products the user interacted with in the snapshot
+     */
+    public CompressedBitmap snapshotProducts(int user) {
+        return user < numUsers ? userPostings[user] : CompressedBitmap.EMPTY;
+    }
+
+    /**
+     * Live number of users who interacted with the product
+     */
+    public int productDegree(int product) {
+        return snapshotUsers(product).cardinality() + delta.column(product).length;
+    }
+
+    /**
+     * Snapshot-only number of users who interacted with the product
+     */
+    public int snapshotProductDegree(int product) {
+        return snapshotUsers(product).cardinality();
+    }
+
+    /**
+     * Whether the user has any interaction with the product
+     */
+    public boolean hasInteraction(int user, int product) {
+        return snapshotProducts(user).contains(product)
+                || Arrays.binarySearch(delta.row(user).products, product) >= 0;
+    }
+
+    /**
+     * Live number of users who interacted with both products
+     */
+    public int coUsers(int product1, int product2) {
+        int common = snapshotUsers(product1).andCardinality(snapshotUsers(product2));
+        // Delta users of one product are disjoint from its snapshot users, so each pair is counted once
+        for (int user : delta.column(product1)) {
+            if (hasInteraction(user, product2)) {
+                common++;
+            }
+        }
+        for (int user : delta.column(product2)) {
+            if (snapshotProducts(user).contains(product1)) {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Live Jaccard similarity between the user sets of two products: intersection / union
+     */
+    public double jaccard(int product1, int product2) {
+        int common = coUsers(product1, product2);
+        int union = productDegree(product1) + productDegree(product2) - common;
+        return union == 0 ? 0.0 : (double) common / union;
+    }
+
+    /**
+     * Accumulates raw interactions and compacts them into an immutable matrix
+     */
+    public static final class Builder {
+
+        private final IdIndex userIndex;
+        private final IdIndex productIndex;
+
+        private int[] users = new int[1024];
+        private int[] products = new int[1024];
+        private float[] weights = new float[1024];
+        private boolean[] purchases = new boolean[1024];
+        private int size;
+
+        private Builder(IdIndex userIndex, IdIndex productIndex) {
+            this.userIndex = userIndex;
+            this.productIndex = productIndex;
+        }
+
+        public Builder add(long userId, long productId, float weight, boolean purchase) {
+            if (size == users.length) {
+                int capacity = size * 2;
+                users = Arrays.copyOf(users, capacity);
+                products = Arrays.copyOf(products, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                purchases = Arrays.copyOf(purchases, capacity);
+            }
+            users[size] = userIndex.getOrAdd(userId);
+            products[size] = productIndex.getOrAdd(productId);
+            weights[size] = weight;
+            purchases[size] = purchase;
+            size++;
+            return this;
+        }
+
+        public InteractionMatrix build() {
+            int numUsers = userIndex.size();
+            int numProducts = productIndex.size();
+
+            // Bucket raw entries by user (counting sort)
+            int[] rowStarts = new int[numUsers + 1];
+            for (int i = 0; i < size; i++) {
+                rowStarts[users[i] + 1]++;
+            }
+            for (int u = 0; u < numUsers; u++) {
+                rowStarts[u + 1] += rowStarts[u];
+            }
+            int[] cursor = Arrays.copyOf(rowStarts, numUsers);
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[cursor[users[i]]++] = i;
+            }
+
+            // Sort each row by product and collapse duplicate (user, product) pairs
+            int[] userOffsets = new int[numUsers + 1];
+            int[] userProducts = new int[size];
+            float[] userWeights = new float[size];
+            boolean[] userPurchases = new boolean[size];
+            long[] scratch = new long[0];
+            int nnz = 0;
+            for (int u = 0; u < numUsers; u++) {
+                int start = rowStarts[u];
+                int length = rowStarts[u + 1] - start;
+                if (scratch.length < length) {
+                    scratch = new long[Math.max(length, scratch.length * 2)];
+                }
+                for (int k = 0; k < length; k++) {
+                    int raw = order[start + k];
+                    scratch[k] = ((long) products[raw] << 32) | raw;
+                }
+                Arrays.sort(scratch, 0, length);
+
+                int previous = -1;
+                for (int k = 0; k < length; k++) {
+                    int product = (int) (scratch[k] >>> 32);
+                    int raw = (int) scratch[k];
+                    if (product == previous) {
+                        userWeights[nnz - 1] += weights[raw];
+                        userPurchases[nnz - 1] |= purchases[raw];
+                    } else {
+                        userProducts[nnz] = product;
+                        userWeights[nnz] = weights[raw];
+                        userPurchases[nnz] = purchases[raw];
+                        nnz++;
+                        previous = product;
+                    }
+                }
+                userOffsets[u + 1] = nnz;
+            }
+            userProducts = Arrays.copyOf(userProducts, nnz);
+            userWeights = Arrays.copyOf(userWeights, nnz);
+            userPurchases = Arrays.copyOf(userPurchases, nnz);
+
+            // Transpose into columns; walking users in order keeps every column sorted
+            int[] columnOffsets = new int[numProducts + 1];
+            for (int k = 0; k < nnz; k++) {
+                columnOffsets[userProducts[k] + 1]++;
+            }
+            for (int p = 0; p < numProducts; p++) {
+                columnOffsets[p + 1] += columnOffsets[p];
+            }
+            int[] columnCursor = Arrays.copyOf(columnOffsets, numProducts);
+            int[] columnUsers = new int[nnz];
+            for (int u = 0; u < numUsers; u++) {
+                for (int k = userOffsets[u]; k < userOffsets[u + 1]; k++) {
+                    columnUsers[columnCursor[userProducts[k]]++] = u;
+                }
+            }
+
+            CompressedBitmap[] productPostings = new CompressedBitmap[numProducts];
+            for (int p = 0; p < numProducts; p++) {
+                productPostings[p] = CompressedBitmap.of(columnUsers, columnOffsets[p], columnOffsets[p + 1]);
+            }
+            CompressedBitmap[] userPostings = new CompressedBitmap[numUsers];
+            for (int u = 0; u < numUsers; u++) {
+                userPostings[u] = CompressedBitmap.of(userProducts, userOffsets[u], userOffsets[u + 1]);
+            }
+
+            return new InteractionMatrix(userIndex, productIndex, numUsers, numProducts,
+                    userOffsets, userProducts, userWeights, userPurchases, productPostings, userPostings);
+        }
+    }
+}
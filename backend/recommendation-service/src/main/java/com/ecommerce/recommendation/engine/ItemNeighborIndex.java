@@ -0,0 +1,270 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed top-K item-item neighbor lists with Jaccard similarity scores.
+ *
+ * Row p holds the K products whose user sets overlap most with product p, sorted by
+ * descending score. Item-based collaborative filtering then becomes a merge of the
+ * K-length rows of the products a user liked instead of per-pair similarity queries.
+ *
+ * Rows are immutable and replaced one at a time, so {@link #update} can adjust the rows
+ * touched by a new interaction while readers keep scanning without locks.
+ */
+public final class ItemNeighborIndex {
+
+    public static final Row EMPTY_ROW = new Row(new int[0], new float[0]);
+
+    private final int neighborhoodSize;
+    private final long builtAt;
+    private volatile Row[] rows;
+
+    private ItemNeighborIndex(int neighborhoodSize, Row[] rows) {
+        this.neighborhoodSize = neighborhoodSize;
+        this.rows = rows;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Build the full index from the matrix snapshot, computing product rows in parallel
+     */
+    public static ItemNeighborIndex build(InteractionMatrix matrix, int neighborhoodSize) {
+        int numProducts = matrix.numProducts();
+        Row[] rows = new Row[numProducts];
+
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(numProducts, neighborhoodSize));
+        IntStream.range(0, numProducts).parallel().forEach(product -> {
+            Scratch local = scratch.get();
+            int count = computeRow(matrix, product, neighborhoodSize, local);
+            rows[product] = new Row(Arrays.copyOf(local.heapProducts, count), Arrays.copyOf(local.heapScores, count));
+        });
+        return new ItemNeighborIndex(neighborhoodSize, rows);
+    }
+
+    /**
+     * Build the index from MinHash/LSH candidates scored by estimated Jaccard, so each
+     * row costs a handful of bucket lookups instead of a full co-occurrence scan
+     */
+    public static ItemNeighborIndex buildApproximate(MinHashIndex minHash, int neighborhoodSize, int maxCandidates) {
+        int numProducts = minHash.numProducts();
+        Row[] rows = new Row[numProducts];
+
+        IntStream.range(0, numProducts).parallel().forEach(product -> {
+            int[] heapProducts = new int[neighborhoodSize];
+            float[] heapScores = new float[neighborhoodSize];
+            int heapSize = computeApproximateRow(minHash, product, neighborhoodSize, maxCandidates,
+                    heapProducts, heapScores);
+            rows[product] = new Row(Arrays.copyOf(heapProducts, heapSize), Arrays.copyOf(heapScores, heapSize));
+        });
+        return new ItemNeighborIndex(neighborhoodSize, rows);
+    }
+
+    /**
+     * Rank the product's LSH candidates by estimated Jaccard and keep the best K, as
+     * {@link #buildApproximate} does for every row
+     *
+     * @return number of neighbors written to {@code heapProducts/heapScores}, best first
+     */
+    public static int computeApproximateRow(MinHashIndex minHash, int product, int neighborhoodSize, int maxCandidates,
+                                            int[] heapProducts, float[] heapScores) {
+        MinHashIndex.Neighbors candidates = minHash.similarProducts(
+                minHash.storedProductSignature(product), product, 0.0, maxCandidates);
+        int heapSize = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            heapSize = TopK.offer(heapProducts, heapScores, heapSize, neighborhoodSize,
+                    candidates.idAt(i), candidates.similarityAt(i));
+        }
+        TopK.sortDescending(heapProducts, heapScores, heapSize);
+        return heapSize;
+    }
+
+    /**
+     * Compute the neighbor row of a single product into the scratch heap arrays.
+     * Used by the full build and as an on-demand fallback before the index is ready.
+     *
+     * @return number of neighbors written to {@code scratch.heapProducts/heapScores}, best first
+     */
+    public static int computeRow(InteractionMatrix matrix, int product, int neighborhoodSize, Scratch scratch) {
+        int[] coCounts = scratch.coCounts;
+        int[] touched = scratch.touched;
+
+        // Count co-occurrences with every product sharing at least one user
+        int[] touchedCount = {0};
+        matrix.snapshotUsers(product).forEach(user -> {
+            for (int k = matrix.userStart(user); k < matrix.userEnd(user); k++) {
+                int other = matrix.productAt(k);
+                if (other != product && coCounts[other]++ == 0) {
+                    touched[touchedCount[0]++] = other;
+                }
+            }
+        });
+
+        // Keep the best K by Jaccard in a min-heap
+        int degree = matrix.snapshotProductDegree(product);
+        int heapSize = 0;
+        for (int t = 0; t < touchedCount[0]; t++) {
+            int other = touched[t];
+            int common = coCounts[other];
+            coCounts[other] = 0;
+            float score = (float) common / (degree + matrix.snapshotProductDegree(other) - common);
+            heapSize = TopK.offer(scratch.heapProducts, scratch.heapScores, heapSize, neighborhoodSize, other, score);
+        }
+        TopK.sortDescending(scratch.heapProducts, scratch.heapScores, heapSize);
+        return heapSize;
+    }
+
+    /**
+     * Apply a new (user, product) pair recorded in the live matrix. Only the pairs whose
+     * counts changed are rescored: the product against everything the user touched, and
+     * the product against its current neighbors, whose union grew by one user.
+     * A row that lists the product without being listed back keeps a slightly stale
+     * score until the next full rebuild.
+     */
+    public synchronized void update(InteractionMatrix matrix, int user, int product) {
+        ensureCapacity(Math.max(product + 1, rows.length));
+
+        int[] coProducts = new int[matrix.userDegree(user)];
+        int[] coCount = {0};
+        matrix.forEachProduct(user, (other, weight, purchased) -> {
+            if (other != product) {
+                coProducts[coCount[0]++] = other;
+            }
+        });
+
+        Row current = row(product);
+        int[] candidates = Arrays.copyOf(current.products, current.products.length + coCount[0]);
+        System.arraycopy(coProducts, 0, candidates, current.products.length, coCount[0]);
+        Arrays.sort(candidates);
+
+        int[] heapProducts = new int[neighborhoodSize];
+        float[] heapScores = new float[neighborhoodSize];
+        int heapSize = 0;
+        int previous = -1;
+        for (int candidate : candidates) {
+            if (candidate == previous) {
+                continue;
+            }
+            previous = candidate;
+            float score = (float) matrix.jaccard(product, candidate);
+            heapSize = TopK.offer(heapProducts, heapScores, heapSize, neighborhoodSize, candidate, score);
+
+            // Similarity is symmetric: keep the other side's row consistent too
+            ensureCapacity(candidate + 1);
+            rows[candidate] = row(candidate).with(product, score, neighborhoodSize);
+        }
+        TopK.sortDescending(heapProducts, heapScores, heapSize);
+        rows[product] = new Row(Arrays.copyOf(heapProducts, heapSize), Arrays.copyOf(heapScores, heapSize));
+    }
+
+    public int numProducts() { return rows.length; }
+
+    public int neighborhoodSize() { return neighborhoodSize; }
+
+    public long builtAt() { return builtAt; }
+
+    /**
+     * Neighbor row of the product, best first
+     */
+    public Row row(int product) {
+        Row[] current = rows;
+        if (product >= current.length) {
+            return EMPTY_ROW;
+        }
+        Row row = current[product];
+        return row != null ? row : EMPTY_ROW;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(size, rows.length + (rows.length >> 1)));
+        }
+    }
+
+    /**
+     * Immutable neighbor list of one product, sorted by descending score
+     */
+    public static final class Row {
+        private final int[] products;
+        private final float[] scores;
+
+        Row(int[] products, float[] scores) {
+            this.products = products;
+            this.scores = scores;
+        }
+
+        public int size() { return products.length; }
+
+        public int productAt(int i) { return products[i]; }
+
+        public float scoreAt(int i) { return scores[i]; }
+
+        /**
+         * Copy of this row with the product's score set, kept sorted and capped at K entries
+         */
+        Row with(int product, float score, int capacity) {
+            int length = products.length;
+            int existing = -1;
+            for (int i = 0; i < length; i++) {
+                if (products[i] == product) {
+                    existing = i;
+                    break;
+                }
+            }
+            if (existing < 0 && length >= capacity && (length == 0 || score <= scores[length - 1])) {
+                return this;
+            }
+
+            int size = existing >= 0 ? length : Math.min(length + 1, capacity);
+            int[] newProducts = new int[size];
+            float[] newScores = new float[size];
+            int out = 0;
+            boolean placed = false;
+            for (int i = 0; i < length && out < size; i++) {
+                if (i == existing) {
+                    continue;
+                }
+                if (!placed && score > scores[i]) {
+                    newProducts[out] = product;
+                    newScores[out++] = score;
+                    placed = true;
+                    if (out == size) {
+                        break;
+                    }
+                }
+                newProducts[out] = products[i];
+                newScores[out++] = scores[i];
+            }
+            if (!placed && out < size) {
+                newProducts[out] = product;
+                newScores[out] = score;
+            }
+            return new Row(newProducts, newScores);
+        }
+    }
+
+    /**
+     * Per-thread working memory for row computation
+     */
+    public static final class Scratch {
+        final int[] coCounts;
+        final int[] touched;
+        public final int[] heapProducts;
+        public final float[] heapScores;
+
+        public Scratch(int numProducts, int neighborhoodSize) {
+            this.coCounts = new int[numProducts];
+            this.touched = new int[numProducts];
+            this.heapProducts = new int[neighborhoodSize];
+            this.heapScores = new float[neighborhoodSize];
+        }
+
+        /**
+         * Whether these buffers are large enough for the given matrix and neighborhood
+         */
+        public boolean fits(int numProducts, int neighborhoodSize) {
+            return coCounts.length >= numProducts && heapProducts.length >= neighborhoodSize;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * MinHash signatures for every product (over its users) and every user (over their
+ * products), with LSH banding for sub-linear candidate generation.
+ *
+ * Each signature has {@code bands * rowsPerBand} components. Two sets share a band
+ * bucket with probability 1 - (1 - J^r)^b for Jaccard similarity J, so more bands
+ * raise recall and more rows per band cut false candidates. The fraction of equal
+ * signature components is an unbiased estimate of J.
+ */
+public final class MinHashIndex {
+
+    private final int bands;
+    private final int rowsPerBand;
+    private final int numHashes;
+    private final long[] seeds;
+    private final Side products;
+    private final Side users;
+    private final long builtAt;
+
+    private MinHashIndex(int bands, int rowsPerBand, long[] seeds, Side products, Side users) {
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+        this.numHashes = bands * rowsPerBand;
+        this.seeds = seeds;
+        this.products = products;
+        this.users = users;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Compute product and user signatures from the matrix snapshot and bucket them
+     */
+    public static MinHashIndex build(InteractionMatrix matrix, int bands, int rowsPerBand, long seed) {
+        int numHashes = bands * rowsPerBand;
+        long[] seeds = new long[numHashes];
+        long state = seed;
+        for (int i = 0; i < numHashes; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix64(state);
+        }
+
+        int numProducts = matrix.numProducts();
+        int[] productSignatures = newSignatures(numProducts, numHashes);
+        IntStream.range(0, numProducts).parallel().forEach(product -> {
+            int base = product * numHashes;
+            matrix.snapshotUsers(product).forEach(user -> accumulate(productSignatures, base, seeds, user));
+        });
+
+        int numUsers = matrix.numUsers();
+        int[] userSignatures = newSignatures(numUsers, numHashes);
+        IntStream.range(0, numUsers).parallel().forEach(user -> {
+            int base = user * numHashes;
+            for (int k = matrix.userStart(user); k < matrix.userEnd(user); k++) {
+                accumulate(userSignatures, base, seeds, matrix.productAt(k));
+            }
+        });
+
+        return new MinHashIndex(bands, rowsPerBand, seeds,
+                new Side(productSignatures, numProducts, bands, rowsPerBand),
+                new Side(userSignatures, numUsers, bands, rowsPerBand));
+    }
+
+    public int bands() { return bands; }
+
+    public int rowsPerBand() { return rowsPerBand; }
+
+    public int numProducts() { return products.size; }
+
+    public int numUsers() { return users.size; }
+
+    public long builtAt() { return builtAt; }
+
+    /**
+     * Signature of the product's live user set
+     */
+    public int[] productSignature(InteractionMatrix matrix, int product) {
+        int[] signature = newSignatures(1, numHashes);
+        matrix.forEachUser(product, user -> accumulate(signature, 0, seeds, user));
+        return signature;
+    }
+
+    /**
+     * Signature of the user's live product set
+     */
+    public int[] userSignature(InteractionMatrix matrix, int user) {
+        int[] signature = newSignatures(1, numHashes);
+        matrix.forEachProduct(user, (product, weight, purchased) -> accumulate(signature, 0, seeds, product));
+        return signature;
+    }
+
+    /**
+     * Stored snapshot signature of a product, or null if it was not in the snapshot
+     */
+    public int[] storedProductSignature(int product) {
+        return products.signature(product);
+    }
+
+    /**
+     * Products sharing at least one band with the signature, with estimated Jaccard
+     */
+    public Neighbors similarProducts(int[] signature, int exclude, double minSimilarity, int maxCandidates) {
+        return products.query(signature, exclude, minSimilarity, maxCandidates);
+    }
+
+    /**
+     * Users sharing at least one band with the signature, with estimated Jaccard
+     */
+    public Neighbors similarUsers(int[] signature, int exclude, double minSimilarity, int maxCandidates) {
+        return users.query(signature, exclude, minSimilarity, maxCandidates);
+    }
+
+    private static int[] newSignatures(int count, int numHashes) {
+        int[] signatures = new int[count * numHashes];
+        Arrays.fill(signatures, Integer.MAX_VALUE);
+        return signatures;
+    }
+
+    private static void accumulate(int[] signatures, int base, long[] seeds, int element) {
+        for (int i = 0; i < seeds.length; i++) {
+            int h = (int) (mix64(element ^ seeds[i]) >>> 33);
+            if (h < signatures[base + i]) {
+                signatures[base + i] = h;
+            }
+        }
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Candidate neighbors returned by an LSH query
+     */
+    public static final class Neighbors {
+        private final int[] ids;
+        private final float[] similarities;
+        private final int size;
+
+        Neighbors(int[] ids, float[] similarities, int size) {
+            this.ids = ids;
+            this.similarities = similarities;
+            this.size = size;
+        }
+
+        public int size() { return size; }
+
+        public int idAt(int i) { return ids[i]; }
+
+        public float similarityAt(int i) { return similarities[i]; }
+    }
+
+    /**
+     * Signatures and band buckets for one entity type
+     */
+    private static final class Side {
+        private final int[] signatures;
+        private final int size;
+        private final int bands;
+        private final int rowsPerBand;
+        private final int numHashes;
+        // Per band: (bucket hash << 32 | entity) sorted, so a bucket is a contiguous run
+        private final long[][] buckets;
+
+        Side(int[] signatures, int size, int bands, int rowsPerBand) {
+            this.signatures = signatures;
+            this.size = size;
+            this.bands = bands;
+            this.rowsPerBand = rowsPerBand;
+            this.numHashes = bands * rowsPerBand;
+            this.buckets = new long[bands][];
+            IntStream.range(0, bands).parallel().forEach(band -> {
+                long[] entries = new long[size];
+                int count = 0;
+                for (int entity = 0; entity < size; entity++) {
+                    // Entities without interactions keep the sentinel signature and are never candidates
+                    if (signatures[entity * numHashes] != Integer.MAX_VALUE) {
+                        entries[count++] = ((long) bandHash(signatures, entity * numHashes, band) << 32) | entity;
+                    }
+                }
+                Arrays.sort(entries, 0, count);
+                buckets[band] = Arrays.copyOf(entries, count);
+            });
+        }
+
+        int[] signature(int entity) {
+            return entity < size ? Arrays.copyOfRange(signatures, entity * numHashes, (entity + 1) * numHashes) : null;
+        }
+
+        int bandHash(int[] source, int base, int band) {
+            long h = band * 0x9E3779B97F4A7C15L;
+            int offset = base + band * rowsPerBand;
+            for (int r = 0; r < rowsPerBand; r++) {
+                h = mix64(h ^ source[offset + r]);
+            }
+            return (int) h;
+        }
+
+        Neighbors query(int[] signature, int exclude, double minSimilarity, int maxCandidates) {
+            if (signature[0] == Integer.MAX_VALUE) {
+                return new Neighbors(new int[0], new float[0], 0);
+            }
+
+            int[] candidates = new int[Math.min(maxCandidates, 64)];
+            int count = 0;
+            collect:
+            for (int band = 0; band < bands; band++) {
+                long bucket = (long) bandHash(signature, 0, band) << 32;
+                long[] entries = buckets[band];
+                int position = Arrays.binarySearch(entries, bucket);
+                for (int i = position >= 0 ? position : -position - 1; i < entries.length; i++) {
+                    if ((entries[i] & 0xFFFFFFFF00000000L) != bucket) {
+                        break;
+                    }
+                    int entity = (int) entries[i];
+                    if (entity == exclude) {
+                        continue;
+                    }
+                    if (count == candidates.length) {
+                        if (count >= maxCandidates) {
+                            break collect;
+                        }
+                        candidates = Arrays.copyOf(candidates, Math.min(maxCandidates, count * 2));
+                    }
+                    candidates[count++] = entity;
+                }
+            }
+
+            Arrays.sort(candidates, 0, count);
+            int[] ids = new int[count];
+            float[] similarities = new float[count];
+            int size = 0;
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                int entity = candidates[i];
+                if (entity == previous) {
+                    continue;
+                }
+                previous = entity;
+                float similarity = estimate(signature, entity);
+                if (similarity >= minSimilarity) {
+                    ids[size] = entity;
+                    similarities[size++] = similarity;
+                }
+            }
+            return new Neighbors(ids, similarities, size);
+        }
+
+        private float estimate(int[] signature, int entity) {
+            int base = entity * numHashes;
+            int equal = 0;
+            for (int i = 0; i < numHashes; i++) {
+                if (signatures[base + i] == signature[i]) {
+                    equal++;
+                }
+            }
+            return (float) equal / numHashes;
+        }
+    }
+}
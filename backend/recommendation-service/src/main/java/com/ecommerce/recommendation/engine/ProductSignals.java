@@ -0,0 +1,106 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Per-product ranking signals held in primitive columns addressed through an
+ * {@link IdIndex}: when the product was last recommended, how often it has been
+ * recommended and how many interactions it has received.
+ *
+ * Writes come from a single refresher and are serialized; reads are lock-free and
+ * see either the previous or the updated value of a column entry. Products never
+ * seen read as zero everywhere.
+ */
+public final class ProductSignals {
+
+    private final IdIndex products;
+
+    private volatile Columns columns;
+
+    public ProductSignals() {
+        this(1024);
+    }
+
+    public ProductSignals(int expectedProducts) {
+        this.products = new IdIndex(expectedProducts);
+        this.columns = new Columns(Math.max(16, expectedProducts));
+    }
+
+    /**
+     * Add {@code count} recommendations of the product, the latest made at {@code lastAt}
+     * (epoch millis); the last-recommended time only moves forward
+     */
+    public synchronized void addRecommendations(long productId, int count, long lastAt) {
+        int index = slot(productId);
+        Columns current = columns;
+        current.recommendationCounts[index] += count;
+        if (lastAt > current.lastRecommendedAt[index]) {
+            current.lastRecommendedAt[index] = lastAt;
+        }
+    }
+
+    public synchronized void addInteractions(long productId, int count) {
+        int index = slot(productId);
+        columns.interactionCounts[index] += count;
+    }
+
+    /**
+     * Epoch millis of the latest recommendation of the product, or 0 if it was never recommended
+     */
+    public long lastRecommendedAt(long productId) {
+        int index = products.indexOf(productId);
+        long[] column = columns.lastRecommendedAt;
+        return index >= 0 && index < column.length ? column[index] : 0L;
+    }
+
+    public int recommendationCount(long productId) {
+        int index = products.indexOf(productId);
+        int[] column = columns.recommendationCounts;
+        return index >= 0 && index < column.length ? column[index] : 0;
+    }
+
+    public int interactionCount(long productId) {
+        int index = products.indexOf(productId);
+        int[] column = columns.interactionCounts;
+        return index >= 0 && index < column.length ? column[index] : 0;
+    }
+
+    /**
+     * Number of products with at least one signal
+     */
+    public int size() {
+        return products.size();
+    }
+
+    private int slot(long productId) {
+        int index = products.getOrAdd(productId);
+        Columns current = columns;
+        if (index >= current.lastRecommendedAt.length) {
+            // Readers holding the old columns keep seeing consistent, slightly stale values
+            columns = current.grow(Math.max(index + 1, current.lastRecommendedAt.length * 2));
+        }
+        return index;
+    }
+
+    private static final class Columns {
+        final long[] lastRecommendedAt;
+        final int[] recommendationCounts;
+        final int[] interactionCounts;
+
+        Columns(int capacity) {
+            this(new long[capacity], new int[capacity], new int[capacity]);
+        }
+
+        Columns(long[] lastRecommendedAt, int[] recommendationCounts, int[] interactionCounts) {
+            this.lastRecommendedAt = lastRecommendedAt;
+            this.recommendationCounts = recommendationCounts;
+            this.interactionCounts = interactionCounts;
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(lastRecommendedAt, capacity),
+                    Arrays.copyOf(recommendationCounts, capacity),
+                    Arrays.copyOf(interactionCounts, capacity));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ecommerce.recommendation.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap vector store holding each vector as int8 codes with a per-vector scale, or as
+ * float16, in direct buffers allocated in fixed-size segments.
+ *
+ * A 384-dimension vector takes 388 bytes as int8 and 772 bytes as float16, against
+ * 3 KB as a double[] on heap, and none of it is scanned by the garbage collector.
+ * Queries are scored directly against the codes; when {@code retainFullPrecision} is set
+ * a float32 copy is kept off-heap as well, used to build the graph and to re-rank the
+ * top hits exactly.
+ */
+public final class QuantizedVectorStore implements VectorStore {
+
+    public enum Encoding { INT8, FLOAT16 }
+
+    private static final int SEGMENT_TARGET_BYTES = 64 << 20;
+    private static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int bits = 0; bits < HALF_TO_FLOAT.length; bits++) {
+            HALF_TO_FLOAT[bits] = halfToFloat((short) bits);
+        }
+    }
+
+    private final int dimensions;
+    private final Encoding encoding;
+    private final boolean retainFullPrecision;
+    private final int recordBytes;
+    private final int slotsPerSegment;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> exactSegments = new ArrayList<>();
+    private final ThreadLocal<Scratch> scratch;
+    private int capacity;
+
+    public QuantizedVectorStore(int dimensions, Encoding encoding, boolean retainFullPrecision) {
+        this.dimensions = dimensions;
+        this.encoding = encoding;
+        this.retainFullPrecision = retainFullPrecision;
+        // int8: [scale float, dims bytes]; float16: [dims halves]
+        this.recordBytes = encoding == Encoding.INT8 ? 4 + dimensions : 2 * dimensions;
+        int widestRecord = retainFullPrecision ? Math.max(recordBytes, 4 * dimensions) : recordBytes;
+        this.slotsPerSegment = Math.max(1, SEGMENT_TARGET_BYTES / widestRecord);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(dimensions));
+    }
+
+    @Override
+    public int dimensions() { return dimensions; }
+
+    public Encoding encoding() { return encoding; }
+
+    /**
+     * Direct memory reserved so far, in bytes
+     */
+    public long offHeapBytes() {
+        long perSegment = (long) slotsPerSegment * (recordBytes + (retainFullPrecision ? 4L * dimensions : 0));
+        return perSegment * segments.size();
+    }
+
+    @Override
+    public void ensureCapacity(int slots) {
+        while (capacity < slots) {
+            segments.add(ByteBuffer.allocateDirect(slotsPerSegment * recordBytes).order(ByteOrder.nativeOrder()));
+            if (retainFullPrecision) {
+                exactSegments.add(ByteBuffer.allocateDirect(slotsPerSegment * 4 * dimensions)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer());
+            }
+            capacity += slotsPerSegment;
+        }
+    }
+
+    @Override
+    public void set(int slot, float[] vector) {
+        ByteBuffer segment = segments.get(slot / slotsPerSegment);
+        int offset = (slot % slotsPerSegment) * recordBytes;
+        if (encoding == Encoding.INT8) {
+            float maxAbs = 0f;
+            for (float value : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float scale = maxAbs > 0 ? maxAbs / 127f : 1f;
+            byte[] codes = scratch.get().codes;
+            for (int i = 0; i < dimensions; i++) {
+                codes[i] = (byte) Math.round(vector[i] / scale);
+            }
+            segment.putFloat(offset, scale);
+            segment.put(offset + 4, codes, 0, dimensions);
+        } else {
+            ShortBuffer halves = segment.asShortBuffer();
+            int base = offset / 2;
+            for (int i = 0; i < dimensions; i++) {
+                halves.put(base + i, floatToHalf(vector[i]));
+            }
+        }
+        if (retainFullPrecision) {
+            exactSegments.get(slot / slotsPerSegment).put((slot % slotsPerSegment) * dimensions, vector, 0, dimensions);
+        }
+    }
+
+    @Override
+    public float[] get(int slot) {
+        float[] vector = new float[dimensions];
+        if (retainFullPrecision) {
+            readExact(slot, vector);
+        } else {
+            dequantize(slot, vector);
+        }
+        return vector;
+    }
+
+    @Override
+    public float dot(float[] query, int slot) {
+        ByteBuffer segment = segments.get(slot / slotsPerSegment);
+        int offset = (slot % slotsPerSegment) * recordBytes;
+        Scratch local = scratch.get();
+        if (encoding == Encoding.INT8) {
+            byte[] codes = local.codes;
+            segment.get(offset + 4, codes, 0, dimensions);
+            float sum = 0f;
+            for (int i = 0; i < dimensions; i++) {
+                sum += query[i] * codes[i];
+            }
+            return sum * segment.getFloat(offset);
+        }
+        short[] halves = local.halves;
+        segment.asShortBuffer().get(offset / 2, halves, 0, dimensions);
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += query[i] * HALF_TO_FLOAT[halves[i] & 0xFFFF];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        Scratch local = scratch.get();
+        if (retainFullPrecision) {
+            readExact(a, local.first);
+            return exactDot(local.first, b);
+        }
+        dequantize(a, local.first);
+        return dot(local.first, b);
+    }
+
+    @Override
+    public float exactDot(float[] query, int slot) {
+        if (!retainFullPrecision) {
+            return dot(query, slot);
+        }
+        float[] vector = scratch.get().second;
+        readExact(slot, vector);
+        return VectorMath.dot(query, 0, vector, 0, dimensions);
+    }
+
+    @Override
+    public boolean reranks() {
+        return retainFullPrecision;
+    }
+
+    private void readExact(int slot, float[] out) {
+        exactSegments.get(slot / slotsPerSegment).get((slot % slotsPerSegment) * dimensions, out, 0, dimensions);
+    }
+
+    private void dequantize(int slot, float[] out) {
+        ByteBuffer segment = segments.get(slot / slotsPerSegment);
+        int offset = (slot % slotsPerSegment) * recordBytes;
+        if (encoding == Encoding.INT8) {
+            float scale = segment.getFloat(offset);
+            for (int i = 0; i < dimensions; i++) {
+                out[i] = segment.get(offset + 4 + i) * scale;
+            }
+        } else {
+            ShortBuffer halves = segment.asShortBuffer();
+            int base = offset / 2;
+            for (int i = 0; i < dimensions; i++) {
+                out[i] = HALF_TO_FLOAT[halves.get(base + i) & 0xFFFF];
+            }
+        }
+    }
+
+    /**
+     * IEEE 754 binary16, round to nearest even; out-of-range values saturate to infinity
+     */
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+        if (((bits >>> 23) & 0xFF) == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        if (exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            // Subnormal: shift the mantissa with its implicit leading bit into place
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int midpoint = 1 << (shift - 1);
+            if (remainder > midpoint || (remainder == midpoint && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++; // may carry into the exponent, which is still correct
+        }
+        return (short) (sign | half);
+    }
+
+    static float halfToFloat(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float magnitude = mantissa * 0x1p-24f;
+            return sign != 0 ? -magnitude : magnitude;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    private static final class Scratch {
+        final byte[] codes;
+        final short[] halves;
+        final float[] first;
+        final float[] second;
+
+        Scratch(int dimensions) {
+            codes = new byte[dimensions];
+            halves = new short[dimensions];
+            first = new float[dimensions];
+            second = new float[dimensions];
+        }
+    }
+}
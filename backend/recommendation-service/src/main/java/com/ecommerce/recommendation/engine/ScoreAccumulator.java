@@ -0,0 +1,190 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Primitive long -> double score accumulator with open addressing.
+ *
+ * Entries are kept densely in insertion order next to the hash table, so iteration is
+ * a plain array walk and {@link #clear()} only touches the buckets that were used.
+ * Instances are meant to be reused per thread via {@link #forThread(ThreadLocal)};
+ * they are not thread-safe.
+ */
+public final class ScoreAccumulator {
+
+    // Tables larger than this are dropped on clear so one huge request does not pin memory
+    private static final int RETAINED_CAPACITY = 1 << 16;
+
+    private int[] buckets;      // entry index + 1, 0 marks an empty bucket
+    private long[] keys;
+    private double[] values;
+    private int[] counts;
+    private int size;
+
+    public ScoreAccumulator() {
+        this(64);
+    }
+
+    public ScoreAccumulator(int expectedSize) {
+        allocate(Math.max(16, expectedSize));
+    }
+
+    /**
+     * Cleared accumulator owned by the calling thread
+     */
+    public static ScoreAccumulator forThread(ThreadLocal<ScoreAccumulator> holder) {
+        ScoreAccumulator accumulator = holder.get();
+        accumulator.clear();
+        return accumulator;
+    }
+
+    /**
+     * Add a value to the key's sum and bump its count
+     */
+    public void add(long key, double value) {
+        int entry = findOrInsert(key);
+        values[entry] += value;
+        counts[entry]++;
+    }
+
+    /**
+     * Overwrite the key's value, keeping a count of one
+     */
+    public void put(long key, double value) {
+        int entry = findOrInsert(key);
+        values[entry] = value;
+        counts[entry] = 1;
+    }
+
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Accumulated sum for the key, or 0 if absent
+     */
+    public double get(long key) {
+        int entry = find(key);
+        return entry >= 0 ? values[entry] : 0.0;
+    }
+
+    /**
+     * Mean of the values added for the key, or 0 if absent
+     */
+    public double mean(long key) {
+        int entry = find(key);
+        return entry >= 0 ? values[entry] / counts[entry] : 0.0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Dense access in insertion order, 0 <= i < size()
+
+    public long keyAt(int i) { return keys[i]; }
+
+    public double valueAt(int i) { return values[i]; }
+
+    public int countAt(int i) { return counts[i]; }
+
+    public void setValueAt(int i, double value) { values[i] = value; }
+
+    /**
+     * Add every entry of another accumulator into this one
+     */
+    public void addAll(ScoreAccumulator other) {
+        for (int i = 0; i < other.size; i++) {
+            int entry = findOrInsert(other.keys[i]);
+            values[entry] += other.values[i];
+            counts[entry] += other.counts[i];
+        }
+    }
+
+    public void clear() {
+        if (buckets.length > RETAINED_CAPACITY) {
+            allocate(16);
+            return;
+        }
+        int mask = buckets.length - 1;
+        for (int i = 0; i < size; i++) {
+            int bucket = mix(keys[i]) & mask;
+            while (buckets[bucket] != 0) {
+                buckets[bucket] = 0;
+                bucket = (bucket + 1) & mask;
+            }
+            values[i] = 0.0;
+            counts[i] = 0;
+        }
+        size = 0;
+    }
+
+    private int find(long key) {
+        int mask = buckets.length - 1;
+        int bucket = mix(key) & mask;
+        while (true) {
+            int slot = buckets[bucket];
+            if (slot == 0) {
+                return -1;
+            }
+            if (keys[slot - 1] == key) {
+                return slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    private int findOrInsert(long key) {
+        int mask = buckets.length - 1;
+        int bucket = mix(key) & mask;
+        while (true) {
+            int slot = buckets[bucket];
+            if (slot == 0) {
+                break;
+            }
+            if (keys[slot - 1] == key) {
+                return slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            grow();
+            return findOrInsert(key);
+        }
+        int entry = size++;
+        keys[entry] = key;
+        buckets[bucket] = entry + 1;
+        return entry;
+    }
+
+    private void allocate(int capacity) {
+        int entries = Integer.highestOneBit(capacity - 1) << 1;
+        buckets = new int[entries << 1];
+        keys = new long[entries];
+        values = new double[entries];
+        counts = new int[entries];
+        size = 0;
+    }
+
+    private void grow() {
+        int entries = keys.length << 1;
+        keys = Arrays.copyOf(keys, entries);
+        values = Arrays.copyOf(values, entries);
+        counts = Arrays.copyOf(counts, entries);
+        buckets = new int[entries << 1];
+        int mask = buckets.length - 1;
+        for (int i = 0; i < size; i++) {
+            int bucket = mix(keys[i]) & mask;
+            while (buckets[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            buckets[bucket] = i + 1;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ecommerce.recommendation.engine;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Float kernels on the incubating Vector API. Only loaded by {@link VectorMath} after it
+ * has checked that {@code jdk.incubator.vector} is in the boot layer.
+ */
+final class SimdKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private SimdKernels() {}
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    static float dot(float[] a, int aBase, float[] b, int bBase, int length) {
+        int step = SPECIES.length();
+        int bound = SPECIES.loopBound(length);
+        FloatVector sum0 = FloatVector.zero(SPECIES);
+        FloatVector sum1 = FloatVector.zero(SPECIES);
+        int i = 0;
+        // Two independent accumulators hide the latency of the fused multiply-add
+        for (; i + step < bound; i += 2 * step) {
+            sum0 = FloatVector.fromArray(SPECIES, a, aBase + i)
+                    .fma(FloatVector.fromArray(SPECIES, b, bBase + i), sum0);
+            sum1 = FloatVector.fromArray(SPECIES, a, aBase + i + step)
+                    .fma(FloatVector.fromArray(SPECIES, b, bBase + i + step), sum1);
+        }
+        for (; i < bound; i += step) {
+            sum0 = FloatVector.fromArray(SPECIES, a, aBase + i)
+                    .fma(FloatVector.fromArray(SPECIES, b, bBase + i), sum0);
+        }
+        float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aBase + i] * b[bBase + i];
+        }
+        return sum;
+    }
+}
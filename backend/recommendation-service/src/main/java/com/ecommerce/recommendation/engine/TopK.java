@@ -0,0 +1,177 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Bounded top-K selection over primitive (id, score) pairs.
+ *
+ * Candidates are offered to a fixed-size min-heap whose root is the weakest kept entry,
+ * so selecting K out of n costs O(n log K) and never materializes or sorts the full
+ * candidate list. The static helpers run the same heap over caller-owned
+ * {@code int[]/float[]} arrays for code that keeps its own scratch buffers.
+ */
+public final class TopK {
+
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopK(int capacity) {
+        this.ids = new int[Math.max(0, capacity)];
+        this.scores = new double[Math.max(0, capacity)];
+    }
+
+    /**
+     * Entry indices of the {@code k} highest values in the accumulator, best first
+     */
+    public static int[] select(ScoreAccumulator accumulator, int k) {
+        TopK top = new TopK(Math.min(k, accumulator.size()));
+        for (int i = 0; i < accumulator.size(); i++) {
+            top.offer(i, accumulator.valueAt(i));
+        }
+        return top.drainDescending();
+    }
+
+    /**
+     * Indices of the {@code k} highest values in {@code values[0, length)}, best first
+     */
+    public static int[] select(double[] values, int length, int k) {
+        TopK top = new TopK(Math.min(k, length));
+        for (int i = 0; i < length; i++) {
+            top.offer(i, values[i]);
+        }
+        return top.drainDescending();
+    }
+
+    public void offer(int id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= scores[i]) {
+                    break;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        } else if (ids.length > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Whether {@link #offer} would currently keep a candidate with this score
+     */
+    public boolean accepts(double score) {
+        return size < ids.length || (ids.length > 0 && score > scores[0]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Kept ids ordered by descending score; the heap is empty afterwards
+     */
+    public int[] drainDescending() {
+        int count = size;
+        for (int end = count - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        int[] result = Arrays.copyOf(ids, count);
+        size = 0;
+        return result;
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    /**
+     * Offer a candidate to a bounded min-heap held in caller arrays, returning the new heap size
+     */
+    public static int offer(int[] ids, float[] scores, int size, int capacity, int id, float score) {
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(ids, scores, size);
+            return size + 1;
+        }
+        if (capacity > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(ids, scores, 0, size);
+        }
+        return size;
+    }
+
+    /**
+     * Heap-sort a min-heap in place so it ends up in descending score order
+     */
+    public static void sortDescending(int[] ids, float[] scores, int size) {
+        for (int end = size - 1; end > 0; end--) {
+            swap(ids, scores, 0, end);
+            siftDown(ids, scores, 0, end);
+        }
+    }
+
+    private static void siftUp(int[] ids, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(ids, scores, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] scores, int i, int size) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(ids, scores, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] ids, float[] scores, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Precomputed top-N product lists per user in flat primitive arrays: each user owns a
+ * fixed stripe of N (product index, score) pairs, with product ids dictionary-encoded
+ * through an {@link IdIndex}, so an entry costs 8 bytes per item and a lookup is one
+ * hash probe plus a stripe copy.
+ *
+ * Writers are serialized; readers are lock-free under an optimistic read stamp and
+ * never observe a stripe while it is being rewritten.
+ */
+public final class TopNStore {
+
+    private final int n;
+    private final IdIndex users;
+    private final IdIndex products = new IdIndex();
+    private final StampedLock lock = new StampedLock();
+
+    private int[] items;
+    private float[] scores;
+    // Stored length + 1 per user, 0 while the user has no entry
+    private int[] lengths;
+    private long[] computedAt;
+
+    public TopNStore(int n, int expectedUsers) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        int capacity = Math.max(16, expectedUsers);
+        this.n = n;
+        this.users = new IdIndex(capacity);
+        this.items = new int[capacity * n];
+        this.scores = new float[capacity * n];
+        this.lengths = new int[capacity];
+        this.computedAt = new long[capacity];
+    }
+
+    /**
+     * Maximum list length kept per user
+     */
+    public int n() {
+        return n;
+    }
+
+    /**
+     * Replace the user's list with the first {@code min(length, n)} pairs, best first
+     */
+    public void put(long userId, long[] productIds, float[] productScores, int length, long computedAtMillis) {
+        int count = Math.min(length, n);
+        int[] encoded = new int[count];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = products.getOrAdd(productIds[i]);
+        }
+        int slot = users.getOrAdd(userId);
+
+        long stamp = lock.writeLock();
+        try {
+            if (slot >= lengths.length) {
+                grow(Math.max(slot + 1, lengths.length * 2));
+            }
+            int base = slot * n;
+            System.arraycopy(encoded, 0, items, base, count);
+            System.arraycopy(productScores, 0, scores, base, count);
+            lengths[slot] = count + 1;
+            computedAt[slot] = computedAtMillis;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drop the user's list; the user reads as absent until the next put
+     */
+    public void remove(long userId) {
+        int slot = users.indexOf(userId);
+        if (slot < 0) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (slot < lengths.length) {
+                lengths[slot] = 0;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The user's list, or null if none is stored
+     */
+    public Entry get(long userId) {
+        int slot = users.indexOf(userId);
+        if (slot < 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = read(slot);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = read(slot);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Number of users with a stored list
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            int stored = 0;
+            for (int length : lengths) {
+                if (length > 0) {
+                    stored++;
+                }
+            }
+            return stored;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Entry read(int slot) {
+        // Field reads may be torn under an optimistic stamp; bounds guard until validated
+        int[] lengthColumn = lengths;
+        long[] timeColumn = computedAt;
+        int[] itemColumn = items;
+        float[] scoreColumn = scores;
+        if (slot >= lengthColumn.length || slot >= timeColumn.length) {
+            return null;
+        }
+        int count = lengthColumn[slot] - 1;
+        int base = slot * n;
+        if (count < 0 || count > n || base + count > itemColumn.length || base + count > scoreColumn.length) {
+            return null;
+        }
+        long[] productIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            productIds[i] = products.idAt(itemColumn[base + i]);
+        }
+        return new Entry(productIds, Arrays.copyOfRange(scoreColumn, base, base + count), timeColumn[slot]);
+    }
+
+    private void grow(int capacity) {
+        items = Arrays.copyOf(items, capacity * n);
+        scores = Arrays.copyOf(scores, capacity * n);
+        lengths = Arrays.copyOf(lengths, capacity);
+        computedAt = Arrays.copyOf(computedAt, capacity);
+    }
+
+    /**
+     * Copy of one user's stored list
+     */
+    public static final class Entry {
+        private final long[] productIds;
+        private final float[] scores;
+        private final long computedAt;
+
+        Entry(long[] productIds, float[] scores, long computedAt) {
+            this.productIds = productIds;
+            this.scores = scores;
+            this.computedAt = computedAt;
+        }
+
+        public int size() { return productIds.length; }
+
+        public long productIdAt(int i) { return productIds[i]; }
+
+        public float scoreAt(int i) { return scores[i]; }
+
+        /**
+         * Epoch millis at which the list was computed
+         */
+        public long computedAt() { return computedAt; }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ecommerce.recommendation.engine;
+
+import java.util.logging.Logger;
+
+/**
+ * Dot-product kernels shared by the content-based and ANN paths.
+ *
+ * Vectors are L2-normalized once at ingest ({@link #normalize}) so cosine similarity is a
+ * plain dot product. Dot products run on the JDK Vector API when the
+ * {@code jdk.incubator.vector} module is present (start the JVM with
+ * {@code --add-modules jdk.incubator.vector}) and on an unrolled scalar loop otherwise;
+ * {@code -Drecommendation.simd=false} forces the scalar path.
+ */
+public final class VectorMath {
+
+    private static final Logger log = Logger.getLogger(VectorMath.class.getName());
+
+    private static final boolean SIMD = detectSimd();
+
+    private VectorMath() {}
+
+    public static boolean simdEnabled() {
+        return SIMD;
+    }
+
+    /**
+     * Dot product of {@code length} elements starting at the given offsets
+     */
+    public static float dot(float[] a, int aBase, float[] b, int bBase, int length) {
+        return SIMD ? SimdKernels.dot(a, aBase, b, bBase, length) : scalarDot(a, aBase, b, bBase, length);
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vectors must have same length");
+        }
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * One query against rows {@code [fromRow, toRow)} of a row-major matrix:
+     * {@code out[outBase + r - fromRow] = query . matrix[r]}
+     */
+    public static void dotMany(float[] query, int queryBase, float[] matrix, int fromRow, int toRow, int dimensions,
+                               float[] out, int outBase) {
+        for (int row = fromRow; row < toRow; row++) {
+            out[outBase + row - fromRow] = dot(query, queryBase, matrix, row * dimensions, dimensions);
+        }
+    }
+
+    /**
+     * Scale the vector to unit length in place; zero vectors stay zero
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+        if (norm > 0f) {
+            float scale = 1f / norm;
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Unit-length float copy of a double embedding
+     */
+    public static float[] normalized(double[] embedding) {
+        float[] vector = new float[embedding.length];
+        for (int i = 0; i < embedding.length; i++) {
+            vector[i] = (float) embedding[i];
+        }
+        return normalize(vector);
+    }
+
+    /**
+     * Cosine similarity of two raw embeddings in one pass, 0 if either is a zero vector
+     */
+    public static double cosine(double[] a, double[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vectors must have same length");
+        }
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        double norms = Math.sqrt(normA * normB);
+        return norms > 0 ? dot / norms : 0.0;
+    }
+
+    static float scalarDot(float[] a, int aBase, float[] b, int bBase, int length) {
+        // Four accumulators break the add dependency chain
+        float sum0 = 0f, sum1 = 0f, sum2 = 0f, sum3 = 0f;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            sum0 += a[aBase + i] * b[bBase + i];
+            sum1 += a[aBase + i + 1] * b[bBase + i + 1];
+            sum2 += a[aBase + i + 2] * b[bBase + i + 2];
+            sum3 += a[aBase + i + 3] * b[bBase + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aBase + i] * b[bBase + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    private static boolean detectSimd() {
+        if (!Boolean.parseBoolean(System.getProperty("recommendation.simd", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not enabled, using scalar vector kernels");
+            return false;
+        }
+        try {
+            log.info("Using Vector API kernels with " + SimdKernels.lanes() + " float lanes");
+            return true;
+        } catch (LinkageError e) {
+            log.info("Vector API unavailable (" + e + "), using scalar vector kernels");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.recommendation.engine;
+
+/**
+ * Dense slot-addressed storage of L2-normalized vectors for {@link HnswIndex}. Callers
+ * serialize writes and do not read a slot while it is being written.
+ */
+public interface VectorStore {
+
+    int dimensions();
+
+    /**
+     * Make slots {@code [0, slots)} addressable
+     */
+    void ensureCapacity(int slots);
+
+    void set(int slot, float[] vector);
+
+    /**
+     * Copy of the stored vector at the best precision the store keeps
+     */
+    float[] get(int slot);
+
+    /**
+     * Dot product of a query with a stored vector, approximate if the store is quantized
+     */
+    float dot(float[] query, int slot);
+
+    float dot(int a, int b);
+
+    /**
+     * Dot product at full precision, used to re-rank hits scored with {@link #dot(float[], int)}
+     */
+    default float exactDot(float[] query, int slot) {
+        return dot(query, slot);
+    }
+
+    /**
+     * Whether {@link #exactDot} is more precise than {@link #dot(float[], int)}
+     */
+    default boolean reranks() {
+        return false;
+    }
+}
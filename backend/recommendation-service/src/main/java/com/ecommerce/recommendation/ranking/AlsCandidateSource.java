@@ -0,0 +1,42 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.entity.Recommendation;
+import com.ecommerce.recommendation.service.CollaborativeFilteringService;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * ALS matrix factorization candidates, for ALS requests
+ */
+@Component
+public class AlsCandidateSource implements CandidateSource {
+
+    public static final String NAME = "als";
+
+    private final CollaborativeFilteringService collaborativeFilteringService;
+
+    public AlsCandidateSource(CollaborativeFilteringService collaborativeFilteringService) {
+        this.collaborativeFilteringService = collaborativeFilteringService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.of(RecommendationAlgorithm.ALS);
+    }
+
+    @Override
+    public boolean generate(Long userId, int count, ScoreAccumulator out) {
+        for (Recommendation rec : collaborativeFilteringService.getMatrixFactorizationRecommendations(userId, count)) {
+            out.add(rec.getProductId(), rec.getScore().doubleValue());
+        }
+        return true;
+    }
+}
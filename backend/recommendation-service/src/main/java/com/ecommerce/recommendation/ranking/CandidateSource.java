@@ -0,0 +1,40 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Produces scored candidate products for a user. Sources run concurrently during
+ * candidate generation and each must finish within the generation budget.
+ */
+public interface CandidateSource {
+
+    /**
+     * Name the source's scores are stored under, also used in metric tags
+     */
+    String name();
+
+    /**
+     * Add up to {@code count} scored candidates for the user to {@code out}
+     *
+     * @return false if the candidates are incomplete (the source ran degraded)
+     */
+    boolean generate(Long userId, int count, ScoreAccumulator out);
+
+    /**
+     * Algorithms whose requests this source generates candidates for
+     */
+    default Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.of(RecommendationAlgorithm.HYBRID);
+    }
+
+    /**
+     * Name of the source this one stands in for when that source is degraded or missing
+     * and produced no candidates, or null for a primary source
+     */
+    default String fallbackFor() {
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.engine.TopK;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Candidate products for one ranking request: the per-source scores collected during
+ * candidate generation, plus a current score per product that the later stages rewrite.
+ * Until a scoring stage runs, the current score is the product's best per-source mean
+ * scaled by that source's largest absolute mean, so the phase caps prune sources on
+ * different scales (unbounded collaborative sums, cosines) evenly; scoring stages read the
+ * raw per-source scores.
+ * Not thread-safe; a pipeline run owns its instance.
+ */
+public final class Candidates {
+
+    private static final ScoreAccumulator EMPTY = new ScoreAccumulator(16);
+
+    private final Map<String, ScoreAccumulator> sources = new HashMap<>();
+    private ScoreAccumulator scores = new ScoreAccumulator();
+
+    /**
+     * Add the scores produced by a source, summed and counted per product
+     */
+    void addSource(String source, ScoreAccumulator sourceScores) {
+        ScoreAccumulator merged = sources.computeIfAbsent(source, name -> new ScoreAccumulator(sourceScores.size()));
+        merged.addAll(sourceScores);
+        double scale = 0;
+        for (int i = 0; i < merged.size(); i++) {
+            scale = Math.max(scale, Math.abs(merged.valueAt(i) / merged.countAt(i)));
+        }
+        for (int i = 0; i < merged.size(); i++) {
+            long productId = merged.keyAt(i);
+            double scaled = scale > 0 ? merged.valueAt(i) / merged.countAt(i) / scale : 0;
+            if (!scores.contains(productId) || scaled > scores.get(productId)) {
+                scores.put(productId, scaled);
+            }
+        }
+    }
+
+    /**
+     * Names of the sources that produced scores
+     */
+    public Set<String> sourceNames() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * Scores a source produced, empty if it produced none or did not run; read-only
+     */
+    public ScoreAccumulator source(String source) {
+        return sources.getOrDefault(source, EMPTY);
+    }
+
+    public boolean hasCandidatesFrom(String source) {
+        return source(source).size() > 0;
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    // Dense access, 0 <= i < size()
+
+    public long productIdAt(int i) { return scores.keyAt(i); }
+
+    public double scoreAt(int i) { return scores.valueAt(i); }
+
+    public void setScoreAt(int i, double score) { scores.setValueAt(i, score); }
+
+    /**
+     * Drop candidates the predicate rejects
+     */
+    public void retain(LongPredicate keep) {
+        ScoreAccumulator kept = new ScoreAccumulator(scores.size());
+        for (int i = 0; i < scores.size(); i++) {
+            if (keep.test(scores.keyAt(i))) {
+                kept.put(scores.keyAt(i), scores.valueAt(i));
+            }
+        }
+        scores = kept;
+    }
+
+    /**
+     * Keep only the {@code max} best candidates by current score
+     *
+     * @return number of candidates dropped
+     */
+    public int truncate(int max) {
+        int dropped = scores.size() - max;
+        if (dropped <= 0) {
+            return 0;
+        }
+        ScoreAccumulator kept = new ScoreAccumulator(max);
+        for (int entry : TopK.select(scores, max)) {
+            kept.put(scores.keyAt(entry), scores.valueAt(entry));
+        }
+        scores = kept;
+        return dropped;
+    }
+
+    /**
+     * Dense indices of the {@code k} best candidates, best first
+     */
+    public int[] top(int k) {
+        return TopK.select(scores, k);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.entity.Recommendation;
+import com.ecommerce.recommendation.service.ContentBasedFilteringService;
+import com.ecommerce.recommendation.service.ContentRecommendations;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Content-based candidates near the user's embedding profile, for hybrid and content-based
+ * requests; incomplete when the embedding path missed its deadline or its circuit breaker
+ * is open
+ */
+@Component
+public class ContentCandidateSource implements CandidateSource {
+
+    public static final String NAME = "content";
+
+    private final ContentBasedFilteringService contentBasedFilteringService;
+
+    public ContentCandidateSource(ContentBasedFilteringService contentBasedFilteringService) {
+        this.contentBasedFilteringService = contentBasedFilteringService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.of(RecommendationAlgorithm.HYBRID, RecommendationAlgorithm.CONTENT_BASED);
+    }
+
+    @Override
+    public boolean generate(Long userId, int count, ScoreAccumulator out) {
+        ContentRecommendations content = contentBasedFilteringService.getUserContentRecommendations(userId, count);
+        for (Recommendation rec : content.getRecommendations()) {
+            out.add(rec.getProductId(), rec.getScore().doubleValue());
+        }
+        return !content.isDegraded();
+    }
+}
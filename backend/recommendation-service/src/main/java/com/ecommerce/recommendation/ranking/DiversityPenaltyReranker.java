@@ -0,0 +1,34 @@
+package com.ecommerce.recommendation.ranking;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Diversity penalty to encourage exploration: very high scores are damped slightly so
+ * they do not crowd out everything else
+ */
+@Component
+@Order(0)
+public class DiversityPenaltyReranker implements RankingStage {
+
+    @Override
+    public String name() {
+        return "diversity-penalty";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.RERANK;
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        // Simple diversity mechanism - could be enhanced with category diversity
+        for (int i = 0; i < candidates.size(); i++) {
+            double score = candidates.scoreAt(i);
+            if (score > 0.8) {
+                candidates.setScoreAt(i, score * 0.98); // 2% penalty for very high scores
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.recommendation.ranking;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Weighted combination of the mean collaborative and content-based scores per product,
+ * boosting whichever source is present when the other has no score
+ */
+@Component
+@Order(0)
+public class HybridBlendScorer implements RankingStage {
+
+    // Weights for hybrid scoring
+    private static final double COLLABORATIVE_WEIGHT = 0.6;
+    private static final double CONTENT_BASED_WEIGHT = 0.4;
+    private static final double TRENDING_WEIGHT = 0.5; // trending stands in for content scores in degraded mode
+
+    @Override
+    public String name() {
+        return "hybrid-blend";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.SCORING;
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        for (int i = 0; i < candidates.size(); i++) {
+            long productId = candidates.productIdAt(i);
+            double collaborative = candidates.source(CollaborativeCandidateSource.NAME).mean(productId);
+            double contentBased = candidates.source(ContentCandidateSource.NAME).mean(productId)
+                    + candidates.source(TrendingCandidateSource.NAME).mean(productId) * TRENDING_WEIGHT;
+            candidates.setScoreAt(i, blend(collaborative, contentBased));
+        }
+    }
+
+    private static double blend(double collaborative, double contentBased) {
+        double collaborativeScore = collaborative * COLLABORATIVE_WEIGHT;
+        double contentBasedScore = contentBased * CONTENT_BASED_WEIGHT;
+
+        // Handle cases where one algorithm has no score
+        if (collaborative == 0) {
+            return contentBasedScore * 1.5; // Boost content-based when collaborative is missing
+        }
+        if (contentBased == 0) {
+            return collaborativeScore * 1.3; // Boost collaborative when content-based is missing
+        }
+
+        return collaborativeScore + contentBasedScore;
+    }
+}
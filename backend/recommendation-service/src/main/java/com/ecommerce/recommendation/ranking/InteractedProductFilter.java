@@ -0,0 +1,52 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.service.InteractionMatrixService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Drops products the user has already interacted with, including interactions recorded
+ * since the last matrix rebuild
+ */
+@Component
+@Order(0)
+public class InteractedProductFilter implements RankingStage {
+
+    private final InteractionMatrixService interactionMatrixService;
+
+    public InteractedProductFilter(InteractionMatrixService interactionMatrixService) {
+        this.interactionMatrixService = interactionMatrixService;
+    }
+
+    @Override
+    public String name() {
+        return "interacted";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.FILTER;
+    }
+
+    @Override
+    public Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.allOf(RecommendationAlgorithm.class);
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        InteractionMatrix matrix = interactionMatrixService.current();
+        int user = matrix.userIndex(context.getUserId());
+        if (user < 0) {
+            return;
+        }
+        candidates.retain(productId -> {
+            int product = matrix.productIndex(productId);
+            return product < 0 || !matrix.hasInteraction(user, product);
+        });
+    }
+}
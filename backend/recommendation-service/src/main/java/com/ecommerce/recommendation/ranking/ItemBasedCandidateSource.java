@@ -0,0 +1,42 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.entity.Recommendation;
+import com.ecommerce.recommendation.service.CollaborativeFilteringService;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Item-based collaborative filtering candidates, for item-based requests
+ */
+@Component
+public class ItemBasedCandidateSource implements CandidateSource {
+
+    public static final String NAME = "item-based";
+
+    private final CollaborativeFilteringService collaborativeFilteringService;
+
+    public ItemBasedCandidateSource(CollaborativeFilteringService collaborativeFilteringService) {
+        this.collaborativeFilteringService = collaborativeFilteringService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.of(RecommendationAlgorithm.ITEM_BASED);
+    }
+
+    @Override
+    public boolean generate(Long userId, int count, ScoreAccumulator out) {
+        for (Recommendation rec : collaborativeFilteringService.getItemBasedRecommendations(userId, count)) {
+            out.add(rec.getProductId(), rec.getScore().doubleValue());
+        }
+        return true;
+    }
+}
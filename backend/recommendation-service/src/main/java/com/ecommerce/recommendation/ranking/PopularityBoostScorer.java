@@ -0,0 +1,41 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ProductSignals;
+import com.ecommerce.recommendation.service.ProductSignalService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logarithmic popularity boost based on how often the product has been recommended
+ */
+@Component
+@Order(200)
+public class PopularityBoostScorer implements RankingStage {
+
+    private static final double POPULARITY_BOOST = 0.1;
+
+    private final ProductSignalService productSignalService;
+
+    public PopularityBoostScorer(ProductSignalService productSignalService) {
+        this.productSignalService = productSignalService;
+    }
+
+    @Override
+    public String name() {
+        return "popularity-boost";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.SCORING;
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        ProductSignals signals = productSignalService.current();
+        for (int i = 0; i < candidates.size(); i++) {
+            int recommendationCount = signals.recommendationCount(candidates.productIdAt(i));
+            candidates.setScoreAt(i, candidates.scoreAt(i) + Math.log(recommendationCount + 1) * POPULARITY_BOOST);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.recommendation.ranking;
+
+/**
+ * Per-request state shared by the pipeline stages
+ */
+public final class RankingContext {
+
+    private final Long userId;
+    private final int limit;
+    private final RecommendationAlgorithm algorithm;
+    private final long nowMillis;
+    private boolean degraded;
+
+    RankingContext(Long userId, int limit, RecommendationAlgorithm algorithm, long nowMillis) {
+        this.userId = userId;
+        this.limit = limit;
+        this.algorithm = algorithm;
+        this.nowMillis = nowMillis;
+    }
+
+    public Long getUserId() { return userId; }
+
+    /**
+     * Number of results the caller asked for
+     */
+    public int getLimit() { return limit; }
+
+    public RecommendationAlgorithm getAlgorithm() { return algorithm; }
+
+    /**
+     * Wall-clock time the request started, fixed for all stages
+     */
+    public long getNowMillis() { return nowMillis; }
+
+    /**
+     * True when a source or stage was skipped, so the result should not be cached
+     */
+    public boolean isDegraded() { return degraded; }
+
+    public void markDegraded() { this.degraded = true; }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.recommendation.ranking;
+
+/**
+ * Phases run after candidate generation, in order. Each phase sees at most its
+ * configured number of candidates and stops running further stages once its time
+ * budget is spent.
+ */
+public enum RankingPhase {
+
+    /** Cheap eligibility checks that drop candidates */
+    FILTER("filter"),
+
+    /** Score computation and adjustment */
+    SCORING("scoring"),
+
+    /** Final adjustments over the shortlisted candidates */
+    RERANK("rerank");
+
+    private final String key;
+
+    RankingPhase(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Name used in configuration keys and metric tags
+     */
+    public String key() {
+        return key;
+    }
+}
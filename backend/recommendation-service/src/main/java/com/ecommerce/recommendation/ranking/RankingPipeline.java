@@ -0,0 +1,373 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Multi-stage ranking: candidate generation, then the filter, scoring and re-rank phases.
+ *
+ * Every {@link CandidateSource} and {@link RankingStage} bean is plugged in automatically
+ * and runs only for requests of the {@link RecommendationAlgorithm}s it is scoped to, so
+ * hybrid requests blend several sources while single-algorithm requests rank one source
+ * through the shared filters. Primary sources run concurrently on a bounded executor
+ * under the generation budget; a source still running at the deadline is dropped rather
+ * than awaited, and fallback sources then stand in for it. Each later phase first prunes
+ * the candidates to its cap by current score, so expensive stages only see a shortlist;
+ * until a scoring stage runs that score is scaled per source, so no source crowds out
+ * another. A phase skips its remaining stages once its budget is spent. A stage may set
+ * its own cap, applied right before it runs, and its own budget, the time it needs: it is
+ * skipped when less than that is left of the phase budget. Caps never drop below the
+ * requested limit. Anything dropped or skipped marks the result degraded.
+ */
+@Component
+public class RankingPipeline {
+
+    private static final Logger log = Logger.getLogger(RankingPipeline.class.getName());
+
+    private final List<CandidateSource> primarySources = new ArrayList<>();
+    private final List<CandidateSource> fallbackSources = new ArrayList<>();
+    private final Map<RankingPhase, List<RankingStage>> stages = new EnumMap<>(RankingPhase.class);
+    private final Map<RankingPhase, Limits> limits = new EnumMap<>(RankingPhase.class);
+    private final Map<RankingStage, Limits> stageLimits = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService sourceExecutor;
+    private final long generationBudgetNanos;
+    private final int candidatesPerResult;
+
+    public RankingPipeline(List<CandidateSource> sources, List<RankingStage> rankingStages,
+                           MeterRegistry meterRegistry, Environment environment,
+                           @Value("${recommendation.ranking.source-threads:16}") int sourceThreads,
+                           @Value("${recommendation.ranking.source-queue-capacity:256}") int sourceQueueCapacity,
+                           @Value("${recommendation.ranking.virtual-threads:false}") boolean virtualThreads,
+                           @Value("${recommendation.ranking.generation.budget:400}") long generationBudgetMillis,
+                           @Value("${recommendation.ranking.generation.candidates-per-result:2}") int candidatesPerResult) {
+        for (CandidateSource source : sources) {
+            (source.fallbackFor() == null ? primarySources : fallbackSources).add(source);
+        }
+        for (RankingPhase phase : RankingPhase.values()) {
+            stages.put(phase, new ArrayList<>());
+            String prefix = "recommendation.ranking." + phase.key() + ".";
+            limits.put(phase, limits(environment, prefix, 50L));
+        }
+        // Injected lists are already sorted by @Order
+        for (RankingStage stage : rankingStages) {
+            stages.get(stage.phase()).add(stage);
+            String prefix = "recommendation.ranking." + stage.phase().key() + ".stages." + stage.name() + ".";
+            stageLimits.put(stage, limits(environment, prefix, 0L));
+        }
+        this.meterRegistry = meterRegistry;
+        this.sourceExecutor = newSourceExecutor(sourceThreads, sourceQueueCapacity, virtualThreads);
+        this.generationBudgetNanos = TimeUnit.MILLISECONDS.toNanos(generationBudgetMillis);
+        this.candidatesPerResult = candidatesPerResult;
+
+        StringBuilder description = new StringBuilder("Ranking pipeline: sources ").append(names(primarySources))
+                .append(", fallbacks ").append(names(fallbackSources));
+        for (RankingPhase phase : RankingPhase.values()) {
+            List<String> stageNames = new ArrayList<>();
+            for (RankingStage stage : stages.get(phase)) {
+                stageNames.add(stage.name());
+            }
+            description.append(", ").append(phase.key()).append(' ').append(stageNames);
+        }
+        log.info(description.toString());
+    }
+
+    /**
+     * Rank hybrid candidates for the user and return the best {@code limit}
+     */
+    public RankingResult rank(Long userId, int limit) {
+        return rank(userId, limit, RecommendationAlgorithm.HYBRID);
+    }
+
+    /**
+     * Rank candidates of the given algorithm for the user and return the best {@code limit}
+     */
+    public RankingResult rank(Long userId, int limit, RecommendationAlgorithm algorithm) {
+        RankingContext context = new RankingContext(userId, limit, algorithm, System.currentTimeMillis());
+        Candidates candidates = generate(context);
+        for (RankingPhase phase : RankingPhase.values()) {
+            runPhase(phase, context, candidates);
+        }
+
+        int[] top = candidates.top(limit);
+        long[] productIds = new long[top.length];
+        double[] scores = new double[top.length];
+        for (int i = 0; i < top.length; i++) {
+            productIds[i] = candidates.productIdAt(top[i]);
+            scores[i] = candidates.scoreAt(top[i]);
+        }
+        return new RankingResult(productIds, scores, context.isDegraded());
+    }
+
+    private Candidates generate(RankingContext context) {
+        long start = System.nanoTime();
+        long deadline = start + generationBudgetNanos;
+        int count = context.getLimit() * candidatesPerResult;
+
+        Map<CandidateSource, CompletableFuture<SourceOutput>> calls = new LinkedHashMap<>();
+        for (CandidateSource source : primarySources) {
+            if (source.algorithms().contains(context.getAlgorithm())) {
+                calls.put(source, submitSource(source, context.getUserId(), count));
+            }
+        }
+
+        Candidates candidates = new Candidates();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<CandidateSource, CompletableFuture<SourceOutput>> call : calls.entrySet()) {
+            String name = call.getKey().name();
+            SourceOutput output = awaitSource(name, call.getValue(), deadline);
+            if (output == null || !output.complete) {
+                context.markDegraded();
+                if (output == null || output.scores.size() == 0) {
+                    missing.add(name);
+                }
+            }
+            if (output != null) {
+                candidates.addSource(name, output.scores);
+            }
+        }
+
+        // Fallbacks are cheap and run inline for sources that came back empty-handed
+        for (CandidateSource fallback : fallbackSources) {
+            if (missing.contains(fallback.fallbackFor()) && fallback.algorithms().contains(context.getAlgorithm())) {
+                ScoreAccumulator scores = new ScoreAccumulator(count);
+                try {
+                    runSource(fallback, context.getUserId(), count, scores);
+                    candidates.addSource(fallback.name(), scores);
+                } catch (RuntimeException e) {
+                    droppedSource(fallback.name(), "error");
+                    log.log(Level.WARNING, "Fallback candidate source " + fallback.name() + " failed", e);
+                }
+            }
+        }
+
+        phaseTimer("generation").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        candidateSummary("generation").record(candidates.size());
+        return candidates;
+    }
+
+    private void runPhase(RankingPhase phase, RankingContext context, Candidates candidates) {
+        Limits phaseLimits = limits.get(phase);
+        prune(phase, phaseLimits.maxCandidates, context, candidates);
+        candidateSummary(phase.key()).record(candidates.size());
+
+        long start = System.nanoTime();
+        for (RankingStage stage : stages.get(phase)) {
+            if (!stage.algorithms().contains(context.getAlgorithm())) {
+                continue;
+            }
+            Limits stageLimit = stageLimits.get(stage);
+            // Stages cannot be preempted, so budgets are checked between them
+            if (System.nanoTime() - start + stageLimit.budgetNanos > phaseLimits.budgetNanos) {
+                meterRegistry.counter("recommendation.ranking.stage.skipped",
+                        "phase", phase.key(), "stage", stage.name()).increment();
+                context.markDegraded();
+                continue;
+            }
+            prune(phase, stageLimit.maxCandidates, context, candidates);
+            long stageStart = System.nanoTime();
+            stage.apply(context, candidates);
+            stageTimer(phase, stage).record(System.nanoTime() - stageStart, TimeUnit.NANOSECONDS);
+        }
+        phaseTimer(phase.key()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Keep the best {@code maxCandidates} by current score, but never fewer than the request
+     * asked for; 0 means no cap
+     */
+    private void prune(RankingPhase phase, int maxCandidates, RankingContext context, Candidates candidates) {
+        if (maxCandidates > 0) {
+            int dropped = candidates.truncate(Math.max(maxCandidates, context.getLimit()));
+            if (dropped > 0) {
+                meterRegistry.counter("recommendation.ranking.candidates.pruned", "phase", phase.key()).increment(dropped);
+            }
+        }
+    }
+
+    /**
+     * Run a source on the source executor. A full executor fails the returned future
+     * instead of running the source inline.
+     */
+    private CompletableFuture<SourceOutput> submitSource(CandidateSource source, Long userId, int count) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                ScoreAccumulator scores = new ScoreAccumulator(count);
+                boolean complete = runSource(source, userId, count, scores);
+                return new SourceOutput(scores, complete);
+            }, sourceExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean runSource(CandidateSource source, Long userId, int count, ScoreAccumulator scores) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            boolean complete = source.generate(userId, count, scores);
+            outcome = complete ? "success" : "degraded";
+            return complete;
+        } finally {
+            Timer.builder("recommendation.ranking.source")
+                    .description("Time spent generating candidates in one source")
+                    .tag("source", source.name())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Output of a source, or null if it failed, was rejected or is still running at the
+     * deadline; a late result is dropped, not awaited
+     */
+    private SourceOutput awaitSource(String source, CompletableFuture<SourceOutput> call, long deadline) {
+        try {
+            return call.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(false);
+            droppedSource(source, "late");
+        } catch (ExecutionException e) {
+            boolean rejected = e.getCause() instanceof RejectedExecutionException;
+            droppedSource(source, rejected ? "rejected" : "error");
+            log.log(Level.WARNING, "Candidate source " + source + (rejected ? " rejected" : " failed"), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedSource(source, "interrupted");
+        }
+        return null;
+    }
+
+    private void droppedSource(String source, String reason) {
+        meterRegistry.counter("recommendation.ranking.source.dropped", "source", source, "reason", reason).increment();
+    }
+
+    private Timer phaseTimer(String phase) {
+        return Timer.builder("recommendation.ranking.phase")
+                .description("Time spent in one ranking phase")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer stageTimer(RankingPhase phase, RankingStage stage) {
+        return Timer.builder("recommendation.ranking.stage")
+                .description("Time spent in one ranking stage")
+                .tag("phase", phase.key())
+                .tag("stage", stage.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary candidateSummary(String phase) {
+        return DistributionSummary.builder("recommendation.ranking.candidates")
+                .description("Candidates entering a ranking phase")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fixed pool with a bounded queue for candidate sources. Virtual threads are used when
+     * requested and the runtime provides them (Java 21+), platform threads otherwise.
+     */
+    private static ExecutorService newSourceExecutor(int threads, int queueCapacity, boolean virtualThreads) {
+        ThreadFactory factory = virtualThreads ? virtualThreadFactory() : null;
+        if (factory == null) {
+            if (virtualThreads) {
+                log.warning("Virtual threads are not available on this runtime, using platform threads for candidate sources");
+            }
+            AtomicInteger counter = new AtomicInteger();
+            factory = runnable -> {
+                Thread thread = new Thread(runnable, "candidate-source-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * {@code Thread.ofVirtual().name("candidate-source-", 0).factory()}, looked up reflectively
+     * because the service is compiled for Java 17; null when unsupported
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "candidate-source-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Limits limits(Environment environment, String prefix, long defaultBudgetMillis) {
+        return new Limits(
+                TimeUnit.MILLISECONDS.toNanos(environment.getProperty(prefix + "budget", Long.class, defaultBudgetMillis)),
+                environment.getProperty(prefix + "max-candidates", Integer.class, 0));
+    }
+
+    private static List<String> names(List<CandidateSource> sources) {
+        List<String> names = new ArrayList<>(sources.size());
+        for (CandidateSource source : sources) {
+            names.add(source.name());
+        }
+        return names;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sourceExecutor.shutdownNow();
+    }
+
+    private static final class SourceOutput {
+        final ScoreAccumulator scores;
+        final boolean complete;
+
+        SourceOutput(ScoreAccumulator scores, boolean complete) {
+            this.scores = scores;
+            this.complete = complete;
+        }
+    }
+
+    /**
+     * Budget and candidate cap of a phase or of a single stage
+     */
+    private static final class Limits {
+        final long budgetNanos;
+        final int maxCandidates;
+
+        Limits(long budgetNanos, int maxCandidates) {
+            this.budgetNanos = budgetNanos;
+            this.maxCandidates = maxCandidates;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.recommendation.ranking;
+
+/**
+ * Ranked products, best first
+ */
+public final class RankingResult {
+
+    private final long[] productIds;
+    private final double[] scores;
+    private final boolean degraded;
+
+    RankingResult(long[] productIds, double[] scores, boolean degraded) {
+        this.productIds = productIds;
+        this.scores = scores;
+        this.degraded = degraded;
+    }
+
+    public int size() { return productIds.length; }
+
+    public long productIdAt(int i) { return productIds[i]; }
+
+    public double scoreAt(int i) { return scores[i]; }
+
+    /**
+     * True when a source was dropped or a stage skipped while ranking
+     */
+    public boolean isDegraded() { return degraded; }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.recommendation.ranking;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A filter, scorer or re-ranker plugged into the ranking pipeline. Stages of the same
+ * phase run in {@link org.springframework.core.annotation.Order} order on the request
+ * thread and edit the candidates in place.
+ */
+public interface RankingStage {
+
+    /**
+     * Name used in metric tags
+     */
+    String name();
+
+    RankingPhase phase();
+
+    /**
+     * Algorithms whose requests this stage runs for
+     */
+    default Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.of(RecommendationAlgorithm.HYBRID);
+    }
+
+    void apply(RankingContext context, Candidates candidates);
+}
@@ -0,0 +1,40 @@
+package com.ecommerce.recommendation.ranking;
+
+import java.util.Locale;
+
+/**
+ * Algorithm a ranking request asks for. Each one runs only the candidate sources and
+ * stages scoped to it, so a single-algorithm request ranks by that algorithm's scores.
+ */
+public enum RecommendationAlgorithm {
+
+    USER_BASED("USER_BASED_CF"),
+    ITEM_BASED("ITEM_BASED_CF"),
+    ALS("ALS"),
+    CONTENT_BASED("CONTENT_BASED"),
+    HYBRID("hybrid");
+
+    private final String label;
+
+    RecommendationAlgorithm(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Value reported in the algorithm field of the recommendations
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Algorithm by request parameter name, case-insensitive; anything unknown is hybrid
+     */
+    public static RecommendationAlgorithm parse(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return HYBRID;
+        }
+    }
+}
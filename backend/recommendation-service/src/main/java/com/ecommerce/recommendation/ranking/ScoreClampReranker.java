@@ -0,0 +1,29 @@
+package com.ecommerce.recommendation.ranking;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clamps final scores to [0, 1]; runs last
+ */
+@Component
+@Order(Integer.MAX_VALUE)
+public class ScoreClampReranker implements RankingStage {
+
+    @Override
+    public String name() {
+        return "score-clamp";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.RERANK;
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        for (int i = 0; i < candidates.size(); i++) {
+            candidates.setScoreAt(i, Math.max(0, Math.min(1, candidates.scoreAt(i))));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Single-algorithm requests rank by their source's own scores: restores the raw
+ * per-source mean that candidate generation scaled for pruning
+ */
+@Component
+@Order(0)
+public class SourceScoreScorer implements RankingStage {
+
+    @Override
+    public String name() {
+        return "source-score";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.SCORING;
+    }
+
+    @Override
+    public Set<RecommendationAlgorithm> algorithms() {
+        return EnumSet.complementOf(EnumSet.of(RecommendationAlgorithm.HYBRID));
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        for (int i = 0; i < candidates.size(); i++) {
+            long productId = candidates.productIdAt(i);
+            double best = Double.NEGATIVE_INFINITY;
+            for (String source : candidates.sourceNames()) {
+                ScoreAccumulator scores = candidates.source(source);
+                if (scores.contains(productId)) {
+                    best = Math.max(best, scores.mean(productId));
+                }
+            }
+            candidates.setScoreAt(i, best);
+        }
+    }
+}
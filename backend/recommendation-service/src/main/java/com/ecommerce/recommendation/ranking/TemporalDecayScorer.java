@@ -0,0 +1,49 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ProductSignals;
+import com.ecommerce.recommendation.service.ProductSignalService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temporal decay - products recommended recently keep more of their score, losing 5%
+ * per day since their latest recommendation
+ */
+@Component
+@Order(100)
+public class TemporalDecayScorer implements RankingStage {
+
+    private static final double TEMPORAL_DECAY_FACTOR = 0.95;
+
+    private final ProductSignalService productSignalService;
+
+    public TemporalDecayScorer(ProductSignalService productSignalService) {
+        this.productSignalService = productSignalService;
+    }
+
+    @Override
+    public String name() {
+        return "temporal-decay";
+    }
+
+    @Override
+    public RankingPhase phase() {
+        return RankingPhase.SCORING;
+    }
+
+    @Override
+    public void apply(RankingContext context, Candidates candidates) {
+        ProductSignals signals = productSignalService.current();
+        for (int i = 0; i < candidates.size(); i++) {
+            long lastRecommendedAt = signals.lastRecommendedAt(candidates.productIdAt(i));
+            // Products never recommended before are not decayed
+            if (lastRecommendedAt > 0) {
+                long hoursSinceCreation = TimeUnit.MILLISECONDS.toHours(context.getNowMillis() - lastRecommendedAt);
+                double decay = Math.pow(TEMPORAL_DECAY_FACTOR, hoursSinceCreation / 24.0);
+                candidates.setScoreAt(i, candidates.scoreAt(i) * decay);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.entity.Recommendation;
+import com.ecommerce.recommendation.service.ContentBasedFilteringService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trending products, standing in for content-based candidates when there are none
+ */
+@Component
+public class TrendingCandidateSource implements CandidateSource {
+
+    public static final String NAME = "trending";
+
+    private final ContentBasedFilteringService contentBasedFilteringService;
+
+    public TrendingCandidateSource(ContentBasedFilteringService contentBasedFilteringService) {
+        this.contentBasedFilteringService = contentBasedFilteringService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String fallbackFor() {
+        return ContentCandidateSource.NAME;
+    }
+
+    @Override
+    public boolean generate(Long userId, int count, ScoreAccumulator out) {
+        for (Recommendation rec : contentBasedFilteringService.getTrendingProducts(count)) {
+            out.add(rec.getProductId(), rec.getScore().doubleValue());
+        }
+        return true;
+    }
+}
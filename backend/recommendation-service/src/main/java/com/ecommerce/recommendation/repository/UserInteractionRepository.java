@@ -1,6 +1,7 @@
 package com.ecommerce.recommendation.repository;
 
 import com.ecommerce.recommendation.entity.UserInteraction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -32,4 +33,8 @@ public interface UserInteractionRepository extends JpaRepository<UserInteraction
 
     @Query("SELECT AVG(ui.rating) FROM UserInteraction ui WHERE ui.productId = :productId AND ui.rating IS NOT NULL")
     Double findAverageRatingForProduct(@Param("productId") Long productId);
+
+    // Keyset-paged projection used to load the in-memory interaction matrix
+    @Query("SELECT ui.id, ui.userId, ui.productId, ui.interactionType, ui.weight, ui.rating FROM UserInteraction ui WHERE ui.id > :afterId ORDER BY ui.id")
+    List<Object[]> findInteractionTuplesAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,82 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.AlsModel;
+import com.ecommerce.recommendation.engine.AlsTrainer;
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Trains the implicit-feedback ALS model on a background thread each time the interaction
+ * matrix is reloaded and keeps the latest factors resident for serving.
+ */
+@Service
+public class AlsModelService {
+
+    private static final Logger log = Logger.getLogger(AlsModelService.class.getName());
+
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "als-trainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile AlsModel model;
+
+    @Value("${recommendation.algorithms.als.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.algorithms.als.factors:64}")
+    private int factors;
+
+    @Value("${recommendation.algorithms.als.iterations:10}")
+    private int iterations;
+
+    @Value("${recommendation.algorithms.als.regularization:0.1}")
+    private double regularization;
+
+    @Value("${recommendation.algorithms.als.alpha:40.0}")
+    private double alpha;
+
+    @Value("${recommendation.algorithms.als.seed:42}")
+    private long seed;
+
+    /**
+     * Latest trained model, or null before the first training run completes
+     */
+    public AlsModel current() {
+        return model;
+    }
+
+    @EventListener
+    public void onMatrixRebuilt(InteractionMatrixRebuiltEvent event) {
+        if (enabled) {
+            trainer.submit(() -> train(event.getMatrix()));
+        }
+    }
+
+    private void train(InteractionMatrix matrix) {
+        try {
+            long start = System.nanoTime();
+            AlsModel trained = new AlsTrainer(factors, iterations, regularization, alpha, seed).train(matrix);
+            model = trained;
+            log.info("Trained ALS model for " + trained.numUsers() + " users and " + trained.numProducts()
+                    + " products (f=" + factors + ", iterations=" + iterations + ") in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to train ALS model", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trainer.shutdownNow();
+    }
+}
@@ -1,24 +1,68 @@
 package com.ecommerce.recommendation.service;
 
+import com.ecommerce.recommendation.engine.AlsModel;
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.engine.ItemNeighborIndex;
+import com.ecommerce.recommendation.engine.MinHashIndex;
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import com.ecommerce.recommendation.engine.TopK;
 import com.ecommerce.recommendation.entity.Recommendation;
-import com.ecommerce.recommendation.entity.UserInteraction;
-import com.ecommerce.recommendation.repository.RecommendationRepository;
-import com.ecommerce.recommendation.repository.UserInteractionRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 @Service
 public class CollaborativeFilteringService {
 
     private static final Logger log = Logger.getLogger(CollaborativeFilteringService.class.getName());
 
-    private final UserInteractionRepository interactionRepository;
-    private final RecommendationRepository recommendationRepository;
+    // Per-thread scoring buffers keyed by dense user/product index, reused across requests
+    private static final ThreadLocal<ScoreAccumulator> SIMILAR_USERS = ThreadLocal.withInitial(ScoreAccumulator::new);
+    private static final ThreadLocal<ScoreAccumulator> PRODUCT_SCORES = ThreadLocal.withInitial(ScoreAccumulator::new);
+    // Row buffers for scoring before the item index is built, grown with the matrix
+    private static final ThreadLocal<ItemNeighborIndex.Scratch> ROW_SCRATCH = new ThreadLocal<>();
+
+    private final InteractionMatrixService interactionMatrixService;
+    private final ItemNeighborIndexService itemNeighborIndexService;
+    private final MinHashIndexService minHashIndexService;
+    private final AlsModelService alsModelService;
+    private final RecommendationWriteBehindService recommendationWriteBehindService;
+    private final ForkJoinPool scoringPool;
+    private final int parallelThreshold;
+    private final double similarityThreshold;
+
+    public CollaborativeFilteringService(InteractionMatrixService interactionMatrixService,
+                                         ItemNeighborIndexService itemNeighborIndexService,
+                                         MinHashIndexService minHashIndexService,
+                                         AlsModelService alsModelService,
+                                         RecommendationWriteBehindService recommendationWriteBehindService,
+                                         @Value("${recommendation.algorithms.collaborative.parallel.parallelism:0}") int parallelism,
+                                         @Value("${recommendation.algorithms.collaborative.parallel.threshold:64}") int parallelThreshold,
+                                         @Value("${recommendation.algorithms.collaborative.similarity-threshold:0.3}") double similarityThreshold) {
+        this.interactionMatrixService = interactionMatrixService;
+        this.itemNeighborIndexService = itemNeighborIndexService;
+        this.minHashIndexService = minHashIndexService;
+        this.alsModelService = alsModelService;
+        this.recommendationWriteBehindService = recommendationWriteBehindService;
+        this.parallelThreshold = parallelThreshold;
+        this.similarityThreshold = similarityThreshold;
+        // Dedicated pool so request scoring never competes with the common pool used by index builds
+        this.scoringPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("item-cf-scoring-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+    }
 
     /**
      * User-based collaborative filtering
@@ -27,38 +71,32 @@ public class CollaborativeFilteringService {
     public List<Recommendation> getUserBasedRecommendations(Long userId, int limit) {
         log.info("Generating user-based collaborative filtering recommendations for user: " + userId);
 
+        InteractionMatrix matrix = interactionMatrixService.current();
+
         // Get user's interaction history
-        List<UserInteraction> userInteractions = interactionRepository.findByUserIdOrderByTimestampDesc(userId);
-        if (userInteractions.isEmpty()) {
+        int user = matrix.userIndex(userId);
+        if (user < 0) {
             log.info("No interactions found for user: " + userId);
             return Collections.emptyList();
         }
 
         // Find similar users based on interaction patterns
-        Map<Long, Double> similarUsers = findSimilarUsers(userId, userInteractions);
-
-        // Get products liked by similar users that user hasn't interacted with
-        Set<Long> userInteractedProducts = userInteractions.stream()
-                .map(UserInteraction::getProductId)
-                .collect(Collectors.toSet());
-
-        Map<Long, Double> productScores = new HashMap<>();
-        for (Map.Entry<Long, Double> entry : similarUsers.entrySet()) {
-            Long similarUserId = entry.getKey();
-            Double similarityScore = entry.getValue();
+        ScoreAccumulator similarUsers = findSimilarUsers(matrix, user);
 
-            List<UserInteraction> similarUserInteractions = interactionRepository
-                    .findByUserIdAndInteractionType(similarUserId, "PURCHASE");
+        // Get products purchased by similar users that user hasn't interacted with
+        ScoreAccumulator productScores = ScoreAccumulator.forThread(PRODUCT_SCORES);
+        for (int i = 0; i < similarUsers.size(); i++) {
+            int similarUser = (int) similarUsers.keyAt(i);
+            double similarityScore = similarUsers.valueAt(i);
 
-            for (UserInteraction interaction : similarUserInteractions) {
-                Long productId = interaction.getProductId();
-                if (!userInteractedProducts.contains(productId)) {
-                    productScores.merge(productId, similarityScore, Double::sum);
+            matrix.forEachProduct(similarUser, (product, weight, purchased) -> {
+                if (purchased && !matrix.hasInteraction(user, product)) {
+                    productScores.add(product, similarityScore);
                 }
-            }
+            });
         }
 
-        return createRecommendations(userId, productScores, "USER_BASED_CF", limit);
+        return createRecommendations(userId, matrix, productScores, "USER_BASED_CF", limit);
     }
 
     /**
@@ -68,104 +106,237 @@ public class CollaborativeFilteringService {
     public List<Recommendation> getItemBasedRecommendations(Long userId, int limit) {
         log.info("Generating item-based collaborative filtering recommendations for user: " + userId);
 
-        // Get products user has positively interacted with
-        List<UserInteraction> positiveInteractions = interactionRepository
-                .findByUserIdAndInteractionType(userId, "PURCHASE");
+        InteractionMatrix matrix = interactionMatrixService.current();
+        int user = matrix.userIndex(userId);
+        if (user < 0) {
+            return Collections.emptyList();
+        }
 
-        if (positiveInteractions.isEmpty()) {
+        // Get products user has positively interacted with, sorted by product index
+        int[] likedProducts = likedProducts(matrix, user);
+        if (likedProducts.length == 0) {
             return Collections.emptyList();
         }
 
-        Set<Long> likedProductIds = positiveInteractions.stream()
-                .map(UserInteraction::getProductId)
-                .collect(Collectors.toSet());
-
-        // Find users who liked the same products
-        Map<Long, Double> productScores = new HashMap<>();
-        for (Long likedProductId : likedProductIds) {
-            List<Long> usersWhoLikedProduct = interactionRepository
-                    .findUsersWhoInteractedWithProduct(likedProductId);
-
-            // For each user who liked this product, find other products they liked
-            for (Long otherUserId : usersWhoLikedProduct) {
-                if (!otherUserId.equals(userId)) {
-                    List<Long> otherUserProducts = interactionRepository
-                            .findProductsInteractedByUser(otherUserId);
-
-                    for (Long otherProductId : otherUserProducts) {
-                        if (!likedProductIds.contains(otherProductId)) {
-                            // Calculate similarity score based on co-occurrence
-                            double score = calculateItemSimilarity(likedProductId, otherProductId);
-                            productScores.merge(otherProductId, score, Double::sum);
-                        }
+        // Merge the neighbor lists of every liked product, split across workers for heavy users
+        ItemNeighborIndex index = itemNeighborIndexService.current();
+        ScoreAccumulator productScores;
+        if (likedProducts.length >= parallelThreshold) {
+            productScores = scoringPool.invoke(new ItemScoringTask(matrix, index, likedProducts, 0, likedProducts.length,
+                    itemNeighborIndexService.getNeighborhoodSize()));
+        } else {
+            productScores = ScoreAccumulator.forThread(PRODUCT_SCORES);
+            scoreLikedProducts(matrix, index, likedProducts, 0, likedProducts.length, productScores,
+                    itemNeighborIndexService.getNeighborhoodSize());
+        }
+
+        return createRecommendations(userId, matrix, productScores, "ITEM_BASED_CF", limit);
+    }
+
+    /**
+     * Matrix factorization collaborative filtering
+     * Scores every product by the dot product of the user's and the product's ALS factors
+     */
+    public List<Recommendation> getMatrixFactorizationRecommendations(Long userId, int limit) {
+        log.info("Generating ALS matrix factorization recommendations for user: " + userId);
+
+        InteractionMatrix matrix = interactionMatrixService.current();
+        int user = matrix.userIndex(userId);
+        AlsModel model = alsModelService.current();
+        if (model == null || !model.hasUser(user)) {
+            // No factors yet (model training, or user newer than the training snapshot)
+            return getItemBasedRecommendations(userId, limit);
+        }
+
+        ScoreAccumulator productScores = ScoreAccumulator.forThread(PRODUCT_SCORES);
+        model.recommend(user, limit, matrix, productScores);
+        return createRecommendations(userId, matrix, productScores, "ALS", limit);
+    }
+
+    /**
+     * Add the neighbors of {@code likedProducts[from, to)} that the user has not liked yet.
+     * Uses the precomputed index rows when available, otherwise computes the rows from the
+     * matrix with the calling thread's scratch buffers.
+     */
+    private static void scoreLikedProducts(InteractionMatrix matrix, ItemNeighborIndex index, int[] likedProducts,
+                                           int from, int to, ScoreAccumulator productScores, int neighborhoodSize) {
+        ItemNeighborIndex.Scratch scratch = null;
+        for (int i = from; i < to; i++) {
+            int likedProduct = likedProducts[i];
+            if (index != null) {
+                ItemNeighborIndex.Row neighbors = index.row(likedProduct);
+                for (int k = 0; k < neighbors.size(); k++) {
+                    int neighbor = neighbors.productAt(k);
+                    if (Arrays.binarySearch(likedProducts, neighbor) < 0) {
+                        productScores.add(neighbor, neighbors.scoreAt(k));
+                    }
+                }
+            } else {
+                // Index still building: compute just the rows we need from the matrix
+                if (scratch == null) {
+                    scratch = rowScratch(matrix.numProducts(), neighborhoodSize);
+                }
+                int count = ItemNeighborIndex.computeRow(matrix, likedProduct, neighborhoodSize, scratch);
+                for (int k = 0; k < count; k++) {
+                    int neighbor = scratch.heapProducts[k];
+                    if (Arrays.binarySearch(likedProducts, neighbor) < 0) {
+                        productScores.add(neighbor, scratch.heapScores[k]);
                     }
                 }
             }
         }
+    }
 
-        return createRecommendations(userId, productScores, "ITEM_BASED_CF", limit);
+    private static ItemNeighborIndex.Scratch rowScratch(int numProducts, int neighborhoodSize) {
+        ItemNeighborIndex.Scratch scratch = ROW_SCRATCH.get();
+        if (scratch == null || !scratch.fits(numProducts, neighborhoodSize)) {
+            scratch = new ItemNeighborIndex.Scratch(numProducts, neighborhoodSize);
+            ROW_SCRATCH.set(scratch);
+        }
+        return scratch;
     }
 
-    private Map<Long, Double> findSimilarUsers(Long userId, List<UserInteraction> userInteractions) {
-        Map<Long, Double> similarUsers = new HashMap<>();
+    /**
+     * Overlap of every co-interacting user with the given user, normalized by the user's
+     * product count. Only the MinHash path, which cannot enumerate every co-user, applies
+     * the similarity threshold.
+     */
+    private ScoreAccumulator findSimilarUsers(InteractionMatrix matrix, int user) {
+        ScoreAccumulator similarUsers = ScoreAccumulator.forThread(SIMILAR_USERS);
 
-        // Get all users who interacted with the same products
-        Set<Long> userProductIds = userInteractions.stream()
-                .map(UserInteraction::getProductId)
-                .collect(Collectors.toSet());
+        MinHashIndex minHash = minHashIndexService.current();
+        if (minHash != null) {
+            return findSimilarUsersApproximate(matrix, minHash, user, similarUsers);
+        }
 
-        for (Long productId : userProductIds) {
-            List<Long> usersForProduct = interactionRepository.findUsersWhoInteractedWithProduct(productId);
+        // Get all users who interacted with the same products
+        matrix.forEachProduct(user, (product, weight, purchased) ->
+                matrix.forEachUser(product, otherUser -> {
+                    if (otherUser != user) {
+                        similarUsers.add(otherUser, 1.0);
+                    }
+                }));
 
-            for (Long otherUserId : usersForProduct) {
-                if (!otherUserId.equals(userId)) {
-                    similarUsers.merge(otherUserId, 1.0, Double::sum);
-                }
-            }
+        // Normalize similarity scores
+        int maxInteractions = matrix.userDegree(user);
+        for (int i = 0; i < similarUsers.size(); i++) {
+            similarUsers.setValueAt(i, similarUsers.valueAt(i) / maxInteractions);
         }
 
-        // Normalize similarity scores
-        int maxInteractions = userProductIds.size();
-        similarUsers.replaceAll((k, v) -> v / maxInteractions);
+        return similarUsers;
+    }
 
+    /**
+     * LSH candidates with estimated Jaccard J at or above the similarity threshold; the
+     * overlap is recovered as |A n B| = J * (|A| + |B|) / (1 + J) and normalized the same
+     * way as the exact path
+     */
+    private ScoreAccumulator findSimilarUsersApproximate(InteractionMatrix matrix, MinHashIndex minHash, int user,
+                                                         ScoreAccumulator similarUsers) {
+        MinHashIndex.Neighbors candidates = minHash.similarUsers(minHash.userSignature(matrix, user), user,
+                similarityThreshold, minHashIndexService.getMaxCandidates());
+
+        int userDegree = matrix.userDegree(user);
+        for (int i = 0; i < candidates.size(); i++) {
+            int otherUser = candidates.idAt(i);
+            double jaccard = candidates.similarityAt(i);
+            double overlap = jaccard * (userDegree + matrix.userDegree(otherUser)) / (1 + jaccard);
+            similarUsers.put(otherUser, Math.min(1.0, overlap / userDegree));
+        }
         return similarUsers;
     }
 
-    private double calculateItemSimilarity(Long productId1, Long productId2) {
-        // Jaccard similarity: intersection / union
-        List<Long> users1 = interactionRepository.findUsersWhoInteractedWithProduct(productId1);
-        List<Long> users2 = interactionRepository.findUsersWhoInteractedWithProduct(productId2);
+    private int[] likedProducts(InteractionMatrix matrix, int user) {
+        int[] liked = new int[matrix.userDegree(user)];
+        int[] count = {0};
+        matrix.forEachProduct(user, (product, weight, purchased) -> {
+            if (purchased) {
+                liked[count[0]++] = product;
+            }
+        });
+        // Products recorded after the snapshot come last, so restore sorted order
+        int[] sorted = Arrays.copyOf(liked, count[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
 
-        Set<Long> union = new HashSet<>(users1);
-        union.addAll(users2);
+    /**
+     * Build the top {@code limit} recommendations from scores keyed by dense product index.
+     * BigDecimal and entity objects are only created for the products that are returned.
+     */
+    private List<Recommendation> createRecommendations(Long userId, InteractionMatrix matrix,
+                                                       ScoreAccumulator productScores, String algorithm, int limit) {
+        List<Recommendation> recommendations = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Select the best products without sorting every candidate
+        for (int entry : TopK.select(productScores, limit)) {
+            Recommendation rec = new Recommendation();
+            rec.setUserId(userId);
+            rec.setProductId(matrix.productId((int) productScores.keyAt(entry)));
+            rec.setScore(BigDecimal.valueOf(productScores.valueAt(entry)));
+            rec.setAlgorithm(algorithm);
+            rec.setCreatedAt(now);
+            rec.setExpiresAt(now.plusDays(7)); // Recommendations expire in 7 days
+            recommendations.add(rec);
+        }
 
-        Set<Long> intersection = new HashSet<>(users1);
-        intersection.retainAll(users2);
+        // Persist in the background so the request returns as soon as scores are ready
+        recommendationWriteBehindService.enqueue(recommendations);
 
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+        return recommendations;
     }
 
-    private List<Recommendation> createRecommendations(Long userId, Map<Long, Double> productScores, String algorithm, int limit) {
-        List<Recommendation> recommendations = new ArrayList<>();
+    @PreDestroy
+    public void shutdown() {
+        scoringPool.shutdownNow();
+    }
 
-        // Sort products by score descending
-        productScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .forEach(entry -> {
-                    Recommendation rec = new Recommendation();
-                    rec.setUserId(userId);
-                    rec.setProductId(entry.getKey());
-                    rec.setScore(BigDecimal.valueOf(entry.getValue()));
-                    rec.setAlgorithm(algorithm);
-                    rec.setCreatedAt(LocalDateTime.now());
-                    rec.setExpiresAt(LocalDateTime.now().plusDays(7)); // Recommendations expire in 7 days
-                    recommendations.add(rec);
-                });
-
-        // Save recommendations
-        recommendationRepository.saveAll(recommendations);
+    /**
+     * Splits a liked-product range in halves down to {@link #LEAF_SIZE}; each leaf scores
+     * into its own accumulator and results are merged on the way back up
+     */
+    private static final class ItemScoringTask extends RecursiveTask<ScoreAccumulator> {
+
+        private static final int LEAF_SIZE = 16;
+
+        private final InteractionMatrix matrix;
+        private final ItemNeighborIndex index;
+        private final int[] likedProducts;
+        private final int from;
+        private final int to;
+        private final int neighborhoodSize;
+
+        ItemScoringTask(InteractionMatrix matrix, ItemNeighborIndex index, int[] likedProducts, int from, int to,
+                        int neighborhoodSize) {
+            this.matrix = matrix;
+            this.index = index;
+            this.likedProducts = likedProducts;
+            this.from = from;
+            this.to = to;
+            this.neighborhoodSize = neighborhoodSize;
+        }
 
-        return recommendations;
+        @Override
+        protected ScoreAccumulator compute() {
+            if (to - from <= LEAF_SIZE) {
+                ScoreAccumulator scores = new ScoreAccumulator();
+                scoreLikedProducts(matrix, index, likedProducts, from, to, scores, neighborhoodSize);
+                return scores;
+            }
+            int middle = (from + to) >>> 1;
+            ItemScoringTask left = new ItemScoringTask(matrix, index, likedProducts, from, middle, neighborhoodSize);
+            ItemScoringTask right = new ItemScoringTask(matrix, index, likedProducts, middle, to, neighborhoodSize);
+            left.fork();
+            ScoreAccumulator scores = right.compute();
+            ScoreAccumulator leftScores = left.join();
+            // Merge the smaller map into the larger one
+            if (leftScores.size() > scores.size()) {
+                leftScores.addAll(scores);
+                return leftScores;
+            }
+            scores.addAll(leftScores);
+            return scores;
+        }
     }
 }
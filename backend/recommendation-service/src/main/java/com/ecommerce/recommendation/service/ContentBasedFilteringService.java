@@ -1,73 +1,188 @@
 package com.ecommerce.recommendation.service;
 
-import com.ecommerce.recommendation.client.HuggingFaceClient;
+import com.ecommerce.recommendation.client.CircuitBreaker;
+import com.ecommerce.recommendation.client.EmbeddingProvider;
+import com.ecommerce.recommendation.engine.EmbeddingMatrix;
+import com.ecommerce.recommendation.engine.HnswIndex;
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.engine.TopK;
 import com.ecommerce.recommendation.entity.Recommendation;
-import com.ecommerce.recommendation.repository.RecommendationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 @Service
 public class ContentBasedFilteringService {
 
     private static final Logger log = Logger.getLogger(ContentBasedFilteringService.class.getName());
 
-    private final HuggingFaceClient huggingFaceClient;
-    private final RecommendationRepository recommendationRepository;
+    private final EmbeddingProvider embeddingProvider;
+    private final RecommendationWriteBehindService recommendationWriteBehindService;
+    private final ProductVectorIndexService productVectorIndexService;
+    private final InteractionMatrixService interactionMatrixService;
+    private final CircuitBreaker embeddingBreaker;
+    private final Duration deadline;
+    private final int profileSize;
+
+    public ContentBasedFilteringService(EmbeddingProvider embeddingProvider,
+                                        RecommendationWriteBehindService recommendationWriteBehindService,
+                                        ProductVectorIndexService productVectorIndexService,
+                                        InteractionMatrixService interactionMatrixService,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${recommendation.algorithms.content-based.deadline:200}") long deadlineMillis,
+                                        @Value("${recommendation.algorithms.content-based.profile-size:50}") int profileSize,
+                                        @Value("${recommendation.algorithms.content-based.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                        @Value("${recommendation.algorithms.content-based.circuit-breaker.open-duration:30000}") long openMillis) {
+        this.embeddingProvider = embeddingProvider;
+        this.recommendationWriteBehindService = recommendationWriteBehindService;
+        this.productVectorIndexService = productVectorIndexService;
+        this.interactionMatrixService = interactionMatrixService;
+        this.deadline = Duration.ofMillis(deadlineMillis);
+        this.profileSize = profileSize;
+        this.embeddingBreaker = new CircuitBreaker("embedding", failureThreshold, Duration.ofMillis(openMillis), meterRegistry);
+    }
 
     /**
      * Content-based filtering using semantic similarity
      * Recommends products similar to ones the user has viewed/liked
      */
     public List<Recommendation> getContentBasedRecommendations(Long userId, int limit) {
+        return getUserContentRecommendations(userId, limit).getRecommendations();
+    }
+
+    /**
+     * Content-based recommendations from the user's interaction profile: the
+     * strength-weighted mean embedding of their strongest products, searched in the
+     * product ANN index. Products without a stored vector are embedded under the deadline
+     * and circuit breaker; if that fails the profile is built from the stored vectors only
+     * and the result is flagged degraded.
+     */
+    public ContentRecommendations getUserContentRecommendations(Long userId, int limit) {
         log.info("Generating content-based recommendations for user: " + userId);
 
-        // Placeholder implementation - in a real system, this would:
-        // 1. Get user's liked/viewed products
-        // 2. Get their text descriptions
-        // 3. Calculate embeddings using HuggingFace
-        // 4. Find similar products
+        InteractionMatrix matrix = interactionMatrixService.current();
+        int user = matrix.userIndex(userId);
+        if (user < 0) {
+            return ContentRecommendations.empty();
+        }
 
-        List<Recommendation> recommendations = new ArrayList<>();
+        // The user's strongest interactions form the profile
+        int degree = matrix.userDegree(user);
+        long[] productIds = new long[degree];
+        double[] strengths = new double[degree];
+        int[] count = new int[1];
+        matrix.forEachProduct(user, (product, weight, purchased) -> {
+            if (weight > 0) {
+                productIds[count[0]] = matrix.productId(product);
+                strengths[count[0]++] = weight;
+            }
+        });
+        int[] strongest = TopK.select(strengths, count[0], profileSize);
+        if (strongest.length == 0) {
+            return ContentRecommendations.empty();
+        }
 
-        // Mock recommendations for now
-        for (int i = 1; i <= limit; i++) {
+        float[][] vectors = new float[strongest.length][];
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < strongest.length; i++) {
+            vectors[i] = productVectorIndexService.vector(productIds[strongest[i]]);
+            if (vectors[i] == null) {
+                missing.add(productIds[strongest[i]]);
+            }
+        }
+        boolean degraded = false;
+        if (!missing.isEmpty()) {
+            degraded = !embedMissing(missing);
+            for (int i = 0; i < strongest.length; i++) {
+                if (vectors[i] == null && !degraded) {
+                    vectors[i] = productVectorIndexService.vector(productIds[strongest[i]]);
+                }
+            }
+        }
+
+        float[] profile = null;
+        for (int i = 0; i < strongest.length; i++) {
+            if (vectors[i] == null) {
+                continue;
+            }
+            if (profile == null) {
+                profile = new float[vectors[i].length];
+            }
+            float strength = (float) strengths[strongest[i]];
+            for (int d = 0; d < profile.length; d++) {
+                profile[d] += strength * vectors[i][d];
+            }
+        }
+        if (profile == null) {
+            return new ContentRecommendations(Collections.emptyList(), degraded);
+        }
+
+        // Over-fetch by the user's degree so products they already know can be skipped
+        HnswIndex.Neighbors neighbors = productVectorIndexService.search(profile, limit + count[0]);
+        List<Recommendation> recommendations = new ArrayList<>(limit);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < neighbors.size() && recommendations.size() < limit; i++) {
+            long productId = neighbors.idAt(i);
+            int product = matrix.productIndex(productId);
+            if (product >= 0 && matrix.hasInteraction(user, product)) {
+                continue;
+            }
             Recommendation rec = new Recommendation();
             rec.setUserId(userId);
-            rec.setProductId((long) i);
-            rec.setScore(BigDecimal.valueOf(0.8 - (i * 0.1))); // Decreasing scores
+            rec.setProductId(productId);
+            rec.setScore(BigDecimal.valueOf(Math.max(0f, neighbors.similarityAt(i))));
             rec.setAlgorithm("CONTENT_BASED");
-            rec.setCreatedAt(LocalDateTime.now());
-            rec.setExpiresAt(LocalDateTime.now().plusDays(7));
+            rec.setCreatedAt(now);
+            rec.setExpiresAt(now.plusDays(7));
             recommendations.add(rec);
         }
 
-        recommendationRepository.saveAll(recommendations);
-        return recommendations;
+        recommendationWriteBehindService.enqueue(recommendations);
+        return new ContentRecommendations(recommendations, degraded);
+    }
+
+    /**
+     * Embed products that have no stored vector within the content deadline. Returns false
+     * when the deadline passed, the call failed or the breaker is open; the products are
+     * then indexed in the background for later requests.
+     */
+    private boolean embedMissing(List<Long> productIds) {
+        try {
+            embeddingBreaker.protect(() -> productVectorIndexService.indexProducts(productIds), deadline).block();
+            return true;
+        } catch (RuntimeException e) {
+            log.info("Content scoring degraded for " + productIds.size() + " unembedded products: " + e.getMessage());
+            if (!(e instanceof CircuitBreaker.OpenException)) {
+                productVectorIndexService.indexLater(productIds);
+            }
+            return false;
+        }
     }
 
     /**
-     * Get similar products to a given product
+     * Get similar products to a given product from the approximate nearest-neighbor index
      */
     public List<Recommendation> getSimilarProducts(Long productId, int limit) {
         log.info("Getting similar products for product: " + productId);
 
-        List<Recommendation> recommendations = new ArrayList<>();
-
-        // Mock similar products
-        for (int i = 1; i <= limit; i++) {
+        HnswIndex.Neighbors neighbors = productVectorIndexService.similarProducts(productId, limit);
+        List<Recommendation> recommendations = new ArrayList<>(neighbors.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < neighbors.size(); i++) {
             Recommendation rec = new Recommendation();
             rec.setUserId(null); // Not user-specific
-            rec.setProductId(productId + i);
-            rec.setScore(BigDecimal.valueOf(0.9 - (i * 0.1)));
+            rec.setProductId(neighbors.idAt(i));
+            rec.setScore(BigDecimal.valueOf(neighbors.similarityAt(i)));
             rec.setAlgorithm("SIMILAR_PRODUCTS");
-            rec.setCreatedAt(LocalDateTime.now());
-            rec.setExpiresAt(LocalDateTime.now().plusDays(7));
+            rec.setCreatedAt(now);
+            rec.setExpiresAt(now.plusDays(7));
             recommendations.add(rec);
         }
 
@@ -107,57 +222,51 @@ public class ContentBasedFilteringService {
             return Mono.just(Collections.emptyList());
         }
 
-        // Calculate similarity scores for all combinations
-        List<Mono<Map.Entry<Integer, Double>>> similarityMonos = new ArrayList<>();
-
-        for (int i = 0; i < userProductTexts.size(); i++) {
-            String userProductText = userProductTexts.get(i);
-            for (int j = 0; j < candidateProductTexts.size(); j++) {
-                String candidateText = candidateProductTexts.get(j);
-                final int candidateIndex = j;
-
-                Mono<Double> similarityMono = huggingFaceClient.calculateSimilarity(userProductText, candidateText);
-                Mono<Map.Entry<Integer, Double>> entryMono = similarityMono.map(score ->
-                    new AbstractMap.SimpleEntry<>(candidateIndex, score)
-                );
-                similarityMonos.add(entryMono);
-            }
+        // Embed every distinct text exactly once, user and candidate texts together
+        Map<String, Integer> distinct = new LinkedHashMap<>();
+        int[] userRows = new int[userProductTexts.size()];
+        for (int i = 0; i < userRows.length; i++) {
+            userRows[i] = distinct.computeIfAbsent(userProductTexts.get(i), text -> distinct.size());
+        }
+        int[] candidateRows = new int[candidateProductTexts.size()];
+        for (int j = 0; j < candidateRows.length; j++) {
+            candidateRows[j] = distinct.computeIfAbsent(candidateProductTexts.get(j), text -> distinct.size());
         }
 
-        return Mono.zip(similarityMonos, results -> {
-            // Aggregate similarity scores
-            Map<Integer, Double> maxSimilarities = new HashMap<>();
-
-            for (Object result : results) {
-                @SuppressWarnings("unchecked")
-                Map.Entry<Integer, Double> entry = (Map.Entry<Integer, Double>) result;
-                Integer candidateIndex = entry.getKey();
-                Double score = entry.getValue();
+        return embeddingProvider.getEmbeddingsBatch(new ArrayList<>(distinct.keySet())).map(embeddings -> {
+            // Best similarity of each candidate to any user text, as one blocked matrix product
+            EmbeddingMatrix userMatrix = EmbeddingMatrix.of(rowsOf(embeddings, userRows));
+            EmbeddingMatrix candidateMatrix = EmbeddingMatrix.of(rowsOf(embeddings, candidateRows));
+            double[] maxSimilarities = candidateMatrix.maxCosine(userMatrix);
 
-                maxSimilarities.merge(candidateIndex, score, Math::max);
+            // Select the most similar candidates and create recommendations
+            List<Recommendation> recommendations = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+            for (int candidateIndex : TopK.select(maxSimilarities, maxSimilarities.length, limit)) {
+                Recommendation rec = new Recommendation();
+                rec.setUserId(userId);
+                rec.setProductId((long) candidateIndex); // This should be mapped to actual product ID
+                rec.setScore(BigDecimal.valueOf(maxSimilarities[candidateIndex]));
+                rec.setAlgorithm("CONTENT_BASED");
+                rec.setCreatedAt(now);
+                rec.setExpiresAt(now.plusDays(7));
+                recommendations.add(rec);
             }
-
-            // Sort by similarity score and create recommendations
-            return maxSimilarities.entrySet().stream()
-                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
-                    .limit(limit)
-                    .map(entry -> {
-                        Recommendation rec = new Recommendation();
-                        rec.setUserId(userId);
-                        rec.setProductId((long) entry.getKey()); // This should be mapped to actual product ID
-                        rec.setScore(BigDecimal.valueOf(entry.getValue()));
-                        rec.setAlgorithm("CONTENT_BASED");
-                        rec.setCreatedAt(LocalDateTime.now());
-                        rec.setExpiresAt(LocalDateTime.now().plusDays(7));
-                        return rec;
-                    })
-                    .collect(Collectors.toList());
+            return recommendations;
         }).doOnNext(recommendations -> {
-            recommendationRepository.saveAll(recommendations);
+            recommendationWriteBehindService.enqueue(recommendations);
             log.info("Generated " + recommendations.size() + " content-based recommendations for user: " + userId);
         });
     }
 
+    private static List<double[]> rowsOf(List<double[]> embeddings, int[] rows) {
+        List<double[]> selected = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            selected.add(embeddings.get(row));
+        }
+        return selected;
+    }
+
     /**
      * Hybrid approach combining multiple content features
      */
@@ -172,24 +281,24 @@ public class ContentBasedFilteringService {
      * Get product embeddings for caching and faster similarity calculations
      */
     public Mono<double[]> getProductEmbedding(String productText) {
-        return huggingFaceClient.getEmbeddings(productText);
+        return embeddingProvider.getEmbeddings(productText);
     }
 
     /**
-     * Batch process embeddings for multiple products
+     * Batch process embeddings for multiple products with batched inference requests
      */
     public Mono<Map<Long, double[]>> getProductEmbeddingsBatch(Map<Long, String> productTexts) {
-        List<Mono<Map.Entry<Long, double[]>>> embeddingMonos = productTexts.entrySet().stream()
-                .map(entry -> huggingFaceClient.getEmbeddings(entry.getValue())
-                        .map(embedding -> new AbstractMap.SimpleEntry<>(entry.getKey(), embedding)))
-                .collect(Collectors.toList());
+        List<Long> productIds = new ArrayList<>(productTexts.size());
+        List<String> texts = new ArrayList<>(productTexts.size());
+        productTexts.forEach((productId, text) -> {
+            productIds.add(productId);
+            texts.add(text);
+        });
 
-        return Mono.zip(embeddingMonos, results -> {
+        return embeddingProvider.getEmbeddingsBatch(texts).map(results -> {
             Map<Long, double[]> embeddings = new HashMap<>();
-            for (Object result : results) {
-                @SuppressWarnings("unchecked")
-                Map.Entry<Long, double[]> entry = (Map.Entry<Long, double[]>) result;
-                embeddings.put(entry.getKey(), entry.getValue());
+            for (int i = 0; i < productIds.size(); i++) {
+                embeddings.put(productIds.get(i), results.get(i));
             }
             return embeddings;
         });
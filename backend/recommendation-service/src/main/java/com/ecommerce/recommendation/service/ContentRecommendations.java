@@ -0,0 +1,31 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.entity.Recommendation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Content-based recommendations for a user, flagged when they were computed without the
+ * embeddings of some of the user's products because the embedding path was unavailable
+ */
+public class ContentRecommendations {
+
+    private static final ContentRecommendations EMPTY = new ContentRecommendations(Collections.emptyList(), false);
+
+    private final List<Recommendation> recommendations;
+    private final boolean degraded;
+
+    public ContentRecommendations(List<Recommendation> recommendations, boolean degraded) {
+        this.recommendations = recommendations;
+        this.degraded = degraded;
+    }
+
+    public static ContentRecommendations empty() {
+        return EMPTY;
+    }
+
+    public List<Recommendation> getRecommendations() { return recommendations; }
+
+    public boolean isDegraded() { return degraded; }
+}
@@ -2,196 +2,85 @@ package com.ecommerce.recommendation.service;
 
 import com.ecommerce.recommendation.dto.RecommendationDTO;
 import com.ecommerce.recommendation.entity.Recommendation;
+import com.ecommerce.recommendation.ranking.RankingPipeline;
+import com.ecommerce.recommendation.ranking.RankingResult;
+import com.ecommerce.recommendation.ranking.RecommendationAlgorithm;
 import com.ecommerce.recommendation.repository.RecommendationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @Service
 public class HybridRecommendationService {
 
-    private final CollaborativeFilteringService collaborativeFilteringService;
-    private final ContentBasedFilteringService contentBasedFilteringService;
-    private final RecommendationRepository recommendationRepository;
+    private static final Logger log = Logger.getLogger(HybridRecommendationService.class.getName());
 
-    // Weights for hybrid scoring
-    private static final double COLLABORATIVE_WEIGHT = 0.6;
-    private static final double CONTENT_BASED_WEIGHT = 0.4;
-    private static final double TEMPORAL_DECAY_FACTOR = 0.95;
-    private static final double POPULARITY_BOOST = 0.1;
+    private final RankingPipeline rankingPipeline;
+    private final RecommendationRepository recommendationRepository;
+    private final Counter fullResponses;
+    private final Counter degradedResponses;
 
-    public HybridRecommendationService(CollaborativeFilteringService collaborativeFilteringService,
-                                     ContentBasedFilteringService contentBasedFilteringService,
-                                     RecommendationRepository recommendationRepository) {
-        this.collaborativeFilteringService = collaborativeFilteringService;
-        this.contentBasedFilteringService = contentBasedFilteringService;
+    public HybridRecommendationService(RankingPipeline rankingPipeline,
+                                     RecommendationRepository recommendationRepository,
+                                     MeterRegistry meterRegistry) {
+        this.rankingPipeline = rankingPipeline;
         this.recommendationRepository = recommendationRepository;
+        this.fullResponses = meterRegistry.counter("recommendation.hybrid.responses", "degraded", "false");
+        this.degradedResponses = meterRegistry.counter("recommendation.hybrid.responses", "degraded", "true");
     }
 
     /**
-     * Generate hybrid recommendations combining collaborative and content-based filtering
-     * with advanced scoring algorithm including temporal decay and popularity boost
-     */
-    @Cacheable(value = "hybridRecommendations", key = "#userId + '_' + #limit")
-    public List<RecommendationDTO> getHybridRecommendations(Long userId, int limit) {
-        System.out.println("Generating hybrid recommendations for user: {}", userId);
-
-        // Get recommendations from both algorithms
-        List<Recommendation> collaborativeRecs = collaborativeFilteringService
-            .getUserBasedRecommendations(userId, limit * 2);
-        List<Recommendation> contentBasedRecs = contentBasedFilteringService
-            .getContentBasedRecommendations(userId, limit * 2);
-
-        // Convert to DTOs and combine
-        List<RecommendationDTO> collaborativeDTOs = collaborativeRecs.stream()
-            .map(rec -> {
-                RecommendationDTO dto = new RecommendationDTO();
-                dto.setId(rec.getId());
-                dto.setUserId(rec.getUserId());
-                dto.setProductId(rec.getProductId());
-                dto.setScore(rec.getScore());
-                dto.setAlgorithm(rec.getAlgorithm());
-                dto.setCreatedAt(rec.getCreatedAt());
-                return dto;
-            })
-            .collect(Collectors.toList());
-
-        List<RecommendationDTO> contentBasedDTOs = contentBasedRecs.stream()
-            .map(rec -> {
-                RecommendationDTO dto = new RecommendationDTO();
-                dto.setId(rec.getId());
-                dto.setUserId(rec.getUserId());
-                dto.setProductId(rec.getProductId());
-                dto.setScore(rec.getScore());
-                dto.setAlgorithm(rec.getAlgorithm());
-                dto.setCreatedAt(rec.getCreatedAt());
-                return dto;
-            })
-            .collect(Collectors.toList());
-
-        // Combine and score recommendations
-        Map<Long, HybridScore> productScores = new HashMap<>();
-
-        // Process collaborative filtering recommendations
-        for (RecommendationDTO rec : collaborativeDTOs) {
-            productScores.computeIfAbsent(rec.getProductId(), k -> new HybridScore())
-                .addCollaborativeScore(rec.getScore().doubleValue());
-        }
-
-        // Process content-based recommendations
-        for (RecommendationDTO rec : contentBasedDTOs) {
-            productScores.computeIfAbsent(rec.getProductId(), k -> new HybridScore())
-                .addContentBasedScore(rec.getScore().doubleValue());
-        }
-
-        // Calculate final hybrid scores and apply advanced algorithms
-        List<RecommendationDTO> hybridRecommendations = productScores.entrySet().stream()
-            .map(entry -> {
-                Long productId = entry.getKey();
-                HybridScore score = entry.getValue();
-
-                double hybridScore = calculateHybridScore(score);
-                double finalScore = applyAdvancedScoring(hybridScore, productId);
-
-                RecommendationDTO dto = new RecommendationDTO();
-                dto.setUserId(userId);
-                dto.setProductId(productId);
-                dto.setScore(BigDecimal.valueOf(finalScore));
-                dto.setAlgorithm("hybrid");
-                dto.setCreatedAt(java.time.LocalDateTime.now());
-                return dto;
-            })
-            .sorted((a, b) -> Double.compare(b.getScore().doubleValue(), a.getScore().doubleValue()))
-            .limit(limit)
-            .collect(Collectors.toList());
-
-        System.out.println("Generated {} hybrid recommendations for user: {}", hybridRecommendations.size(), userId);
-        return hybridRecommendations;
-    }
-
-    /**
-     * Calculate hybrid score using weighted combination
+     * Generate recommendations of the given algorithm through the ranking pipeline; hybrid
+     * combines collaborative and content-based filtering with advanced scoring including
+     * temporal decay and popularity boost.
+     * When the ranking pipeline dropped a source or skipped a stage the response is
+     * flagged as degraded and not cached. Empty responses are not cached either, since
+     * that is what an outage of every source looks like.
      */
-    private double calculateHybridScore(HybridScore score) {
-        double collaborativeScore = score.getCollaborativeScore() * COLLABORATIVE_WEIGHT;
-        double contentBasedScore = score.getContentBasedScore() * CONTENT_BASED_WEIGHT;
-
-        // Handle cases where one algorithm has no score
-        if (score.getCollaborativeScore() == 0) {
-            return contentBasedScore * 1.5; // Boost content-based when collaborative is missing
-        }
-        if (score.getContentBasedScore() == 0) {
-            return collaborativeScore * 1.3; // Boost collaborative when content-based is missing
-        }
-
-        return collaborativeScore + contentBasedScore;
+    @Cacheable(value = "recommendations", key = "#userId + '_' + #limit + '_' + #algorithm",
+            unless = "#result.isEmpty() || #result[0].degraded")
+    public List<RecommendationDTO> getRecommendations(Long userId, int limit, RecommendationAlgorithm algorithm) {
+        log.info("Generating " + algorithm + " recommendations for user: " + userId);
+        return computeRecommendations(userId, limit, algorithm);
     }
 
     /**
-     * Apply advanced scoring algorithms including temporal decay and popularity
+     * Score hybrid recommendations without consulting or filling the cache, for callers
+     * such as the batch materializer that keep their own copy
      */
-    private double applyAdvancedScoring(double baseScore, Long productId) {
-        double score = baseScore;
-
-        // Apply temporal decay based on recommendation freshness
-        score = applyTemporalDecay(score, productId);
-
-        // Apply popularity boost
-        score = applyPopularityBoost(score, productId);
-
-        // Apply diversity penalty to avoid over-recommendation
-        score = applyDiversityPenalty(score, productId);
-
-        return Math.max(0, Math.min(1, score)); // Normalize to [0,1]
+    public List<RecommendationDTO> computeHybridRecommendations(Long userId, int limit) {
+        return computeRecommendations(userId, limit, RecommendationAlgorithm.HYBRID);
     }
 
-    /**
-     * Apply temporal decay - newer recommendations get higher scores
-     */
-    private double applyTemporalDecay(double score, Long productId) {
-        // Get the most recent recommendation for this product
-        Optional<Recommendation> recentRec = recommendationRepository
-            .findTopByProductIdOrderByCreatedAtDesc(productId);
-
-        if (recentRec.isPresent()) {
-            long hoursSinceCreation = java.time.Duration.between(
-                recentRec.get().getCreatedAt(),
-                java.time.LocalDateTime.now()
-            ).toHours();
-
-            // Apply exponential decay
-            double decay = Math.pow(TEMPORAL_DECAY_FACTOR, hoursSinceCreation / 24.0);
-            return score * decay;
+    private List<RecommendationDTO> computeRecommendations(Long userId, int limit, RecommendationAlgorithm algorithm) {
+        RankingResult ranked = rankingPipeline.rank(userId, limit, algorithm);
+        boolean degraded = ranked.isDegraded();
+
+        List<RecommendationDTO> recommendations = new ArrayList<>(ranked.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ranked.size(); i++) {
+            RecommendationDTO dto = new RecommendationDTO();
+            dto.setUserId(userId);
+            dto.setProductId(ranked.productIdAt(i));
+            dto.setScore(BigDecimal.valueOf(ranked.scoreAt(i)));
+            dto.setAlgorithm(algorithm.label());
+            dto.setRankPosition(i + 1);
+            dto.setCreatedAt(now);
+            dto.setDegraded(degraded);
+            recommendations.add(dto);
         }
 
-        return score;
-    }
-
-    /**
-     * Apply popularity boost based on interaction frequency
-     */
-    private double applyPopularityBoost(double score, Long productId) {
-        // Count total interactions for this product
-        long interactionCount = recommendationRepository.countByProductId(productId);
-
-        // Apply logarithmic popularity boost
-        double popularityBoost = Math.log(interactionCount + 1) * POPULARITY_BOOST;
-        return score + popularityBoost;
-    }
-
-    /**
-     * Apply diversity penalty to encourage exploration
-     */
-    private double applyDiversityPenalty(double score, Long productId) {
-        // Simple diversity mechanism - could be enhanced with category diversity
-        // For now, apply small penalty to very high scores to promote exploration
-        if (score > 0.8) {
-            return score * 0.98; // 2% penalty for very high scores
-        }
-        return score;
+        (degraded ? degradedResponses : fullResponses).increment();
+        log.fine("Generated " + recommendations.size() + " " + algorithm + " recommendations for user: " + userId
+                + (degraded ? " (degraded)" : ""));
+        return recommendations;
     }
 
     /**
@@ -213,32 +102,4 @@ public class HybridRecommendationService {
             })
             .collect(Collectors.toList());
     }
-
-    /**
-     * Inner class to hold hybrid scoring components
-     */
-    private static class HybridScore {
-        private double collaborativeScore = 0.0;
-        private double contentBasedScore = 0.0;
-        private int collaborativeCount = 0;
-        private int contentBasedCount = 0;
-
-        public void addCollaborativeScore(double score) {
-            this.collaborativeScore = (this.collaborativeScore * collaborativeCount + score) / (collaborativeCount + 1);
-            collaborativeCount++;
-        }
-
-        public void addContentBasedScore(double score) {
-            this.contentBasedScore = (this.contentBasedScore * contentBasedCount + score) / (contentBasedCount + 1);
-            contentBasedCount++;
-        }
-
-        public double getCollaborativeScore() {
-            return collaborativeScore;
-        }
-
-        public double getContentBasedScore() {
-            return contentBasedScore;
-        }
-    }
 }
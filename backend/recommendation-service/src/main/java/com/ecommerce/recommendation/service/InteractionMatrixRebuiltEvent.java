@@ -0,0 +1,17 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+
+/**
+ * Published after a full interaction matrix rebuild so derived indexes can refresh
+ */
+public class InteractionMatrixRebuiltEvent {
+
+    private final InteractionMatrix matrix;
+
+    public InteractionMatrixRebuiltEvent(InteractionMatrix matrix) {
+        this.matrix = matrix;
+    }
+
+    public InteractionMatrix getMatrix() { return matrix; }
+}
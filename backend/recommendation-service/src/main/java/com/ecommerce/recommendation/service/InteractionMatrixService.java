@@ -0,0 +1,210 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.IdIndex;
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.repository.UserInteractionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Holds the resident user x product interaction matrix used by collaborative filtering.
+ * The matrix is loaded from user_interactions at startup and rebuilt periodically, so
+ * recommendation requests never go to the database for interaction data.
+ */
+@Service
+public class InteractionMatrixService {
+
+    private static final Logger log = Logger.getLogger(InteractionMatrixService.class.getName());
+
+    private final UserInteractionRepository interactionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Shared across rebuilds so dense indices stay stable for derived structures
+    private final IdIndex userIndex = new IdIndex();
+    private final IdIndex productIndex = new IdIndex();
+
+    private volatile InteractionMatrix matrix;
+
+    // Interactions recorded while a rebuild is loading, replayed onto the new snapshot
+    // unless the load already read them
+    private final Object pendingLock = new Object();
+    private List<PendingInteraction> pending;
+
+    @Value("${recommendation.matrix.load-chunk-size:50000}")
+    private int loadChunkSize;
+
+    public InteractionMatrixService(UserInteractionRepository interactionRepository,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.interactionRepository = interactionRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Current matrix snapshot, loading it on first use if startup loading has not finished yet
+     */
+    public InteractionMatrix current() {
+        InteractionMatrix snapshot = matrix;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (matrix == null) {
+                    rebuild();
+                }
+                snapshot = matrix;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Apply a newly recorded interaction to the live matrix
+     *
+     * @param interactionId id of the persisted user_interactions row
+     * @return true if this is the first interaction between the user and the product
+     */
+    public boolean record(Long interactionId, Long userId, Long productId, float weight, boolean purchase) {
+        current();
+        synchronized (pendingLock) {
+            if (pending != null) {
+                pending.add(new PendingInteraction(interactionId, userId, productId, weight, purchase));
+            }
+            return matrix.record(userId, productId, weight, purchase);
+        }
+    }
+
+    /**
+     * Strength stored for an interaction: its weight (default 1) scaled by the explicit
+     * rating relative to the neutral midpoint 3 of the 1-5 scale, when one was given
+     */
+    public static float interactionStrength(Double weight, Integer rating) {
+        float strength = weight != null ? weight.floatValue() : 1.0f;
+        if (rating != null && rating > 0) {
+            strength *= rating / 3.0f;
+        }
+        return strength;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        current();
+    }
+
+    @Scheduled(initialDelayString = "${recommendation.matrix.refresh-interval:600000}",
+               fixedDelayString = "${recommendation.matrix.refresh-interval:600000}")
+    public void scheduledRefresh() {
+        rebuild();
+    }
+
+    /**
+     * Reload every interaction and atomically swap in a freshly compacted matrix
+     */
+    public synchronized InteractionMatrix rebuild() {
+        long start = System.nanoTime();
+        synchronized (pendingLock) {
+            pending = new ArrayList<>();
+        }
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(userIndex, productIndex);
+
+        long afterId = 0L;
+        int loaded = 0;
+        IdGaps gaps = new IdGaps();
+        List<Object[]> chunk;
+        do {
+            chunk = interactionRepository.findInteractionTuplesAfter(afterId, PageRequest.of(0, loadChunkSize));
+            for (Object[] row : chunk) {
+                long id = (Long) row[0];
+                if (id > afterId + 1) {
+                    gaps.add(afterId + 1, id - 1);
+                }
+                Long userId = (Long) row[1];
+                Long productId = (Long) row[2];
+                String interactionType = (String) row[3];
+                Double weight = (Double) row[4];
+                Integer rating = (Integer) row[5];
+
+                builder.add(userId, productId, interactionStrength(weight, rating),
+                        "PURCHASE".equalsIgnoreCase(interactionType));
+                afterId = id;
+            }
+            loaded += chunk.size();
+        } while (chunk.size() == loadChunkSize);
+
+        InteractionMatrix rebuilt = builder.build();
+        synchronized (pendingLock) {
+            // Rows the load read are already in the snapshot. Ids are assigned before commit, so a
+            // row it could not see lies either past the last loaded id or inside a gap it skipped.
+            for (PendingInteraction interaction : pending) {
+                if (interaction.id > afterId || gaps.contains(interaction.id)) {
+                    rebuilt.record(interaction.userId, interaction.productId, interaction.weight, interaction.purchase);
+                }
+            }
+            pending = null;
+            matrix = rebuilt;
+        }
+
+        log.info("Loaded interaction matrix: " + loaded + " interactions, " + rebuilt.numUsers() + " users, "
+                + rebuilt.numProducts() + " products, " + rebuilt.nonZeros() + " non-zeros in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        eventPublisher.publishEvent(new InteractionMatrixRebuiltEvent(rebuilt));
+        return rebuilt;
+    }
+
+    private static final class PendingInteraction {
+        private final long id;
+        private final long userId;
+        private final long productId;
+        private final float weight;
+        private final boolean purchase;
+
+        private PendingInteraction(long id, long userId, long productId, float weight, boolean purchase) {
+            this.id = id;
+            this.userId = userId;
+            this.productId = productId;
+            this.weight = weight;
+            this.purchase = purchase;
+        }
+    }
+
+    /**
+     * Id ranges a load skipped over: rows not yet committed, rolled back or deleted.
+     * Appended in ascending order, so membership is a binary search.
+     */
+    private static final class IdGaps {
+        private long[] bounds = new long[16];
+        private int size;
+
+        void add(long from, long to) {
+            if (size == bounds.length) {
+                bounds = Arrays.copyOf(bounds, size * 2);
+            }
+            bounds[size++] = from;
+            bounds[size++] = to;
+        }
+
+        boolean contains(long id) {
+            int low = 0;
+            int high = size / 2 - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (id < bounds[2 * mid]) {
+                    high = mid - 1;
+                } else if (id > bounds[2 * mid + 1]) {
+                    low = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.recommendation.service;
+
+/**
+ * Published after a user interaction has been persisted and applied to the live matrix,
+ * so anything derived from that user's recommendations can be invalidated
+ */
+public class InteractionRecordedEvent {
+
+    private final Long userId;
+    private final Long productId;
+
+    public InteractionRecordedEvent(Long userId, Long productId) {
+        this.userId = userId;
+        this.productId = productId;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public Long getProductId() { return productId; }
+}
@@ -0,0 +1,75 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.dto.UserInteractionDTO;
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.entity.UserInteraction;
+import com.ecommerce.recommendation.repository.UserInteractionRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.logging.Logger;
+
+/**
+ * Records user interactions and streams them into the in-memory collaborative filtering
+ * model, so new behavior is visible to recommendations without waiting for a rebuild.
+ */
+@Service
+public class InteractionService {
+
+    private static final Logger log = Logger.getLogger(InteractionService.class.getName());
+
+    private final UserInteractionRepository interactionRepository;
+    private final InteractionMatrixService interactionMatrixService;
+    private final ItemNeighborIndexService itemNeighborIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InteractionService(UserInteractionRepository interactionRepository,
+                              InteractionMatrixService interactionMatrixService,
+                              ItemNeighborIndexService itemNeighborIndexService,
+                              ApplicationEventPublisher eventPublisher) {
+        this.interactionRepository = interactionRepository;
+        this.interactionMatrixService = interactionMatrixService;
+        this.itemNeighborIndexService = itemNeighborIndexService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Persist the interaction, apply it to the live matrix and the item neighbor index,
+     * then announce it so the user's cached recommendations are invalidated
+     */
+    public UserInteraction saveInteraction(UserInteractionDTO interactionDTO) {
+        if (interactionDTO.getUserId() == null || interactionDTO.getProductId() == null
+                || interactionDTO.getInteractionType() == null) {
+            throw new IllegalArgumentException("userId, productId and interactionType are required");
+        }
+
+        UserInteraction interaction = new UserInteraction();
+        interaction.setUserId(interactionDTO.getUserId());
+        interaction.setProductId(interactionDTO.getProductId());
+        interaction.setInteractionType(interactionDTO.getInteractionType());
+        interaction.setRating(interactionDTO.getRating());
+        interaction.setTimestamp(interactionDTO.getTimestamp() != null ? interactionDTO.getTimestamp() : LocalDateTime.now());
+        interaction.setSessionId(interactionDTO.getSessionId());
+        interaction.setWeight(interactionDTO.getWeight());
+        UserInteraction saved = interactionRepository.save(interaction);
+
+        float weight = InteractionMatrixService.interactionStrength(saved.getWeight(), saved.getRating());
+        boolean purchase = "PURCHASE".equalsIgnoreCase(saved.getInteractionType());
+        boolean newPair = interactionMatrixService.record(saved.getId(), saved.getUserId(), saved.getProductId(),
+                weight, purchase);
+
+        // Only a first-time pair changes co-occurrence counts
+        if (newPair) {
+            InteractionMatrix matrix = interactionMatrixService.current();
+            itemNeighborIndexService.onNewPair(matrix,
+                    matrix.userIndex(saved.getUserId()), matrix.productIndex(saved.getProductId()));
+        }
+
+        eventPublisher.publishEvent(new InteractionRecordedEvent(saved.getUserId(), saved.getProductId()));
+
+        log.fine("Recorded " + saved.getInteractionType() + " interaction for user " + saved.getUserId()
+                + " on product " + saved.getProductId());
+        return saved;
+    }
+}
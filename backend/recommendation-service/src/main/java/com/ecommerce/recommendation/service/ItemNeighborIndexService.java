@@ -0,0 +1,111 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.engine.ItemNeighborIndex;
+import com.ecommerce.recommendation.engine.MinHashIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the top-K item-item neighbor index. The index is rebuilt on a background
+ * thread whenever the interaction matrix is reloaded and adjusted incrementally as new
+ * interactions are recorded, so requests only ever read it.
+ */
+@Service
+public class ItemNeighborIndexService {
+
+    private static final Logger log = Logger.getLogger(ItemNeighborIndexService.class.getName());
+
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "item-neighbor-index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MinHashIndexService minHashIndexService;
+
+    private volatile ItemNeighborIndex index;
+
+    @Value("${recommendation.algorithms.collaborative.neighborhood-size:50}")
+    private int neighborhoodSize;
+
+    public ItemNeighborIndexService(MinHashIndexService minHashIndexService) {
+        this.minHashIndexService = minHashIndexService;
+    }
+
+    /**
+     * Current index, or null while the first build is still running
+     */
+    public ItemNeighborIndex current() {
+        return index;
+    }
+
+    public int getNeighborhoodSize() {
+        return neighborhoodSize;
+    }
+
+    @EventListener
+    public void onMatrixRebuilt(InteractionMatrixRebuiltEvent event) {
+        builder.submit(() -> rebuild(event.getMatrix()));
+    }
+
+    /**
+     * Adjust the rows affected by a new (user, product) pair. Updates run on the same
+     * thread as full rebuilds, so they are applied in order and never race a rebuild.
+     */
+    public void onNewPair(InteractionMatrix matrix, int user, int product) {
+        builder.submit(() -> {
+            ItemNeighborIndex current = index;
+            if (current == null) {
+                return;
+            }
+            try {
+                current.update(matrix, user, product);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to update item neighbor index for product index " + product, e);
+            }
+        });
+    }
+
+    private void rebuild(InteractionMatrix matrix) {
+        try {
+            ItemNeighborIndex rebuilt;
+            String mode;
+            if (minHashIndexService.isEnabled()) {
+                MinHashIndex minHash = minHashIndexService.rebuild(matrix, neighborhoodSize);
+                long start = System.nanoTime();
+                rebuilt = ItemNeighborIndex.buildApproximate(minHash, neighborhoodSize,
+                        minHashIndexService.getMaxCandidates());
+                mode = "approximate, " + (System.nanoTime() - start) / 1_000_000 + " ms";
+            } else {
+                long start = System.nanoTime();
+                rebuilt = ItemNeighborIndex.build(matrix, neighborhoodSize);
+                mode = "exact, " + (System.nanoTime() - start) / 1_000_000 + " ms";
+            }
+            // The build reads the snapshot only; fold in pairs recorded since, including
+            // those replayed onto the matrix after its load
+            int[] replayed = {0};
+            matrix.forEachRecordedPair((user, product) -> {
+                rebuilt.update(matrix, user, product);
+                replayed[0]++;
+            });
+            index = rebuilt;
+            log.info("Built item neighbor index for " + rebuilt.numProducts() + " products (k=" + neighborhoodSize
+                    + ", " + mode + ", " + replayed[0] + " recorded pairs applied)");
+        } catch (RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to build item neighbor index", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.engine.MinHashIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.logging.Logger;
+
+/**
+ * Owns the MinHash/LSH similarity index used for approximate item and user neighbors
+ * at catalog scale. Rebuilt by {@link ItemNeighborIndexService} on its builder thread
+ * whenever the interaction matrix is reloaded.
+ */
+@Service
+public class MinHashIndexService {
+
+    private static final Logger log = Logger.getLogger(MinHashIndexService.class.getName());
+
+    private volatile MinHashIndex index;
+
+    @Value("${recommendation.algorithms.collaborative.minhash.enabled:false}")
+    private boolean enabled;
+
+    @Value("${recommendation.algorithms.collaborative.minhash.bands:20}")
+    private int bands;
+
+    @Value("${recommendation.algorithms.collaborative.minhash.rows-per-band:3}")
+    private int rowsPerBand;
+
+    @Value("${recommendation.algorithms.collaborative.minhash.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${recommendation.algorithms.collaborative.minhash.recall-sample-size:0}")
+    private int recallSampleSize;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Current index, or null when disabled or not built yet
+     */
+    public MinHashIndex current() {
+        return enabled ? index : null;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public MinHashIndex rebuild(InteractionMatrix matrix, int neighborhoodSize) {
+        long start = System.nanoTime();
+        MinHashIndex rebuilt = MinHashIndex.build(matrix, bands, rowsPerBand, 42L);
+        index = rebuilt;
+        log.info("Built MinHash index (" + bands + " bands x " + rowsPerBand + " rows) for "
+                + rebuilt.numProducts() + " products and " + rebuilt.numUsers() + " users in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        if (recallSampleSize > 0) {
+            MinHashRecallCheck.Report report = MinHashRecallCheck.run(matrix, rebuilt, neighborhoodSize,
+                    maxCandidates, recallSampleSize, System.nanoTime());
+            log.info("MinHash vs exact item neighbors: " + report);
+        }
+        return rebuilt;
+    }
+}
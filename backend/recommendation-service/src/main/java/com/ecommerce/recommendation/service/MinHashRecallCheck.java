@@ -0,0 +1,98 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.InteractionMatrix;
+import com.ecommerce.recommendation.engine.ItemNeighborIndex;
+import com.ecommerce.recommendation.engine.MinHashIndex;
+
+import java.util.Random;
+
+/**
+ * Diagnostic run after a MinHash rebuild: on a sample of products, compares the
+ * approximate item neighbor rows, ranked exactly as they are served, against the exact
+ * co-occurrence rows. Reports recall@K of the served rows and mean latency of each path.
+ */
+final class MinHashRecallCheck {
+
+    private MinHashRecallCheck() {}
+
+    static Report run(InteractionMatrix matrix, MinHashIndex minHash, int neighborhoodSize,
+                      int maxCandidates, int sampleSize, long seed) {
+        int numProducts = Math.min(matrix.numProducts(), minHash.numProducts());
+        Random random = new Random(seed);
+        ItemNeighborIndex.Scratch scratch = new ItemNeighborIndex.Scratch(matrix.numProducts(), neighborhoodSize);
+        int[] approximateProducts = new int[neighborhoodSize];
+        float[] approximateScores = new float[neighborhoodSize];
+
+        long exactNanos = 0;
+        long approximateNanos = 0;
+        long relevant = 0;
+        long retrieved = 0;
+        int sampled = 0;
+        for (int attempt = 0; attempt < sampleSize * 4 && sampled < sampleSize && numProducts > 0; attempt++) {
+            int product = random.nextInt(numProducts);
+            if (matrix.snapshotProductDegree(product) == 0) {
+                continue;
+            }
+            sampled++;
+
+            long start = System.nanoTime();
+            int exactCount = ItemNeighborIndex.computeRow(matrix, product, neighborhoodSize, scratch);
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int approximateCount = ItemNeighborIndex.computeApproximateRow(minHash, product, neighborhoodSize,
+                    maxCandidates, approximateProducts, approximateScores);
+            approximateNanos += System.nanoTime() - start;
+
+            // Both rows hold at most K products, so this is recall of the exact top K in the served top K
+            relevant += exactCount;
+            for (int i = 0; i < exactCount; i++) {
+                int expected = scratch.heapProducts[i];
+                for (int j = 0; j < approximateCount; j++) {
+                    if (approximateProducts[j] == expected) {
+                        retrieved++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return new Report(sampled, neighborhoodSize,
+                relevant == 0 ? 1.0 : (double) retrieved / relevant,
+                sampled == 0 ? 0 : exactNanos / sampled / 1000.0,
+                sampled == 0 ? 0 : approximateNanos / sampled / 1000.0);
+    }
+
+    /**
+     * Outcome of a recall check
+     */
+    static final class Report {
+        private final int sampledProducts;
+        private final int k;
+        private final double recall;
+        private final double exactMicros;
+        private final double approximateMicros;
+
+        Report(int sampledProducts, int k, double recall, double exactMicros, double approximateMicros) {
+            this.sampledProducts = sampledProducts;
+            this.k = k;
+            this.recall = recall;
+            this.exactMicros = exactMicros;
+            this.approximateMicros = approximateMicros;
+        }
+
+        int getSampledProducts() { return sampledProducts; }
+
+        double getRecall() { return recall; }
+
+        double getExactMicros() { return exactMicros; }
+
+        double getApproximateMicros() { return approximateMicros; }
+
+        @Override
+        public String toString() {
+            return String.format("sampled=%d recall@%d=%.3f exact=%.1fus lsh=%.1fus",
+                    sampledProducts, k, recall, exactMicros, approximateMicros);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.ProductSignals;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the resident {@link ProductSignals} used by hybrid scoring in step with the
+ * recommendations and user_interactions tables. Rows are folded in incrementally by
+ * id watermark, so each refresh only aggregates what was inserted since the last one;
+ * a periodic full reload reconciles rows that committed behind the watermark.
+ */
+@Service
+public class ProductSignalService {
+
+    private static final Logger log = Logger.getLogger(ProductSignalService.class.getName());
+
+    private static final String RECOMMENDATIONS_SQL = "SELECT product_id, COUNT(*), MAX(created_at), MAX(id) "
+            + "FROM recommendations WHERE id > ? GROUP BY product_id";
+    private static final String INTERACTIONS_SQL = "SELECT product_id, COUNT(*), MAX(id) "
+            + "FROM user_interactions WHERE id > ? GROUP BY product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer refreshTimer;
+
+    private volatile ProductSignals signals = new ProductSignals();
+    private long recommendationWatermark;
+    private long interactionWatermark;
+
+    public ProductSignalService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshTimer = Timer.builder("recommendation.signals.refresh")
+                .description("Time to fold new recommendation and interaction rows into the signal store")
+                .register(meterRegistry);
+        meterRegistry.gauge("recommendation.signals.products", this, service -> service.signals.size());
+    }
+
+    /**
+     * Current signals; empty until the first load completes
+     */
+    public ProductSignals current() {
+        return signals;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Fold rows inserted since the last refresh into the live signals
+     */
+    @Scheduled(initialDelayString = "${recommendation.signals.refresh-interval:5000}",
+               fixedDelayString = "${recommendation.signals.refresh-interval:5000}")
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        try {
+            recommendationWatermark = loadRecommendations(signals, recommendationWatermark);
+            interactionWatermark = loadInteractions(signals, interactionWatermark);
+        } catch (RuntimeException e) {
+            // Watermarks only advance on success; the next full reload reconciles any partial fold
+            log.log(Level.WARNING, "Failed to refresh product signals", e);
+        } finally {
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Rebuild the signals from both tables and swap them in
+     */
+    @Scheduled(initialDelayString = "${recommendation.signals.reload-interval:3600000}",
+               fixedDelayString = "${recommendation.signals.reload-interval:3600000}")
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        try {
+            ProductSignals rebuilt = new ProductSignals(Math.max(1024, signals.size()));
+            long recommendations = loadRecommendations(rebuilt, 0L);
+            long interactions = loadInteractions(rebuilt, 0L);
+            signals = rebuilt;
+            recommendationWatermark = recommendations;
+            interactionWatermark = interactions;
+            log.info("Loaded signals for " + rebuilt.size() + " products in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed to reload product signals, keeping the previous ones", e);
+        }
+    }
+
+    private long loadRecommendations(ProductSignals target, long afterId) {
+        long[] watermark = {afterId};
+        jdbcTemplate.query(RECOMMENDATIONS_SQL, row -> {
+            Timestamp lastAt = row.getTimestamp(3);
+            target.addRecommendations(row.getLong(1), row.getInt(2), lastAt != null ? lastAt.getTime() : 0L);
+            watermark[0] = Math.max(watermark[0], row.getLong(4));
+        }, afterId);
+        return watermark[0];
+    }
+
+    private long loadInteractions(ProductSignals target, long afterId) {
+        long[] watermark = {afterId};
+        jdbcTemplate.query(INTERACTIONS_SQL, row -> {
+            target.addInteractions(row.getLong(1), row.getInt(2));
+            watermark[0] = Math.max(watermark[0], row.getLong(3));
+        }, afterId);
+        return watermark[0];
+    }
+}
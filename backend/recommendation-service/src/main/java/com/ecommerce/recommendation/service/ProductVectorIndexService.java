@@ -0,0 +1,308 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.client.EmbeddingProvider;
+import com.ecommerce.recommendation.client.ProductServiceClient;
+import com.ecommerce.recommendation.dto.ProductChangeEventDTO;
+import com.ecommerce.recommendation.dto.ProductDTO;
+import com.ecommerce.recommendation.dto.ProductPageDTO;
+import com.ecommerce.recommendation.engine.HeapVectorStore;
+import com.ecommerce.recommendation.engine.HnswIndex;
+import com.ecommerce.recommendation.engine.QuantizedVectorStore;
+import com.ecommerce.recommendation.engine.VectorMath;
+import com.ecommerce.recommendation.engine.VectorStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps an HNSW index of product embeddings for approximate nearest-neighbor lookups.
+ *
+ * On startup the index is loaded from disk and topped up with any catalog products it is
+ * missing; afterwards products are added, replaced or removed one at a time and the graph
+ * is written back periodically, so restarts never re-embed the whole catalog. Vectors are
+ * held off-heap as int8 or float16 unless quantization is disabled.
+ */
+@Service
+public class ProductVectorIndexService {
+
+    private static final Logger log = Logger.getLogger(ProductVectorIndexService.class.getName());
+
+    private final EmbeddingProvider embeddingProvider;
+    private final ProductServiceClient productServiceClient;
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-ann-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Products queued by indexLater and not yet indexed
+    private final Set<Long> pendingIndex = ConcurrentHashMap.newKeySet();
+
+    private volatile HnswIndex index;
+    private volatile boolean dirty;
+
+    @Value("${recommendation.ann.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.ann.m:16}")
+    private int m;
+
+    @Value("${recommendation.ann.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${recommendation.ann.ef-search:64}")
+    private int efSearch;
+
+    @Value("${recommendation.ann.quantization:int8}")
+    private String quantization;
+
+    @Value("${recommendation.ann.rerank:true}")
+    private boolean rerank;
+
+    @Value("${recommendation.ann.path:data/products.hnsw}")
+    private String indexPath;
+
+    @Value("${recommendation.ann.catalog-page-size:200}")
+    private int catalogPageSize;
+
+    @Value("${recommendation.algorithms.content-based.embedding-dimensions:384}")
+    private int dimensions;
+
+    public ProductVectorIndexService(EmbeddingProvider embeddingProvider, ProductServiceClient productServiceClient) {
+        this.embeddingProvider = embeddingProvider;
+        this.productServiceClient = productServiceClient;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            indexer.submit(this::build);
+        }
+    }
+
+    /**
+     * Up to {@code limit} products most similar to the given one, best first. Empty while
+     * the index is building or when the product has not been indexed yet, in which case
+     * it is queued for indexing.
+     */
+    public HnswIndex.Neighbors similarProducts(Long productId, int limit) {
+        HnswIndex current = index;
+        if (current == null) {
+            return HnswIndex.Neighbors.EMPTY;
+        }
+        float[] vector = current.vector(productId);
+        if (vector == null) {
+            indexLater(List.of(productId));
+            return HnswIndex.Neighbors.EMPTY;
+        }
+        return current.search(vector, limit, Math.max(efSearch, limit), productId);
+    }
+
+    /**
+     * Stored (normalized) vector of the product, or null if it is not indexed
+     */
+    public float[] vector(Long productId) {
+        HnswIndex current = index;
+        return current != null ? current.vector(productId) : null;
+    }
+
+    /**
+     * Up to {@code k} indexed products nearest to an arbitrary query vector, best first
+     */
+    public HnswIndex.Neighbors search(float[] query, int k) {
+        HnswIndex current = index;
+        if (current == null) {
+            return HnswIndex.Neighbors.EMPTY;
+        }
+        return current.search(query, k, Math.max(efSearch, k), Long.MIN_VALUE);
+    }
+
+    /**
+     * Fetch and embed the given products that are not indexed yet; completes once they are
+     * inserted. The catalog lookups run on the bounded elastic scheduler.
+     */
+    public Mono<Void> indexProducts(List<Long> productIds) {
+        return Mono.fromCallable(() -> {
+            HnswIndex current = index;
+            List<ProductDTO> products = new ArrayList<>(productIds.size());
+            for (Long productId : productIds) {
+                if (current == null || !current.contains(productId)) {
+                    products.add(productServiceClient.getProduct(productId));
+                }
+            }
+            return products;
+        }).subscribeOn(Schedulers.boundedElastic()).flatMap(this::insert);
+    }
+
+    /**
+     * Queue products for indexing on the background indexer thread. Products already
+     * queued are skipped, so repeated degraded requests for the same products do not pile
+     * up work while the embedding backend is slow.
+     */
+    public void indexLater(List<Long> productIds) {
+        List<Long> queued = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            if (pendingIndex.add(productId)) {
+                queued.add(productId);
+            }
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+        indexer.submit(() -> {
+            try {
+                indexProducts(queued).block();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to index products " + queued, e);
+            } finally {
+                pendingIndex.removeAll(queued);
+            }
+        });
+    }
+
+    /**
+     * Apply product change events: changed products are re-embedded in one batch and
+     * replaced in the index, deleted ones removed. Only the latest event per product in the
+     * batch counts. Runs on the caller's thread and throws if re-embedding fails, so the
+     * sender keeps the batch and redelivers it; applying a batch twice is harmless.
+     */
+    public void applyChanges(List<ProductChangeEventDTO> events) {
+        Map<Long, ProductChangeEventDTO> latest = new LinkedHashMap<>();
+        for (ProductChangeEventDTO event : events) {
+            latest.remove(event.getProductId());
+            latest.put(event.getProductId(), event);
+        }
+        List<ProductDTO> upserts = new ArrayList<>();
+        for (ProductChangeEventDTO event : latest.values()) {
+            if (ProductChangeEventDTO.PRODUCT_DELETED.equals(event.getType())) {
+                remove(event.getProductId());
+            } else if (event.getProduct() != null) {
+                upserts.add(event.getProduct());
+            }
+        }
+        insert(upserts).block();
+        log.fine("Applied " + latest.size() + " product changes to the ANN index");
+    }
+
+    public void remove(Long productId) {
+        HnswIndex current = index;
+        if (current != null && current.remove(productId)) {
+            dirty = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.ann.persist-interval:300000}")
+    public void persist() {
+        HnswIndex current = index;
+        if (current == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            current.save(Paths.get(indexPath));
+        } catch (IOException e) {
+            dirty = true;
+            log.log(Level.WARNING, "Failed to persist product ANN index to " + indexPath, e);
+        }
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        HnswIndex loaded = load();
+        index = loaded;
+        int before = loaded.size();
+        try {
+            int page = 0;
+            ProductPageDTO products;
+            do {
+                products = productServiceClient.getProducts(page++, catalogPageSize);
+                List<ProductDTO> missing = new ArrayList<>();
+                for (ProductDTO product : products.getContent()) {
+                    if (!loaded.contains(product.getId())) {
+                        missing.add(product);
+                    }
+                }
+                insert(missing).block();
+            } while (!products.isLast() && !products.getContent().isEmpty());
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Product catalog sync failed, serving " + loaded.size() + " indexed products", e);
+        }
+        log.info("Product ANN index ready with " + loaded.size() + " products (" + (loaded.size() - before)
+                + " newly embedded) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        persist();
+    }
+
+    private HnswIndex load() {
+        Path path = Paths.get(indexPath);
+        if (Files.exists(path)) {
+            try {
+                HnswIndex loaded = HnswIndex.load(path, newVectorStore(), m, efConstruction, 42);
+                log.info("Loaded product ANN index " + path + " with " + loaded.size() + " products");
+                return loaded;
+            } catch (IOException | RuntimeException e) {
+                log.log(Level.WARNING, "Discarding unreadable product ANN index " + path, e);
+            }
+        }
+        return new HnswIndex(newVectorStore(), m, efConstruction, 42);
+    }
+
+    private VectorStore newVectorStore() {
+        switch (quantization.toLowerCase(Locale.ROOT)) {
+            case "int8":
+                return new QuantizedVectorStore(dimensions, QuantizedVectorStore.Encoding.INT8, rerank);
+            case "float16":
+                return new QuantizedVectorStore(dimensions, QuantizedVectorStore.Encoding.FLOAT16, rerank);
+            case "none":
+                return new HeapVectorStore(dimensions);
+            default:
+                throw new IllegalArgumentException("Unknown recommendation.ann.quantization: " + quantization);
+        }
+    }
+
+    private Mono<Void> insert(List<ProductDTO> products) {
+        if (products.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> texts = new ArrayList<>(products.size());
+        for (ProductDTO product : products) {
+            texts.add(product.embeddingText());
+        }
+        return embeddingProvider.getEmbeddingsBatch(texts).doOnNext(embeddings -> {
+            HnswIndex current = index;
+            if (current == null) {
+                return; // not built yet, the catalog sync picks these products up
+            }
+            for (int i = 0; i < products.size(); i++) {
+                current.upsert(products.get(i).getId(), VectorMath.normalized(embeddings.get(i)));
+            }
+            dirty = true;
+        }).then();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+        persist();
+    }
+}
@@ -0,0 +1,257 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.config.TwoLevelCacheManager;
+import com.ecommerce.recommendation.dto.RecommendationDTO;
+import com.ecommerce.recommendation.engine.TopNStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Precomputes hybrid top-N lists for recently active users so the recommendation
+ * endpoint can serve them with a single lookup. Users are walked in chunks of
+ * {@code recommendation.batch.size}, each chunk scored in parallel; a run builds a fresh
+ * {@link TopNStore} and swaps it in when done, so users who went quiet drop out.
+ *
+ * Lists are dropped as soon as their user records an interaction on any instance, following
+ * the cache invalidations broadcast by {@link TwoLevelCacheManager}, and lists older than
+ * {@code recommendation.batch.max-age} are ignored, so requests fall back to online scoring.
+ */
+@Service
+public class RecommendationBatchService {
+
+    private static final Logger log = Logger.getLogger(RecommendationBatchService.class.getName());
+
+    private static final String ACTIVE_USERS_SQL = "SELECT user_id FROM user_interactions "
+            + "WHERE timestamp >= ? AND user_id > ? GROUP BY user_id ORDER BY user_id LIMIT ?";
+
+    private final HybridRecommendationService hybridRecommendationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService workers;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int topN;
+    private final long activeWindowMillis;
+    private final long maxAgeMillis;
+
+    private final Timer runTimer;
+    private final Counter materializedUsers;
+    private final Counter failedUsers;
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile TopNStore store;
+    private volatile TopNStore building;
+    // Users whose interactions arrived during the current run, with the time they did
+    private final Map<Long, Long> invalidatedDuringRun = new ConcurrentHashMap<>();
+
+    public RecommendationBatchService(HybridRecommendationService hybridRecommendationService,
+                                      JdbcTemplate jdbcTemplate,
+                                      MeterRegistry meterRegistry,
+                                      TwoLevelCacheManager cacheManager,
+                                      @Value("${recommendation.batch.enabled:true}") boolean enabled,
+                                      @Value("${recommendation.batch.size:100}") int batchSize,
+                                      @Value("${recommendation.batch.parallelism:0}") int parallelism,
+                                      @Value("${recommendation.batch.top-n:50}") int topN,
+                                      @Value("${recommendation.batch.active-window:604800000}") long activeWindowMillis,
+                                      @Value("${recommendation.batch.max-age:7200000}") long maxAgeMillis) {
+        this.hybridRecommendationService = hybridRecommendationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.topN = topN;
+        this.activeWindowMillis = activeWindowMillis;
+        this.maxAgeMillis = maxAgeMillis;
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.runTimer = Timer.builder("recommendation.batch.run")
+                .description("Time to materialize top-N lists for all active users")
+                .register(meterRegistry);
+        this.materializedUsers = meterRegistry.counter("recommendation.batch.users", "outcome", "materialized");
+        this.failedUsers = meterRegistry.counter("recommendation.batch.users", "outcome", "failed");
+        this.hits = meterRegistry.counter("recommendation.batch.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("recommendation.batch.lookups", "result", "miss");
+        meterRegistry.gauge("recommendation.batch.stored.users", this, service -> {
+            TopNStore current = service.store;
+            return current != null ? current.size() : 0;
+        });
+        cacheManager.addOwnerEvictionListener(owner -> evict(Long.valueOf(owner)));
+    }
+
+    /**
+     * Materialized hybrid recommendations for the user, or null when none are stored, the
+     * stored list is stale, or more entries are requested than are materialized per user
+     */
+    public List<RecommendationDTO> getMaterialized(Long userId, int limit) {
+        TopNStore current = store;
+        TopNStore.Entry entry = current != null && limit <= current.n() ? current.get(userId) : null;
+        if (entry == null || System.currentTimeMillis() - entry.computedAt() > maxAgeMillis) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        int size = Math.min(limit, entry.size());
+        LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.computedAt()), ZoneId.systemDefault());
+        List<RecommendationDTO> recommendations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RecommendationDTO dto = new RecommendationDTO();
+            dto.setUserId(userId);
+            dto.setProductId(entry.productIdAt(i));
+            dto.setScore(BigDecimal.valueOf(entry.scoreAt(i)));
+            dto.setAlgorithm("hybrid");
+            dto.setRankPosition(i + 1);
+            dto.setCreatedAt(createdAt);
+            recommendations.add(dto);
+        }
+        return recommendations;
+    }
+
+    private void evict(Long userId) {
+        // Read the store being built first: a run swaps it into store before clearing building
+        TopNStore next = building;
+        if (next != null) {
+            invalidatedDuringRun.put(userId, System.currentTimeMillis());
+            next.remove(userId);
+        }
+        TopNStore current = store;
+        if (current != null) {
+            current.remove(userId);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${recommendation.batch.initial-delay:60000}",
+               fixedDelayString = "${recommendation.batch.interval:1800000}")
+    public void scheduledRun() {
+        if (enabled) {
+            materialize();
+        }
+    }
+
+    /**
+     * Score every user active within the window and swap in the resulting store
+     */
+    public synchronized void materialize() {
+        long start = System.nanoTime();
+        TopNStore current = store;
+        TopNStore next = new TopNStore(topN, current != null ? current.size() : batchSize);
+        building = next;
+        Timestamp since = new Timestamp(System.currentTimeMillis() - activeWindowMillis);
+        int users = 0;
+        int failed = 0;
+        try {
+            long afterUserId = 0L;
+            List<Long> chunk;
+            do {
+                chunk = jdbcTemplate.queryForList(ACTIVE_USERS_SQL, Long.class, since, afterUserId, batchSize);
+                List<Future<Boolean>> results = new ArrayList<>(chunk.size());
+                for (Long userId : chunk) {
+                    results.add(workers.submit(() -> materializeUser(next, userId)));
+                }
+                for (Future<Boolean> result : results) {
+                    if (awaitResult(result)) {
+                        users++;
+                    } else {
+                        failed++;
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    afterUserId = chunk.get(chunk.size() - 1);
+                }
+            } while (chunk.size() == batchSize);
+
+            store = next;
+            log.info("Materialized recommendations for " + users + " users (" + failed + " skipped) in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Batch materialization failed after " + users + " users, keeping the previous lists", e);
+        } finally {
+            building = null;
+            invalidatedDuringRun.clear();
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Score one user into the store; degraded and empty results, which is what an outage of
+     * every source looks like, are left to online scoring
+     */
+    private boolean materializeUser(TopNStore target, Long userId) {
+        long computedAt = System.currentTimeMillis();
+        try {
+            List<RecommendationDTO> recommendations =
+                    hybridRecommendationService.computeHybridRecommendations(userId, topN);
+            if (recommendations.isEmpty() || recommendations.get(0).isDegraded()) {
+                failedUsers.increment();
+                return false;
+            }
+            int size = recommendations.size();
+            long[] productIds = new long[size];
+            float[] scores = new float[size];
+            for (int i = 0; i < size; i++) {
+                productIds[i] = recommendations.get(i).getProductId();
+                scores[i] = recommendations.get(i).getScore().floatValue();
+            }
+            target.put(userId, productIds, scores, size, computedAt);
+
+            // Checked after the put so an interaction racing with it cannot be missed
+            Long invalidatedAt = invalidatedDuringRun.get(userId);
+            if (invalidatedAt != null && invalidatedAt >= computedAt) {
+                target.remove(userId);
+                return false;
+            }
+            materializedUsers.increment();
+            return true;
+        } catch (RuntimeException e) {
+            failedUsers.increment();
+            log.log(Level.FINE, "Failed to materialize recommendations for user " + userId, e);
+            return false;
+        }
+    }
+
+    private static boolean awaitResult(Future<Boolean> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while materializing recommendations", e);
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.entity.Recommendation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists generated recommendations off the request path. Rows are queued in a bounded
+ * buffer and a background writer flushes them with JDBC batch inserts; when the buffer
+ * is full new rows are dropped and counted rather than blocking the caller, since the
+ * stored rows are history and can always be regenerated.
+ */
+@Service
+public class RecommendationWriteBehindService {
+
+    private static final Logger log = Logger.getLogger(RecommendationWriteBehindService.class.getName());
+
+    private static final String INSERT_SQL = "INSERT INTO recommendations "
+            + "(user_id, product_id, score, algorithm, rank_position, created_at, expires_at, context) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Recommendation> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public RecommendationWriteBehindService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                            @Value("${recommendation.persistence.queue-capacity:10000}") int queueCapacity,
+                                            @Value("${recommendation.persistence.batch-size:500}") int batchSize,
+                                            @Value("${recommendation.persistence.flush-interval:1000}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        meterRegistry.gauge("recommendation.persistence.queue.depth", queue, BlockingQueue::size);
+        this.flushTimer = Timer.builder("recommendation.persistence.flush")
+                .description("Latency of recommendation batch inserts")
+                .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("recommendation.persistence.written");
+        this.droppedCounter = meterRegistry.counter("recommendation.persistence.dropped");
+        this.failedCounter = meterRegistry.counter("recommendation.persistence.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::drainLoop, "recommendation-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue recommendations for persistence without waiting for the database
+     */
+    public void enqueue(List<Recommendation> recommendations) {
+        int dropped = 0;
+        for (Recommendation recommendation : recommendations) {
+            if (!queue.offer(recommendation)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            droppedCounter.increment(dropped);
+            log.warning("Recommendation write-behind queue full, dropped " + dropped + " rows");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<Recommendation> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Recommendation first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: fall through and drain what is left
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Recommendation> batch) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, rec) -> {
+                statement.setLong(1, rec.getUserId());
+                statement.setLong(2, rec.getProductId());
+                statement.setBigDecimal(3, rec.getScore());
+                statement.setString(4, rec.getAlgorithm());
+                if (rec.getRankPosition() != null) {
+                    statement.setInt(5, rec.getRankPosition());
+                } else {
+                    statement.setNull(5, Types.INTEGER);
+                }
+                statement.setTimestamp(6, Timestamp.valueOf(rec.getCreatedAt()));
+                statement.setTimestamp(7, rec.getExpiresAt() != null ? Timestamp.valueOf(rec.getExpiresAt()) : null);
+                statement.setString(8, rec.getContext());
+            });
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.log(Level.WARNING, "Failed to persist " + batch.size() + " recommendations", e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(flushIntervalMillis * 5);
+    }
+}
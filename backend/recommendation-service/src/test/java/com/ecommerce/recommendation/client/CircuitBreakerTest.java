@@ -0,0 +1,135 @@
+package com.ecommerce.recommendation.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * State transitions of the breaker. An open duration of zero makes the next call after
+ * opening the half-open trial; an hour keeps the breaker open for the whole test.
+ */
+class CircuitBreakerTest {
+
+    private static final Duration DEADLINE = Duration.ofSeconds(5);
+
+    private MeterRegistry registry;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    void opensAfterThresholdConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofHours(1), registry);
+
+        fail(breaker);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.isOpen());
+        assertEquals(1.0, registry.counter("test.circuit.opened").count());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofHours(1), registry);
+
+        fail(breaker);
+        assertEquals("ok", succeed(breaker));
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void openBreakerRefusesCallsWithoutAttemptingThem() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofHours(1), registry);
+        fail(breaker);
+        int attempted = calls.get();
+
+        assertThrows(CircuitBreaker.OpenException.class, () -> succeed(breaker));
+
+        assertEquals(attempted, calls.get());
+        assertEquals(1.0, registry.counter("test.circuit.short-circuited").count());
+    }
+
+    @Test
+    void deadlineOverrunCountsAsFailure() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofHours(1), registry);
+
+        assertThrows(RuntimeException.class,
+                () -> breaker.protect(() -> Mono.<String>never(), Duration.ofMillis(20)).block());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void successfulHalfOpenTrialClosesTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO, registry);
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.isOpen());
+
+        assertEquals("ok", succeed(breaker));
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void failedHalfOpenTrialReopensTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ZERO, registry);
+        fail(breaker);
+        fail(breaker);
+        fail(breaker);
+
+        // One failed trial is enough, the threshold only applies while closed
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2.0, registry.counter("test.circuit.opened").count());
+    }
+
+    @Test
+    void halfOpenLetsASingleTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO, registry);
+        fail(breaker);
+
+        Disposable trial = breaker.protect(() -> Mono.<String>never(), DEADLINE).subscribe();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertThrows(CircuitBreaker.OpenException.class, () -> succeed(breaker));
+
+        // An abandoned trial counts as failed
+        trial.dispose();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private String succeed(CircuitBreaker breaker) {
+        return breaker.protect(() -> {
+            calls.incrementAndGet();
+            return Mono.just("ok");
+        }, DEADLINE).block();
+    }
+
+    private void fail(CircuitBreaker breaker) {
+        assertThrows(IllegalStateException.class, () -> breaker.protect(() -> {
+            calls.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("backend down"));
+        }, DEADLINE).block());
+    }
+}
@@ -0,0 +1,223 @@
+package com.ecommerce.recommendation.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the client against a local WireMock server standing in for the inference API.
+ * Each stub answers one exact list of inputs with a vector derived from every text, so
+ * the verified request bodies show how calls were batched, chunked and coalesced.
+ */
+class HuggingFaceClientTest {
+
+    private static final String MODEL = "test-model";
+    private static final String ENDPOINT = "/models/" + MODEL;
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path dataDir;
+
+    private WireMockServer server;
+    private EmbeddingCache cache;
+    private HuggingFaceClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        client = newClient(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        cache.close();
+        server.stop();
+    }
+
+    @Test
+    void batchSendsCacheMissesInOneRequestInInputOrder() {
+        stubInputs(0, "a", "bb");
+
+        List<double[]> embeddings = client.getEmbeddingsBatch(List.of("a", "bb")).block(WAIT);
+
+        assertEquals(2, embeddings.size());
+        assertArrayEquals(embeddingOf("a"), embeddings.get(0));
+        assertArrayEquals(embeddingOf("bb"), embeddings.get(1));
+        verifyRequests(1, "a", "bb");
+        assertEquals(1, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void batchIsChunkedByMaxBatchSizeAndServedFromCacheAfterwards() {
+        stubInputs(0, "a", "bb");
+        stubInputs(0, "ccc");
+
+        List<double[]> first = client.getEmbeddingsBatch(List.of("a", "bb", "ccc")).block(WAIT);
+        List<double[]> second = client.getEmbeddingsBatch(List.of("ccc", "a")).block(WAIT);
+
+        assertArrayEquals(embeddingOf("ccc"), first.get(2));
+        assertArrayEquals(embeddingOf("ccc"), second.get(0));
+        assertArrayEquals(embeddingOf("a"), second.get(1));
+        verifyRequests(1, "a", "bb");
+        verifyRequests(1, "ccc");
+        assertEquals(2, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void duplicateTextsInOneBatchAreSentOnce() {
+        stubInputs(0, "a", "bb");
+
+        List<double[]> embeddings = client.getEmbeddingsBatch(List.of("a", "bb", "a")).block(WAIT);
+
+        assertEquals(3, embeddings.size());
+        assertArrayEquals(embeddingOf("a"), embeddings.get(0));
+        assertArrayEquals(embeddingOf("a"), embeddings.get(2));
+        verifyRequests(1, "a", "bb");
+        assertEquals(1, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void singleTextCallJoinsBatchAlreadyInFlight() throws Exception {
+        stubInputs(300, "a", "bb");
+
+        CompletableFuture<List<double[]>> batch = client.getEmbeddingsBatch(List.of("a", "bb")).toFuture();
+        CompletableFuture<double[]> single = client.getEmbeddings("a").toFuture();
+
+        assertArrayEquals(embeddingOf("a"), single.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(embeddingOf("bb"), batch.get(5, TimeUnit.SECONDS).get(1));
+        assertEquals(1, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void batchJoinsSingleTextCallAlreadyInFlight() throws Exception {
+        stubInputs(300, "a");
+        stubInputs(0, "bb");
+
+        CompletableFuture<double[]> single = client.getEmbeddings("a").toFuture();
+        List<double[]> batch = client.getEmbeddingsBatch(List.of("a", "bb")).block(WAIT);
+
+        assertArrayEquals(embeddingOf("a"), batch.get(0));
+        assertArrayEquals(embeddingOf("bb"), batch.get(1));
+        assertArrayEquals(embeddingOf("a"), single.get(5, TimeUnit.SECONDS));
+        verifyRequests(1, "a");
+        verifyRequests(1, "bb");
+        assertEquals(2, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void concurrentSingleTextCallsShareOneRequest() throws Exception {
+        stubInputs(200, "a");
+
+        CompletableFuture<double[]> first = client.getEmbeddings("a").toFuture();
+        CompletableFuture<double[]> second = client.getEmbeddings("a").toFuture();
+
+        assertArrayEquals(embeddingOf("a"), first.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(embeddingOf("a"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getAllServeEvents().size());
+    }
+
+    @Test
+    void upstreamErrorFailsEveryWaiterAndLeavesNothingInFlight() throws Exception {
+        server.stubFor(post(urlEqualTo(ENDPOINT)).willReturn(serverError().withFixedDelay(200)));
+
+        CompletableFuture<List<double[]>> batch = client.getEmbeddingsBatch(List.of("a", "bb")).toFuture();
+        CompletableFuture<double[]> single = client.getEmbeddings("a").toFuture();
+
+        assertThrows(ExecutionException.class, () -> batch.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> single.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getAllServeEvents().size());
+
+        // The failed calls are no longer in flight, so a retry goes upstream again
+        server.resetAll();
+        stubInputs(0, "a", "bb");
+        List<double[]> retried = client.getEmbeddingsBatch(List.of("a", "bb")).block(WAIT);
+
+        assertArrayEquals(embeddingOf("a"), retried.get(0));
+        verifyRequests(1, "a", "bb");
+    }
+
+    @Test
+    void responseWithWrongNumberOfVectorsIsAnError() {
+        server.stubFor(post(urlEqualTo(ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.inputs", equalToJson(inputsJson("a", "bb"))))
+                .willReturn(okJson("[" + vectorJson("a") + "]")));
+
+        assertThrows(RuntimeException.class, () -> client.getEmbeddingsBatch(List.of("a", "bb")).block(WAIT));
+    }
+
+    private HuggingFaceClient newClient(int maxBatchSize) {
+        cache = new EmbeddingCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "heapEntries", 100);
+        ReflectionTestUtils.setField(cache, "storePath", dataDir.resolve("embeddings.bin").toString());
+        ReflectionTestUtils.setField(cache, "dimensions", 3);
+        cache.open();
+
+        HuggingFaceClient created = new HuggingFaceClient(WebClient.builder(), cache, new SimpleMeterRegistry(),
+                maxBatchSize, 5, 8, 256, 2000, 5000);
+        ReflectionTestUtils.setField(created, "apiKey", "test-token");
+        ReflectionTestUtils.setField(created, "baseUrl", server.baseUrl() + "/models/");
+        ReflectionTestUtils.setField(created, "model", MODEL);
+        return created;
+    }
+
+    private void stubInputs(int delayMillis, String... texts) {
+        StringBuilder vectors = new StringBuilder("[");
+        for (int i = 0; i < texts.length; i++) {
+            vectors.append(i > 0 ? "," : "").append(vectorJson(texts[i]));
+        }
+        server.stubFor(post(urlEqualTo(ENDPOINT))
+                .withHeader("Authorization", equalTo("Bearer test-token"))
+                .withRequestBody(matchingJsonPath("$.inputs", equalToJson(inputsJson(texts))))
+                .willReturn(okJson(vectors.append(']').toString()).withFixedDelay(delayMillis)));
+    }
+
+    private void verifyRequests(int count, String... texts) {
+        server.verify(count, postRequestedFor(urlEqualTo(ENDPOINT))
+                .withRequestBody(matchingJsonPath("$.inputs", equalToJson(inputsJson(texts)))));
+    }
+
+    private static double[] embeddingOf(String text) {
+        return new double[] {text.length(), text.charAt(0), 1.0};
+    }
+
+    private static String vectorJson(String text) {
+        double[] embedding = embeddingOf(text);
+        return "[" + embedding[0] + "," + embedding[1] + "," + embedding[2] + "]";
+    }
+
+    private static String inputsJson(String... texts) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < texts.length; i++) {
+            json.append(i > 0 ? "," : "").append('"').append(texts[i]).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,261 @@
+package com.ecommerce.recommendation.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two cache managers, standing in for two service instances, share an in-memory
+ * stand-in for Redis: owner hashes in a map and pub/sub delivered synchronously to every
+ * subscribed manager, including the publisher, as a Redis channel would.
+ */
+class TwoLevelCacheTest {
+
+    private static final String CACHE = "hybridRecommendations";
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private FakeRedis redis;
+    private MeterRegistry registryA;
+    private TwoLevelCacheManager instanceA;
+    private TwoLevelCacheManager instanceB;
+
+    @BeforeEach
+    void setUp() {
+        redis = new FakeRedis();
+        registryA = new SimpleMeterRegistry();
+        instanceA = redis.subscribe(new TwoLevelCacheManager(redis.template(), TTL, 100, registryA));
+        instanceB = redis.subscribe(new TwoLevelCacheManager(redis.template(), TTL, 100, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void remoteTierServesValuesPutByAnotherInstance() {
+        instanceA.getCache(CACHE).put("42_10", "top-10");
+
+        assertEquals("top-10", instanceB.getCache(CACHE).get("42_10", String.class));
+        assertNotNull(redis.hash(CACHE, "42"));
+        assertEquals("top-10", redis.hash(CACHE, "42").get("10"));
+    }
+
+    @Test
+    void entriesOfOneOwnerShareOneHash() {
+        Cache cache = instanceA.getCache(CACHE);
+        cache.put("42_10", "top-10");
+        cache.put("42_20", "top-20");
+        cache.put("7_10", "other");
+
+        assertEquals(2, redis.hash(CACHE, "42").size());
+        assertEquals(1, redis.hash(CACHE, "7").size());
+    }
+
+    @Test
+    void evictUserDropsEveryEntryOfTheOwnerInBothTiersOnEveryInstance() {
+        Cache cacheA = instanceA.getCache(CACHE);
+        cacheA.put("42_10", "top-10");
+        cacheA.put("42_20", "top-20");
+        cacheA.put("7_10", "other");
+        // Pull copies into B's local tier
+        Cache cacheB = instanceB.getCache(CACHE);
+        assertEquals("top-10", cacheB.get("42_10", String.class));
+        assertEquals("other", cacheB.get("7_10", String.class));
+
+        instanceA.evictUser(42L);
+
+        assertNull(redis.hash(CACHE, "42"));
+        assertNull(localValue(cacheA, "42_10"));
+        assertNull(localValue(cacheA, "42_20"));
+        assertNull(localValue(cacheB, "42_10"));
+        assertNull(cacheB.get("42_10"));
+        assertEquals("other", localValue(cacheB, "7_10"));
+        assertEquals("other", cacheA.get("7_10", String.class));
+    }
+
+    @Test
+    void invalidationMessageDropsLocalCopiesOnly() {
+        instanceA.getCache(CACHE).put("42_10", "top-10");
+        Cache cacheB = instanceB.getCache(CACHE);
+        cacheB.get("42_10");
+
+        instanceB.onMessage(redis.message("42"), null);
+
+        assertNull(localValue(cacheB, "42_10"));
+        // The shared tier is left to the publishing instance
+        assertEquals("top-10", redis.hash(CACHE, "42").get("10"));
+        assertEquals("top-10", cacheB.get("42_10", String.class));
+    }
+
+    @Test
+    void ownerEvictionListenersHearInvalidationsOnEveryInstance() {
+        List<String> heardByA = new ArrayList<>();
+        List<String> heardByB = new ArrayList<>();
+        instanceA.addOwnerEvictionListener(heardByA::add);
+        instanceB.addOwnerEvictionListener(heardByB::add);
+
+        instanceA.evictUser(42L);
+
+        assertTrue(heardByA.contains("42"));
+        assertEquals(List.of("42"), heardByB);
+    }
+
+    @Test
+    void ownerEvictionListenersHearLocalEvictionsWithoutRedis() {
+        TwoLevelCacheManager localOnly = new TwoLevelCacheManager(null, TTL, 100, new SimpleMeterRegistry());
+        List<String> heard = new ArrayList<>();
+        localOnly.addOwnerEvictionListener(heard::add);
+
+        localOnly.evictUser(42L);
+
+        assertEquals(List.of("42"), heard);
+    }
+
+    @Test
+    void redisErrorsFallBackToTheLocalTier() {
+        Cache cache = instanceA.getCache(CACHE);
+        redis.down = true;
+
+        cache.put("42_10", "top-10");
+        assertEquals("top-10", cache.get("42_10", String.class));
+        assertNull(cache.get("42_20"));
+        instanceA.evictUser(42L);
+        assertNull(cache.get("42_10"));
+
+        double errors = registryA.find("cache.remote.errors").tag("cache", CACHE).counter().count();
+        assertTrue(errors >= 3, "remote errors counted: " + errors);
+    }
+
+    @Test
+    void loadTimeIsRecordedOnlyForThePutThatClosesAMiss() {
+        Cache cache = instanceA.getCache(CACHE);
+        cache.put("7_10", "other");
+
+        // A miss whose result an unless condition vetoes is never put
+        assertNull(cache.get("42_10"));
+        assertEquals("other", cache.get("7_10", String.class));
+        cache.put("42_10", "top-10");
+        assertEquals(0, loadCount());
+
+        assertNull(cache.get("42_20"));
+        cache.put("42_20", "top-20");
+        assertEquals(1, loadCount());
+    }
+
+    @Test
+    void managerWithoutRedisCachesLocally() {
+        TwoLevelCacheManager localOnly = new TwoLevelCacheManager(null, TTL, 100, new SimpleMeterRegistry());
+        Cache cache = localOnly.getCache(CACHE);
+        cache.put("42_10", "top-10");
+        cache.put("7_10", "other");
+
+        assertEquals("top-10", cache.get("42_10", String.class));
+        localOnly.evictUser(42L);
+        assertNull(cache.get("42_10"));
+        assertEquals("other", cache.get("7_10", String.class));
+    }
+
+    private long loadCount() {
+        return registryA.find("cache.load").tag("cache", CACHE).timer().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object localValue(Cache cache, String key) {
+        return ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache()).getIfPresent(key);
+    }
+
+    /**
+     * In-memory stand-in for the shared Redis behind every instance's template
+     */
+    private static final class FakeRedis {
+
+        private static final String KEY_PREFIX = "recommendation:cache:";
+
+        private final Map<String, Map<Object, Object>> hashes = new ConcurrentHashMap<>();
+        private final List<TwoLevelCacheManager> subscribers = new ArrayList<>();
+        private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+        volatile boolean down;
+
+        TwoLevelCacheManager subscribe(TwoLevelCacheManager manager) {
+            subscribers.add(manager);
+            return manager;
+        }
+
+        Map<Object, Object> hash(String cache, String owner) {
+            return hashes.get(KEY_PREFIX + cache + ":" + owner);
+        }
+
+        DefaultMessage message(String owner) {
+            return new DefaultMessage(TwoLevelCacheManager.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    serializer.serialize(owner));
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisTemplate<String, Object> template() {
+            RedisTemplate<String, Object> template = mock(RedisTemplate.class);
+            HashOperations<String, Object, Object> ops = mock(HashOperations.class);
+            doReturn(ops).when(template).opsForHash();
+            doReturn(serializer).when(template).getValueSerializer();
+
+            doAnswer(call -> {
+                available();
+                Map<Object, Object> hash = hashes.get(call.<String>getArgument(0));
+                return hash != null ? hash.get(call.getArgument(1)) : null;
+            }).when(ops).get(anyString(), any());
+            doAnswer(call -> {
+                available();
+                hashes.computeIfAbsent(call.getArgument(0), key -> new ConcurrentHashMap<>())
+                        .put(call.getArgument(1), call.getArgument(2));
+                return null;
+            }).when(ops).put(anyString(), any(), any());
+            doAnswer(call -> {
+                available();
+                Map<Object, Object> hash = hashes.get(call.<String>getArgument(0));
+                return hash != null && hash.remove(call.getArgument(1)) != null ? 1L : 0L;
+            }).when(ops).delete(anyString(), any());
+            doAnswer(call -> {
+                available();
+                return hashes.remove(call.<String>getArgument(0)) != null;
+            }).when(template).delete(anyString());
+            doAnswer(call -> {
+                available();
+                return hashes.containsKey(call.<String>getArgument(0));
+            }).when(template).expire(anyString(), any(Duration.class));
+            doAnswer(call -> {
+                available();
+                DefaultMessage message = message(call.getArgument(1));
+                for (TwoLevelCacheManager subscriber : subscribers) {
+                    subscriber.onMessage(message, null);
+                }
+                return (long) subscribers.size();
+            }).when(template).convertAndSend(anyString(), any());
+            return template;
+        }
+
+        private void available() {
+            if (down) {
+                throw new DataAccessResourceFailureException("Redis is down");
+            }
+        }
+    }
+}
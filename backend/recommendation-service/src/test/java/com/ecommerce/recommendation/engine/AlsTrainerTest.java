@@ -0,0 +1,139 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlsTrainerTest {
+
+    @Test
+    void choleskySolveMatchesTheFullSystem() {
+        Random random = new Random(17);
+        for (int n = 1; n <= 16; n++) {
+            // A = M M' + n I is symmetric positive definite
+            double[] m = new double[n * n];
+            for (int i = 0; i < m.length; i++) {
+                m[i] = random.nextGaussian();
+            }
+            double[] full = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sum = i == j ? n : 0.0;
+                    for (int k = 0; k < n; k++) {
+                        sum += m[i * n + k] * m[j * n + k];
+                    }
+                    full[i * n + j] = sum;
+                }
+            }
+            double[] b = new double[n];
+            for (int i = 0; i < n; i++) {
+                b[i] = random.nextGaussian();
+            }
+
+            // Only the lower triangle is passed in; the upper one must not be read
+            double[] lower = full.clone();
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    lower[i * n + j] = Double.NaN;
+                }
+            }
+            double[] x = b.clone();
+            AlsTrainer.choleskySolve(lower, x, n);
+
+            for (int i = 0; i < n; i++) {
+                double ax = 0.0;
+                for (int j = 0; j < n; j++) {
+                    ax += full[i * n + j] * x[j];
+                }
+                assertEquals(b[i], ax, 1e-9, "n=" + n + " row " + i);
+            }
+        }
+    }
+
+    @Test
+    void choleskySolveOfDiagonalSystem() {
+        double[] a = {4.0, 0.0, 0.0, 0.0, 9.0, 0.0, 0.0, 0.0, 0.25};
+        double[] b = {8.0, 3.0, 1.0};
+
+        AlsTrainer.choleskySolve(a, b, 3);
+
+        assertArrayEquals(new double[] {2.0, 1.0 / 3.0, 4.0}, b, 1e-12);
+    }
+
+    @Test
+    void recommendsTheMissingProductOfTheUsersBlock() {
+        // Two groups of 20 users, each buying 10 products of its own block except one held out
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        for (int group = 0; group < 2; group++) {
+            for (int u = 0; u < 20; u++) {
+                long userId = group * 100 + u;
+                for (int p = 0; p < 10; p++) {
+                    if (p != u % 10) {
+                        builder.add(userId, group * 1000 + p, 1f, false);
+                    }
+                }
+            }
+        }
+        InteractionMatrix matrix = builder.build();
+        AlsModel model = new AlsTrainer(4, 15, 0.1, 10.0, 42L).train(matrix);
+
+        for (long userId : new long[] {3L, 107L}) {
+            int user = matrix.userIndex(userId);
+            ScoreAccumulator out = new ScoreAccumulator();
+            model.recommend(user, 3, matrix, out);
+
+            long heldOut = (userId / 100) * 1000 + (userId % 100) % 10;
+            int[] top = TopK.select(out, 3);
+            assertEquals(3, top.length);
+            assertEquals(matrix.productIndex(heldOut), (int) out.keyAt(top[0]), "user " + userId);
+            for (int i = 0; i < out.size(); i++) {
+                assertFalse(matrix.hasInteraction(user, (int) out.keyAt(i)));
+            }
+        }
+    }
+
+    @Test
+    void trainingIsDeterministicForASeed() {
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            builder.add(random.nextInt(30), random.nextInt(40), 1f + random.nextInt(3), false);
+        }
+        InteractionMatrix matrix = builder.build();
+
+        AlsModel first = new AlsTrainer(8, 5, 0.1, 5.0, 7L).train(matrix);
+        AlsModel second = new AlsTrainer(8, 5, 0.1, 5.0, 7L).train(matrix);
+
+        float[] firstScores = new float[matrix.numUsers() * matrix.numProducts()];
+        float[] secondScores = new float[firstScores.length];
+        for (int user = 0; user < matrix.numUsers(); user++) {
+            for (int product = 0; product < matrix.numProducts(); product++) {
+                firstScores[user * matrix.numProducts() + product] = first.score(user, product);
+                secondScores[user * matrix.numProducts() + product] = second.score(user, product);
+            }
+        }
+        assertArrayEquals(firstScores, secondScores);
+        for (float score : firstScores) {
+            assertTrue(Float.isFinite(score));
+        }
+    }
+
+    @Test
+    void unknownUserGetsNoRecommendations() {
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        builder.add(1L, 10L, 1f, false);
+        InteractionMatrix matrix = builder.build();
+        AlsModel model = new AlsTrainer(2, 2, 0.1, 1.0, 1L).train(matrix);
+        ScoreAccumulator out = new ScoreAccumulator();
+
+        model.recommend(matrix.numUsers(), 5, matrix, out);
+
+        assertFalse(model.hasUser(matrix.numUsers()));
+        assertEquals(0, out.size());
+    }
+}
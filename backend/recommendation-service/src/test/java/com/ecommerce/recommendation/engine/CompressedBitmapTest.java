@@ -0,0 +1,159 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks every container pairing against {@link BitSet}: sparse partitions are sorted
+ * arrays, partitions over 4096 values are bitsets, and very skewed arrays gallop.
+ */
+class CompressedBitmapTest {
+
+    private static final int UNIVERSE = 4 << 16;
+
+    @Test
+    void emptyRangeIsTheSharedEmptyBitmap() {
+        CompressedBitmap empty = CompressedBitmap.of(new int[] {1, 2}, 1, 1);
+
+        assertSame(CompressedBitmap.EMPTY, empty);
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.andCardinality(bitmap(reference(new Random(1), 100))));
+        assertArrayEquals(new int[0], empty.toArray());
+    }
+
+    @Test
+    void ofUsesOnlyTheGivenRange() {
+        CompressedBitmap bitmap = CompressedBitmap.of(new int[] {1, 5, 9, 70000, 80000}, 1, 4);
+
+        assertEquals(3, bitmap.cardinality());
+        assertArrayEquals(new int[] {5, 9, 70000}, bitmap.toArray());
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(80000));
+    }
+
+    @Test
+    void containsAndToArrayMatchTheInput() {
+        Random random = new Random(7);
+        for (int values : new int[] {1, 300, 4096, 4097, 20000, 120000}) {
+            BitSet expected = reference(random, values);
+            CompressedBitmap bitmap = bitmap(expected);
+
+            assertEquals(expected.cardinality(), bitmap.cardinality());
+            assertArrayEquals(expected.stream().toArray(), bitmap.toArray());
+            for (int probe = 0; probe < UNIVERSE; probe += 97) {
+                assertEquals(expected.get(probe), bitmap.contains(probe), "value " + probe);
+            }
+        }
+    }
+
+    @Test
+    void partitionBoundaryValuesRoundTrip() {
+        int[] values = {0, 65535, 65536, 131071, 131072, Integer.MAX_VALUE};
+        CompressedBitmap bitmap = CompressedBitmap.of(values, 0, values.length);
+
+        assertArrayEquals(values, bitmap.toArray());
+        for (int value : values) {
+            assertTrue(bitmap.contains(value));
+        }
+        assertFalse(bitmap.contains(1));
+        assertFalse(bitmap.contains(65537));
+    }
+
+    @Test
+    void denseBitsetPartitionRoundTrips() {
+        int[] values = new int[65536];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (1 << 16) + i;
+        }
+        CompressedBitmap bitmap = CompressedBitmap.of(values, 0, values.length);
+
+        assertArrayEquals(values, bitmap.toArray());
+        assertTrue(bitmap.contains(65536));
+        assertTrue(bitmap.contains(131071));
+        assertFalse(bitmap.contains(65535));
+        assertFalse(bitmap.contains(131072));
+    }
+
+    @Test
+    void setAlgebraIsExactForEveryContainerPairing() {
+        Random random = new Random(42);
+        // Sizes straddle the 4096-per-partition array limit and the 32x galloping skew
+        int[] sizes = {0, 3, 100, 5000, 16000, 40000, 200000};
+        for (int sizeA : sizes) {
+            for (int sizeB : sizes) {
+                BitSet a = reference(random, sizeA);
+                BitSet b = reference(random, sizeB);
+                BitSet and = (BitSet) a.clone();
+                and.and(b);
+                BitSet or = (BitSet) a.clone();
+                or.or(b);
+
+                CompressedBitmap bitmapA = bitmap(a);
+                CompressedBitmap bitmapB = bitmap(b);
+                String pair = sizeA + " x " + sizeB;
+                assertEquals(and.cardinality(), bitmapA.andCardinality(bitmapB), pair);
+                assertEquals(and.cardinality(), bitmapB.andCardinality(bitmapA), pair);
+                assertEquals(or.cardinality(), bitmapA.orCardinality(bitmapB), pair);
+            }
+        }
+    }
+
+    @Test
+    void intersectionOfOverlappingDenseAndSparseSets() {
+        int[] dense = new int[10000];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = i * 2;
+        }
+        int[] sparse = {0, 1, 2, 19998, 19999, 20000};
+        CompressedBitmap a = CompressedBitmap.of(dense, 0, dense.length);
+        CompressedBitmap b = CompressedBitmap.of(sparse, 0, sparse.length);
+
+        assertEquals(3, a.andCardinality(b));
+        assertEquals(3, b.andCardinality(a));
+        assertEquals(10003, a.orCardinality(b));
+    }
+
+    @Test
+    void skewedArrayIntersectionGallops() {
+        int[] large = new int[4000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = i * 2;
+        }
+        int[] small = {1, 2, 3998, 7998, 7999};
+        CompressedBitmap a = CompressedBitmap.of(large, 0, large.length);
+        CompressedBitmap b = CompressedBitmap.of(small, 0, small.length);
+
+        assertEquals(3, a.andCardinality(b));
+        assertEquals(3, b.andCardinality(a));
+    }
+
+    private static BitSet reference(Random random, int values) {
+        BitSet set = new BitSet(UNIVERSE);
+        // Cluster some sets into one partition so it is stored as a bitset
+        int span = random.nextBoolean() ? 1 << 16 : UNIVERSE;
+        int base = span == UNIVERSE ? 0 : random.nextInt(UNIVERSE / span) * span;
+        int target = Math.min(values, span);
+        int count = 0;
+        while (count < target) {
+            int value = base + random.nextInt(span);
+            if (!set.get(value)) {
+                set.set(value);
+                count++;
+            }
+        }
+        return set;
+    }
+
+    private static CompressedBitmap bitmap(BitSet set) {
+        int[] values = set.stream().toArray();
+        return CompressedBitmap.of(values, 0, values.length);
+    }
+}
@@ -0,0 +1,215 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    static final int DIMENSIONS = 32;
+    static final int VECTORS = 2000;
+    static final int QUERIES = 50;
+    static final int K = 10;
+    static final int EF = 100;
+
+    @TempDir
+    Path dataDir;
+
+    private float[][] vectors;
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vectors = randomVectors(new Random(42), VECTORS);
+        index = build(new HnswIndex(DIMENSIONS, 16, 200, 7L), vectors);
+    }
+
+    @Test
+    void recallAgainstBruteForceIsHigh() {
+        double recall = recall(index, vectors, new Random(1));
+
+        assertTrue(recall >= 0.95, "recall@" + K + " = " + recall);
+    }
+
+    @Test
+    void resultsAreSortedAndExcludeTheGivenId() {
+        HnswIndex.Neighbors neighbors = index.search(vectors[5], K, EF, 5L);
+
+        assertEquals(K, neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            assertTrue(neighbors.idAt(i) != 5L);
+            if (i > 0) {
+                assertTrue(neighbors.similarityAt(i - 1) >= neighbors.similarityAt(i));
+            }
+        }
+        // Without the exclusion the vector finds itself first
+        assertEquals(5L, index.search(vectors[5], 1, EF, -1L).idAt(0));
+        assertEquals(1f, index.search(vectors[5], 1, EF, -1L).similarityAt(0), 1e-5f);
+    }
+
+    @Test
+    void smallIndexReturnsEveryLiveVector() {
+        HnswIndex small = build(new HnswIndex(DIMENSIONS, 16, 200, 7L), new float[][] {vectors[0], vectors[1], vectors[2]});
+
+        assertEquals(3, small.search(vectors[0], K, EF, -1L).size());
+        assertEquals(0, new HnswIndex(DIMENSIONS, 16, 200, 7L).search(vectors[0], K, EF, -1L).size());
+        assertEquals(0, small.search(vectors[0], 0, EF, -1L).size());
+    }
+
+    @Test
+    void removedVectorsAreNeverReturned() {
+        assertTrue(index.remove(5L));
+        assertFalse(index.remove(5L));
+        assertFalse(index.remove(VECTORS + 1L));
+
+        assertEquals(VECTORS - 1, index.size());
+        assertFalse(index.contains(5L));
+        assertNull(index.vector(5L));
+        HnswIndex.Neighbors neighbors = index.search(vectors[5], K, EF, -1L);
+        assertEquals(K, neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            assertTrue(neighbors.idAt(i) != 5L);
+        }
+
+        // Re-inserting revives the id
+        index.upsert(5L, vectors[5]);
+        assertTrue(index.contains(5L));
+        assertEquals(VECTORS, index.size());
+        assertEquals(5L, index.search(vectors[5], 1, EF, -1L).idAt(0));
+    }
+
+    @Test
+    void upsertOfAnExistingIdRelinksItsNode() {
+        float[] moved = randomVectors(new Random(99), 1)[0];
+
+        index.upsert(5L, moved);
+
+        assertEquals(VECTORS, index.size());
+        assertArrayEquals(normalized(moved), index.vector(5L), 1e-6f);
+        assertEquals(5L, index.search(moved, 1, EF, -1L).idAt(0));
+        assertTrue(index.search(vectors[5], 1, EF, -1L).idAt(0) != 5L);
+        // The graph still routes to everything around the node
+        assertTrue(recall(index, vectors, new Random(2)) >= 0.9);
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        index.remove(7L);
+        Path file = dataDir.resolve("hnsw.bin");
+        index.save(file);
+
+        HnswIndex loaded = HnswIndex.load(file, DIMENSIONS, 16, 200, 7L);
+
+        assertEquals(index.size(), loaded.size());
+        assertFalse(loaded.contains(7L));
+        assertArrayEquals(index.vector(3L), loaded.vector(3L));
+        Random random = new Random(3);
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVectors(random, 1)[0];
+            HnswIndex.Neighbors expected = index.search(query, K, EF, -1L);
+            HnswIndex.Neighbors actual = loaded.search(query, K, EF, -1L);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.idAt(i), actual.idAt(i));
+                assertEquals(expected.similarityAt(i), actual.similarityAt(i));
+            }
+        }
+
+        // A loaded graph keeps accepting inserts
+        loaded.upsert(VECTORS + 1L, vectors[9]);
+        assertEquals(index.size() + 1, loaded.size());
+        assertFalse(Files.exists(dataDir.resolve("hnsw.bin.tmp")));
+    }
+
+    @Test
+    void loadRejectsMismatchedOrForeignFiles() throws IOException {
+        Path file = dataDir.resolve("hnsw.bin");
+        index.save(file);
+        Path foreign = dataDir.resolve("foreign.bin");
+        Files.write(foreign, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IOException.class, () -> HnswIndex.load(file, DIMENSIONS + 1, 16, 200, 7L));
+        assertThrows(IOException.class, () -> HnswIndex.load(file, DIMENSIONS, 8, 200, 7L));
+        assertThrows(IOException.class, () -> HnswIndex.load(foreign, DIMENSIONS, 16, 200, 7L));
+    }
+
+    @Test
+    void upsertRejectsWrongDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> index.upsert(1L, new float[DIMENSIONS - 1]));
+    }
+
+    static HnswIndex build(HnswIndex index, float[][] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            index.upsert(i, vectors[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Mean fraction of the exact top K, by brute-force cosine, that the index returns
+     */
+    static double recall(HnswIndex index, float[][] vectors, Random random) {
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = normalized(randomVectors(random, 1)[0]);
+            TopK exact = new TopK(K);
+            for (int i = 0; i < vectors.length; i++) {
+                if (index.contains(i)) {
+                    exact.offer(i, dot(query, normalized(index.vector(i))));
+                }
+            }
+            Set<Long> expected = new HashSet<>();
+            for (int id : exact.drainDescending()) {
+                expected.add((long) id);
+            }
+            HnswIndex.Neighbors found = index.search(query, K, EF, -1L);
+            for (int i = 0; i < found.size(); i++) {
+                if (expected.contains(found.idAt(i))) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (QUERIES * K);
+    }
+
+    static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    static float[] normalized(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return (float) sum;
+    }
+}
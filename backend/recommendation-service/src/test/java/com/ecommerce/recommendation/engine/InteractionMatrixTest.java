@@ -0,0 +1,171 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the live (snapshot + delta) views against a plain map of every interaction
+ */
+class InteractionMatrixTest {
+
+    private static final int USERS = 60;
+    private static final int PRODUCTS = 40;
+
+    // user -> product -> {summed weight, purchased 0/1}
+    private final Map<Long, Map<Long, float[]>> reference = new HashMap<>();
+
+    @Test
+    void builderCollapsesDuplicatePairs() {
+        InteractionMatrix matrix = InteractionMatrix.builder(new IdIndex(), new IdIndex())
+                .add(1L, 10L, 1f, false)
+                .add(1L, 10L, 2f, true)
+                .add(1L, 5L, 1f, false)
+                .build();
+        int user = matrix.userIndex(1L);
+
+        assertEquals(2, matrix.nonZeros());
+        assertEquals(2, matrix.userDegree(user));
+        assertTrue(matrix.hasPurchased(user, matrix.productIndex(10L)));
+        float[] weight = new float[1];
+        matrix.forEachProduct(user, (product, w, purchased) -> {
+            if (product == matrix.productIndex(10L)) {
+                weight[0] = w;
+            }
+        });
+        assertEquals(3f, weight[0]);
+        assertEquals(-1, matrix.userIndex(2L));
+        assertEquals(-1, matrix.productIndex(11L));
+    }
+
+    @Test
+    void recordReportsFirstInteractionsOnly() {
+        InteractionMatrix matrix = InteractionMatrix.builder(new IdIndex(), new IdIndex())
+                .add(1L, 10L, 1f, false)
+                .build();
+
+        assertFalse(matrix.record(1L, 10L, 1f, false));
+        assertTrue(matrix.record(1L, 20L, 1f, false));
+        assertFalse(matrix.record(1L, 20L, 1f, true));
+        assertTrue(matrix.record(2L, 10L, 1f, false));
+
+        assertEquals(2, matrix.deltaUsers());
+        assertTrue(matrix.userIndex(2L) >= 0);
+        assertTrue(matrix.productIndex(20L) >= 0);
+        assertTrue(matrix.hasPurchased(matrix.userIndex(1L), matrix.productIndex(20L)));
+    }
+
+    @Test
+    void liveViewsMatchEveryRecordedInteraction() {
+        Random random = new Random(13);
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        for (int i = 0; i < 600; i++) {
+            long user = random.nextInt(USERS);
+            long product = random.nextInt(PRODUCTS);
+            float weight = 1 + random.nextInt(3);
+            boolean purchase = random.nextInt(5) == 0;
+            builder.add(user, product, weight, purchase);
+            remember(user, product, weight, purchase);
+        }
+        InteractionMatrix matrix = builder.build();
+        Set<Long> snapshotPairs = pairs();
+
+        // Live interactions hit snapshot pairs, new pairs and brand new users and products
+        Set<Long> freshPairs = new HashSet<>();
+        for (int i = 0; i < 400; i++) {
+            long user = random.nextInt(USERS + 10);
+            long product = random.nextInt(PRODUCTS + 10);
+            float weight = 1 + random.nextInt(3);
+            boolean purchase = random.nextInt(5) == 0;
+            boolean known = reference.containsKey(user) && reference.get(user).containsKey(product);
+            assertEquals(!known, matrix.record(user, product, weight, purchase));
+            remember(user, product, weight, purchase);
+            if (!snapshotPairs.contains(pair(user, product))) {
+                freshPairs.add(pair(user, product));
+            }
+        }
+
+        for (Map.Entry<Long, Map<Long, float[]>> row : reference.entrySet()) {
+            int user = matrix.userIndex(row.getKey());
+            Map<Long, float[]> live = new HashMap<>();
+            matrix.forEachProduct(user, (product, weight, purchased) -> {
+                float[] previous = live.put(matrix.productId(product), new float[] {weight, purchased ? 1f : 0f});
+                assertNull(previous, "product visited twice");
+            });
+            assertEquals(row.getValue().keySet(), live.keySet());
+            for (Map.Entry<Long, float[]> entry : row.getValue().entrySet()) {
+                int product = matrix.productIndex(entry.getKey());
+                assertEquals(entry.getValue()[0], live.get(entry.getKey())[0]);
+                assertEquals(entry.getValue()[1], live.get(entry.getKey())[1]);
+                assertTrue(matrix.hasInteraction(user, product));
+                assertEquals(entry.getValue()[1] > 0, matrix.hasPurchased(user, product));
+            }
+            assertEquals(row.getValue().size(), matrix.userDegree(user));
+        }
+
+        Map<Long, Set<Long>> columns = columns();
+        for (Map.Entry<Long, Set<Long>> column : columns.entrySet()) {
+            int product = matrix.productIndex(column.getKey());
+            Set<Long> users = new HashSet<>();
+            matrix.forEachUser(product, user -> users.add(matrix.userId(user)));
+            assertEquals(column.getValue(), users);
+            assertEquals(column.getValue().size(), matrix.productDegree(product));
+        }
+
+        for (long first = 0; first < PRODUCTS + 10; first += 3) {
+            for (long second = 1; second < PRODUCTS + 10; second += 4) {
+                Set<Long> a = columns.getOrDefault(first, Set.of());
+                Set<Long> b = columns.getOrDefault(second, Set.of());
+                if (a.isEmpty() || b.isEmpty() || first == second) {
+                    continue;
+                }
+                Set<Long> common = new HashSet<>(a);
+                common.retainAll(b);
+                int p1 = matrix.productIndex(first);
+                int p2 = matrix.productIndex(second);
+                assertEquals(common.size(), matrix.coUsers(p1, p2), first + " x " + second);
+                assertEquals((double) common.size() / (a.size() + b.size() - common.size()), matrix.jaccard(p1, p2), 1e-12);
+            }
+        }
+
+        Set<Long> recorded = new HashSet<>();
+        matrix.forEachRecordedPair((user, product) ->
+                assertTrue(recorded.add(pair(matrix.userId(user), matrix.productId(product)))));
+        assertEquals(freshPairs, recorded);
+    }
+
+    private void remember(long user, long product, float weight, boolean purchase) {
+        float[] entry = reference.computeIfAbsent(user, u -> new HashMap<>())
+                .computeIfAbsent(product, p -> new float[2]);
+        entry[0] += weight;
+        if (purchase) {
+            entry[1] = 1f;
+        }
+    }
+
+    private Set<Long> pairs() {
+        Set<Long> pairs = new HashSet<>();
+        reference.forEach((user, row) -> row.keySet().forEach(product -> pairs.add(pair(user, product))));
+        return pairs;
+    }
+
+    private Map<Long, Set<Long>> columns() {
+        Map<Long, Set<Long>> columns = new HashMap<>();
+        reference.forEach((user, row) -> row.keySet().forEach(product ->
+                columns.computeIfAbsent(product, p -> new HashSet<>()).add(user)));
+        return columns;
+    }
+
+    private static long pair(long user, long product) {
+        return user << 32 | product;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinHashIndexTest {
+
+    // 64 bands of 2 rows: a pair at Jaccard 1/3 shares a band with probability above 0.999
+    private static final int BANDS = 64;
+    private static final int ROWS = 2;
+
+    private InteractionMatrix matrix;
+    private MinHashIndex index;
+    private int same;
+    private int twin;
+    private int overlapping;
+    private int disjoint;
+
+    @BeforeEach
+    void setUp() {
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        for (long user = 1; user <= 100; user++) {
+            builder.add(user, 10L, 1f, false);
+            builder.add(user, 20L, 1f, false);
+        }
+        // Users 51-150: Jaccard 50 / 150 with products 10 and 20
+        for (long user = 51; user <= 150; user++) {
+            builder.add(user, 30L, 1f, false);
+        }
+        for (long user = 1001; user <= 1100; user++) {
+            builder.add(user, 40L, 1f, false);
+        }
+        matrix = builder.build();
+        same = matrix.productIndex(10L);
+        twin = matrix.productIndex(20L);
+        overlapping = matrix.productIndex(30L);
+        disjoint = matrix.productIndex(40L);
+        index = MinHashIndex.build(matrix, BANDS, ROWS, 42L);
+    }
+
+    @Test
+    void identicalSetsHaveIdenticalSignatures() {
+        assertArrayEquals(index.storedProductSignature(same), index.storedProductSignature(twin));
+        assertArrayEquals(index.storedProductSignature(same), index.productSignature(matrix, same));
+        assertNull(index.storedProductSignature(matrix.numProducts()));
+    }
+
+    @Test
+    void queryEstimatesJaccardOfBandCandidates() {
+        MinHashIndex.Neighbors neighbors = index.similarProducts(index.storedProductSignature(same), same, 0.0, 100);
+
+        assertEquals(1.0f, similarityOf(neighbors, twin));
+        // 128 hashes: standard error about 0.04 around the exact 1/3
+        float estimate = similarityOf(neighbors, overlapping);
+        assertEquals(matrix.jaccard(same, overlapping), estimate, 0.15);
+        assertEquals(-1f, similarityOf(neighbors, disjoint));
+        assertEquals(-1f, similarityOf(neighbors, same));
+    }
+
+    @Test
+    void minimumSimilarityFiltersCandidates() {
+        MinHashIndex.Neighbors neighbors = index.similarProducts(index.storedProductSignature(same), same, 0.9, 100);
+
+        assertEquals(1, neighbors.size());
+        assertEquals(twin, neighbors.idAt(0));
+    }
+
+    @Test
+    void maxCandidatesBoundsTheResult() {
+        MinHashIndex.Neighbors neighbors = index.similarProducts(index.storedProductSignature(same), -1, 0.0, 1);
+
+        assertEquals(1, neighbors.size());
+    }
+
+    @Test
+    void userSignaturesMatchUsersWithTheSameProducts() {
+        int user = matrix.userIndex(1L);
+        int sameProducts = matrix.userIndex(2L);
+        int otherProducts = matrix.userIndex(1001L);
+
+        MinHashIndex.Neighbors neighbors = index.similarUsers(index.userSignature(matrix, user), user, 0.9, 1000);
+
+        assertTrue(contains(neighbors, sameProducts));
+        assertFalse(contains(neighbors, otherProducts));
+        assertFalse(contains(neighbors, user));
+    }
+
+    @Test
+    void emptySetHasNoNeighbors() {
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(new IdIndex(), new IdIndex());
+        builder.add(1L, 10L, 1f, false);
+        InteractionMatrix small = builder.build();
+        MinHashIndex smallIndex = MinHashIndex.build(small, BANDS, ROWS, 42L);
+
+        int[] unseen = smallIndex.userSignature(small, small.numUsers());
+
+        assertEquals(0, smallIndex.similarUsers(unseen, -1, 0.0, 10).size());
+    }
+
+    private static float similarityOf(MinHashIndex.Neighbors neighbors, int id) {
+        for (int i = 0; i < neighbors.size(); i++) {
+            if (neighbors.idAt(i) == id) {
+                return neighbors.similarityAt(i);
+            }
+        }
+        return -1f;
+    }
+
+    private static boolean contains(MinHashIndex.Neighbors neighbors, int id) {
+        return similarityOf(neighbors, id) >= 0f;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductSignalsTest {
+
+    @Test
+    void unseenProductsReadAsZero() {
+        ProductSignals signals = new ProductSignals();
+
+        assertEquals(0L, signals.lastRecommendedAt(42L));
+        assertEquals(0, signals.recommendationCount(42L));
+        assertEquals(0, signals.interactionCount(42L));
+        assertEquals(0, signals.size());
+    }
+
+    @Test
+    void foldsAddUpAcrossCalls() {
+        ProductSignals signals = new ProductSignals();
+        signals.addRecommendations(42L, 3, 1_000L);
+        signals.addInteractions(42L, 2);
+
+        signals.addRecommendations(42L, 4, 2_000L);
+        signals.addInteractions(42L, 5);
+        signals.addInteractions(7L, 1);
+
+        assertEquals(7, signals.recommendationCount(42L));
+        assertEquals(2_000L, signals.lastRecommendedAt(42L));
+        assertEquals(7, signals.interactionCount(42L));
+        assertEquals(1, signals.interactionCount(7L));
+        assertEquals(0, signals.recommendationCount(7L));
+        assertEquals(2, signals.size());
+    }
+
+    @Test
+    void lastRecommendedTimeOnlyMovesForward() {
+        ProductSignals signals = new ProductSignals();
+        signals.addRecommendations(42L, 1, 5_000L);
+
+        // A fold of rows committed late carries an older timestamp
+        signals.addRecommendations(42L, 1, 3_000L);
+
+        assertEquals(5_000L, signals.lastRecommendedAt(42L));
+        assertEquals(2, signals.recommendationCount(42L));
+    }
+
+    @Test
+    void growingKeepsEarlierSignals() {
+        ProductSignals signals = new ProductSignals(1);
+        for (long productId = 1; productId <= 1_000; productId++) {
+            signals.addRecommendations(productId, (int) productId, productId * 10);
+            signals.addInteractions(productId, 1);
+        }
+
+        assertEquals(1_000, signals.size());
+        for (long productId = 1; productId <= 1_000; productId++) {
+            assertEquals((int) productId, signals.recommendationCount(productId));
+            assertEquals(productId * 10, signals.lastRecommendedAt(productId));
+            assertEquals(1, signals.interactionCount(productId));
+        }
+    }
+
+    @Test
+    void readersSeeConsistentValuesWhileTheWriterGrowsTheColumns() throws InterruptedException {
+        ProductSignals signals = new ProductSignals(16);
+        signals.addRecommendations(1L, 1, 100L);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                long lastAt = signals.lastRecommendedAt(1L);
+                if (lastAt != 100L) {
+                    failure.set("lastRecommendedAt read " + lastAt);
+                }
+            }
+        });
+        reader.start();
+        for (long productId = 2; productId <= 50_000; productId++) {
+            signals.addInteractions(productId, 1);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(50_000, signals.size());
+    }
+}
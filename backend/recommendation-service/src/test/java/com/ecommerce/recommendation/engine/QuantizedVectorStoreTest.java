@@ -0,0 +1,186 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantizedVectorStoreTest {
+
+    private static final int DIMENSIONS = HnswIndexTest.DIMENSIONS;
+
+    @Test
+    void int8RoundTripIsWithinHalfAStep() {
+        QuantizedVectorStore store = store(QuantizedVectorStore.Encoding.INT8, false);
+        float[][] vectors = unitVectors(new Random(1), 100);
+        for (int slot = 0; slot < vectors.length; slot++) {
+            store.set(slot, vectors[slot]);
+        }
+
+        for (int slot = 0; slot < vectors.length; slot++) {
+            float[] vector = vectors[slot];
+            float maxAbs = 0f;
+            for (float value : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float step = maxAbs / 127f;
+            float[] decoded = store.get(slot);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                assertEquals(vector[i], decoded[i], step / 2 + 1e-6f, "slot " + slot + " dim " + i);
+            }
+        }
+    }
+
+    @Test
+    void int8KeepsTheLargestComponentExactly() {
+        QuantizedVectorStore store = store(QuantizedVectorStore.Encoding.INT8, false);
+        float[] vector = new float[DIMENSIONS];
+        vector[3] = -0.8f;
+        vector[7] = 0.6f;
+        store.set(0, vector);
+
+        float[] decoded = store.get(0);
+
+        assertEquals(-0.8f, decoded[3], 1e-6f);
+        assertEquals(0.6f, decoded[7], 0.8f / 127 / 2);
+        assertEquals(0f, decoded[0]);
+        store.set(1, new float[DIMENSIONS]);
+        assertArrayEquals(new float[DIMENSIONS], store.get(1));
+    }
+
+    @Test
+    void float16RoundTripHasElevenSignificantBits() {
+        QuantizedVectorStore store = store(QuantizedVectorStore.Encoding.FLOAT16, false);
+        float[][] vectors = unitVectors(new Random(2), 100);
+        for (int slot = 0; slot < vectors.length; slot++) {
+            store.set(slot, vectors[slot]);
+        }
+
+        for (int slot = 0; slot < vectors.length; slot++) {
+            float[] decoded = store.get(slot);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                float value = vectors[slot][i];
+                // Half a unit in the last place, or the subnormal spacing near zero
+                float tolerance = Math.max(Math.abs(value) * 0x1p-11f, 0x1p-25f);
+                assertEquals(value, decoded[i], tolerance, "slot " + slot + " dim " + i);
+            }
+        }
+    }
+
+    @Test
+    void halfConversionIsExactForRepresentableValues() {
+        float[] exact = {0f, -0f, 1f, -2f, 0.5f, 65504f, -65504f, 0x1p-14f, 0x1p-24f, 0x1.ffcp-1f,
+                Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (float value : exact) {
+            assertEquals(Float.floatToRawIntBits(value),
+                    Float.floatToRawIntBits(QuantizedVectorStore.halfToFloat(QuantizedVectorStore.floatToHalf(value))),
+                    "value " + value);
+        }
+        assertTrue(Float.isNaN(QuantizedVectorStore.halfToFloat(QuantizedVectorStore.floatToHalf(Float.NaN))));
+    }
+
+    @Test
+    void everyHalfSurvivesARoundTripThroughFloat() {
+        for (int bits = 0; bits < 1 << 16; bits++) {
+            float value = QuantizedVectorStore.halfToFloat((short) bits);
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            assertEquals(bits, QuantizedVectorStore.floatToHalf(value) & 0xFFFF, "half " + Integer.toHexString(bits));
+        }
+    }
+
+    @Test
+    void floatToHalfRoundsToNearestEvenAndSaturates() {
+        // 1 + 2^-11 is halfway between 1 and the next half (1 + 2^-10): ties go to the even 1
+        assertEquals(1f, roundTrip(1f + 0x1p-11f));
+        assertEquals(1f + 0x1p-9f, roundTrip(1f + 3 * 0x1p-11f));
+        assertEquals(1f + 0x1p-10f, roundTrip(1f + 0x1p-11f + 0x1p-20f));
+        // Same rule in the subnormal range, whose spacing is 2^-24
+        assertEquals(0f, roundTrip(0x1p-25f));
+        assertEquals(0x1p-23f, roundTrip(3 * 0x1p-25f));
+        assertEquals(Float.POSITIVE_INFINITY, roundTrip(65520f));
+        assertEquals(65504f, roundTrip(65519f));
+        assertEquals(Float.NEGATIVE_INFINITY, roundTrip(-1e9f));
+        assertEquals(-0f, roundTrip(-1e-30f));
+    }
+
+    @Test
+    void quantizedDotIsCloseToExact() {
+        for (QuantizedVectorStore.Encoding encoding : QuantizedVectorStore.Encoding.values()) {
+            QuantizedVectorStore store = store(encoding, false);
+            float[][] vectors = unitVectors(new Random(3), 50);
+            for (int slot = 0; slot < vectors.length; slot++) {
+                store.set(slot, vectors[slot]);
+            }
+            float[] query = unitVectors(new Random(4), 1)[0];
+            for (int slot = 0; slot < vectors.length; slot++) {
+                float exact = dot(query, vectors[slot]);
+                assertEquals(exact, store.dot(query, slot), 0.02f, encoding + " slot " + slot);
+                assertEquals(dot(vectors[slot], vectors[(slot + 1) % 50]), store.dot(slot, (slot + 1) % 50), 0.02f);
+            }
+            assertFalse(store.reranks());
+            assertEquals(store.dot(query, 0), store.exactDot(query, 0));
+        }
+    }
+
+    @Test
+    void fullPrecisionCopyServesExactReadsAndRerank() {
+        QuantizedVectorStore store = store(QuantizedVectorStore.Encoding.INT8, true);
+        float[][] vectors = unitVectors(new Random(5), 10);
+        for (int slot = 0; slot < vectors.length; slot++) {
+            store.set(slot, vectors[slot]);
+        }
+
+        assertTrue(store.reranks());
+        for (int slot = 0; slot < vectors.length; slot++) {
+            assertArrayEquals(vectors[slot], store.get(slot));
+            assertEquals(dot(vectors[0], vectors[slot]), store.exactDot(vectors[0], slot), 1e-5f);
+        }
+        assertTrue(store.offHeapBytes() > 0);
+    }
+
+    @Test
+    void hnswOverQuantizedVectorsKeepsRecall() {
+        float[][] vectors = HnswIndexTest.randomVectors(new Random(42), HnswIndexTest.VECTORS);
+        for (QuantizedVectorStore.Encoding encoding : QuantizedVectorStore.Encoding.values()) {
+            for (boolean retain : new boolean[] {false, true}) {
+                HnswIndex index = HnswIndexTest.build(new HnswIndex(store(encoding, retain), 16, 200, 7L), vectors);
+
+                double recall = HnswIndexTest.recall(index, vectors, new Random(1));
+
+                assertTrue(recall >= 0.9, encoding + " retain=" + retain + " recall " + recall);
+            }
+        }
+    }
+
+    private static QuantizedVectorStore store(QuantizedVectorStore.Encoding encoding, boolean retainFullPrecision) {
+        QuantizedVectorStore store = new QuantizedVectorStore(DIMENSIONS, encoding, retainFullPrecision);
+        store.ensureCapacity(HnswIndexTest.VECTORS);
+        return store;
+    }
+
+    private static float roundTrip(float value) {
+        return QuantizedVectorStore.halfToFloat(QuantizedVectorStore.floatToHalf(value));
+    }
+
+    private static float[][] unitVectors(Random random, int count) {
+        float[][] vectors = HnswIndexTest.randomVectors(random, count);
+        for (int i = 0; i < count; i++) {
+            vectors[i] = HnswIndexTest.normalized(vectors[i]);
+        }
+        return vectors;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreAccumulatorTest {
+
+    @Test
+    void addSumsValuesAndCountsPerKey() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(7L, 0.5);
+        scores.add(-3L, 1.0);
+        scores.add(7L, 0.25);
+        scores.add(Long.MIN_VALUE, 2.0);
+        scores.add(Long.MAX_VALUE, 3.0);
+
+        assertEquals(4, scores.size());
+        assertEquals(0.75, scores.get(7L));
+        assertEquals(0.375, scores.mean(7L));
+        assertEquals(2.0, scores.get(Long.MIN_VALUE));
+        assertEquals(3.0, scores.get(Long.MAX_VALUE));
+        assertEquals(0.0, scores.get(8L));
+        assertEquals(0.0, scores.mean(8L));
+        assertFalse(scores.contains(0L));
+    }
+
+    @Test
+    void denseAccessFollowsInsertionOrder() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(30L, 1.0);
+        scores.add(10L, 2.0);
+        scores.add(30L, 1.0);
+        scores.add(20L, 3.0);
+
+        assertEquals(30L, scores.keyAt(0));
+        assertEquals(2.0, scores.valueAt(0));
+        assertEquals(2, scores.countAt(0));
+        assertEquals(10L, scores.keyAt(1));
+        assertEquals(20L, scores.keyAt(2));
+
+        scores.setValueAt(1, 9.0);
+        assertEquals(9.0, scores.get(10L));
+    }
+
+    @Test
+    void putOverwritesValueAndResetsCount() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(1L, 1.0);
+        scores.add(1L, 1.0);
+        scores.put(1L, 0.5);
+
+        assertEquals(0.5, scores.get(1L));
+        assertEquals(1, scores.countAt(0));
+        assertEquals(1, scores.size());
+    }
+
+    @Test
+    void addAllMergesSumsAndCounts() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(1L, 1.0);
+        ScoreAccumulator other = new ScoreAccumulator();
+        other.add(1L, 2.0);
+        other.add(1L, 3.0);
+        other.add(2L, 4.0);
+
+        scores.addAll(other);
+
+        assertEquals(6.0, scores.get(1L));
+        assertEquals(2.0, scores.mean(1L));
+        assertEquals(4.0, scores.get(2L));
+        assertEquals(2, scores.size());
+    }
+
+    @Test
+    void growthKeepsEveryEntry() {
+        ScoreAccumulator scores = new ScoreAccumulator(16);
+        Map<Long, Double> expected = new LinkedHashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(5000) * 1_000_003L;
+            double value = random.nextInt(100) / 4.0;
+            scores.add(key, value);
+            expected.merge(key, value, Double::sum);
+        }
+
+        assertMatches(expected, scores);
+        int i = 0;
+        for (long key : expected.keySet()) {
+            assertEquals(key, scores.keyAt(i++));
+        }
+    }
+
+    @Test
+    void clearEmptiesEveryProbeChain() {
+        // A 16-entry table over 64 keys collides constantly, so clear must walk whole runs
+        ScoreAccumulator scores = new ScoreAccumulator(16);
+        Random random = new Random(11);
+        for (int round = 0; round < 2000; round++) {
+            Map<Long, Double> expected = new HashMap<>();
+            int additions = random.nextInt(40);
+            for (int i = 0; i < additions; i++) {
+                long key = random.nextInt(64);
+                scores.add(key, 1.0);
+                expected.merge(key, 1.0, Double::sum);
+            }
+            assertMatches(expected, scores);
+
+            scores.clear();
+
+            assertEquals(0, scores.size());
+            for (long key = 0; key < 64; key++) {
+                assertFalse(scores.contains(key), "round " + round + " key " + key);
+            }
+        }
+    }
+
+    @Test
+    void clearStartsSumsAndCountsFromZero() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(1L, 5.0);
+        scores.add(1L, 5.0);
+        scores.clear();
+        scores.add(1L, 1.0);
+
+        assertEquals(1.0, scores.get(1L));
+        assertEquals(1, scores.countAt(0));
+    }
+
+    @Test
+    void clearAfterLargeRequestStillWorks() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        for (long key = 0; key < 100_000; key++) {
+            scores.add(key, 1.0);
+        }
+        scores.clear();
+
+        assertEquals(0, scores.size());
+        assertFalse(scores.contains(5L));
+        scores.add(5L, 2.0);
+        assertEquals(2.0, scores.get(5L));
+    }
+
+    @Test
+    void forThreadReturnsTheSameClearedInstance() {
+        ThreadLocal<ScoreAccumulator> holder = ThreadLocal.withInitial(ScoreAccumulator::new);
+        ScoreAccumulator first = ScoreAccumulator.forThread(holder);
+        first.add(1L, 1.0);
+
+        ScoreAccumulator second = ScoreAccumulator.forThread(holder);
+
+        assertSame(first, second);
+        assertEquals(0, second.size());
+        assertFalse(second.contains(1L));
+    }
+
+    private static void assertMatches(Map<Long, Double> expected, ScoreAccumulator scores) {
+        assertEquals(expected.size(), scores.size());
+        for (Map.Entry<Long, Double> entry : expected.entrySet()) {
+            assertTrue(scores.contains(entry.getKey()));
+            assertEquals(entry.getValue().doubleValue(), scores.get(entry.getKey()));
+        }
+    }
+}
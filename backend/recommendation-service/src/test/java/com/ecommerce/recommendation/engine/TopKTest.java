@@ -0,0 +1,113 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKTest {
+
+    @Test
+    void selectMatchesAFullSort() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            int length = random.nextInt(300);
+            int k = random.nextInt(40);
+            double[] values = new double[length];
+            for (int i = 0; i < length; i++) {
+                // Coarse values so ties are common
+                values[i] = random.nextInt(50) / 10.0;
+            }
+
+            int[] top = TopK.select(values, length, k);
+
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            assertEquals(Math.min(k, length), top.length);
+            for (int i = 0; i < top.length; i++) {
+                assertEquals(sorted[length - 1 - i], values[top[i]], "round " + round + " rank " + i);
+            }
+            assertEquals(top.length, Arrays.stream(top).distinct().count());
+        }
+    }
+
+    @Test
+    void selectReadsOnlyTheGivenLength() {
+        double[] values = {0.1, 0.9, 0.5, 7.0};
+
+        assertArrayEquals(new int[] {1, 2}, TopK.select(values, 3, 2));
+        assertArrayEquals(new int[0], TopK.select(values, 3, 0));
+        assertArrayEquals(new int[] {1, 2, 0}, TopK.select(values, 3, 10));
+    }
+
+    @Test
+    void selectFromAccumulatorReturnsEntryIndices() {
+        ScoreAccumulator scores = new ScoreAccumulator();
+        scores.add(100L, 0.2);
+        scores.add(200L, 0.8);
+        scores.add(300L, 0.5);
+        scores.add(100L, 0.7);
+
+        int[] top = TopK.select(scores, 2);
+
+        assertEquals(100L, scores.keyAt(top[0]));
+        assertEquals(200L, scores.keyAt(top[1]));
+        assertEquals(0, TopK.select(new ScoreAccumulator(), 5).length);
+    }
+
+    @Test
+    void acceptsTracksTheWeakestKeptScore() {
+        TopK top = new TopK(2);
+        assertTrue(top.accepts(Double.NEGATIVE_INFINITY));
+        top.offer(1, 0.5);
+        top.offer(2, 0.7);
+
+        assertFalse(top.accepts(0.5));
+        assertTrue(top.accepts(0.6));
+        top.offer(3, 0.6);
+        assertFalse(top.accepts(0.6));
+        assertEquals(2, top.size());
+
+        assertArrayEquals(new int[] {2, 3}, top.drainDescending());
+        assertEquals(0, top.size());
+        assertTrue(top.accepts(0.0));
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopK top = new TopK(0);
+        top.offer(1, 1.0);
+
+        assertFalse(top.accepts(1.0));
+        assertEquals(0, top.drainDescending().length);
+    }
+
+    @Test
+    void callerArrayHeapMatchesAFullSort() {
+        Random random = new Random(9);
+        int capacity = 10;
+        int[] ids = new int[capacity];
+        float[] scores = new float[capacity];
+        float[] all = new float[500];
+        int size = 0;
+        for (int id = 0; id < all.length; id++) {
+            all[id] = random.nextFloat();
+            size = TopK.offer(ids, scores, size, capacity, id, all[id]);
+        }
+
+        TopK.sortDescending(ids, scores, size);
+
+        float[] sorted = all.clone();
+        Arrays.sort(sorted);
+        assertEquals(capacity, size);
+        for (int i = 0; i < size; i++) {
+            assertEquals(sorted[all.length - 1 - i], scores[i]);
+            assertEquals(all[ids[i]], scores[i]);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecommerce.recommendation.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopNStoreTest {
+
+    @Test
+    void putThenGetReturnsTheList() {
+        TopNStore store = new TopNStore(5, 16);
+        store.put(42L, new long[] {300L, 100L, 200L}, new float[] {0.9f, 0.5f, 0.1f}, 3, 1234L);
+
+        TopNStore.Entry entry = store.get(42L);
+
+        assertNotNull(entry);
+        assertEquals(3, entry.size());
+        assertEquals(300L, entry.productIdAt(0));
+        assertEquals(100L, entry.productIdAt(1));
+        assertEquals(200L, entry.productIdAt(2));
+        assertEquals(0.9f, entry.scoreAt(0));
+        assertEquals(0.1f, entry.scoreAt(2));
+        assertEquals(1234L, entry.computedAt());
+        assertNull(store.get(7L));
+    }
+
+    @Test
+    void listsAreCutToNAndToTheGivenLength() {
+        TopNStore store = new TopNStore(2, 16);
+        store.put(1L, new long[] {10L, 20L, 30L}, new float[] {3f, 2f, 1f}, 3, 0L);
+        store.put(2L, new long[] {10L, 20L, 30L}, new float[] {3f, 2f, 1f}, 1, 0L);
+
+        assertEquals(2, store.get(1L).size());
+        assertEquals(20L, store.get(1L).productIdAt(1));
+        assertEquals(1, store.get(2L).size());
+        assertEquals(2, store.n());
+    }
+
+    @Test
+    void putReplacesAnEarlierLongerList() {
+        TopNStore store = new TopNStore(5, 16);
+        store.put(1L, new long[] {10L, 20L, 30L}, new float[] {3f, 2f, 1f}, 3, 1L);
+        store.put(1L, new long[] {40L}, new float[] {9f}, 1, 2L);
+
+        TopNStore.Entry entry = store.get(1L);
+
+        assertEquals(1, entry.size());
+        assertEquals(40L, entry.productIdAt(0));
+        assertEquals(9f, entry.scoreAt(0));
+        assertEquals(2L, entry.computedAt());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void removedUserReadsAsAbsent() {
+        TopNStore store = new TopNStore(5, 16);
+        store.put(1L, new long[] {10L}, new float[] {1f}, 1, 0L);
+        store.put(2L, new long[] {10L}, new float[] {1f}, 1, 0L);
+
+        store.remove(1L);
+        store.remove(99L);
+
+        assertNull(store.get(1L));
+        assertNotNull(store.get(2L));
+        assertEquals(1, store.size());
+        store.put(1L, new long[] {20L}, new float[] {1f}, 1, 0L);
+        assertEquals(20L, store.get(1L).productIdAt(0));
+    }
+
+    @Test
+    void storeGrowsPastTheExpectedUsers() {
+        TopNStore store = new TopNStore(3, 1);
+        for (long user = 0; user < 1000; user++) {
+            store.put(user, new long[] {user, user + 1}, new float[] {2f, 1f}, 2, user);
+        }
+
+        assertEquals(1000, store.size());
+        for (long user = 0; user < 1000; user++) {
+            TopNStore.Entry entry = store.get(user);
+            assertEquals(user, entry.productIdAt(0));
+            assertEquals(user + 1, entry.productIdAt(1));
+            assertEquals(user, entry.computedAt());
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveN() {
+        assertThrows(IllegalArgumentException.class, () -> new TopNStore(0, 16));
+    }
+
+    @Test
+    void readersNeverSeeAHalfWrittenList() throws InterruptedException {
+        int n = 20;
+        TopNStore store = new TopNStore(n, 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Every list written for version v holds products v*100+i scored v, computed at v
+        Thread writer = new Thread(() -> {
+            for (int version = 1; version <= 20000; version++) {
+                int length = 1 + version % n;
+                long[] products = new long[length];
+                float[] scores = new float[length];
+                for (int i = 0; i < length; i++) {
+                    products[i] = version * 100L + i;
+                    scores[i] = version;
+                }
+                // New users force the arrays to grow under concurrent reads
+                store.put(version % 500, products, scores, length, version);
+            }
+            running.set(false);
+        });
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                while (running.get()) {
+                    for (long user = 0; user < 500; user++) {
+                        TopNStore.Entry entry = store.get(user);
+                        if (entry != null && !consistent(entry)) {
+                            failure.compareAndSet(null, "user " + user + " at version " + entry.computedAt());
+                        }
+                    }
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    private static boolean consistent(TopNStore.Entry entry) {
+        long version = entry.computedAt();
+        if (entry.size() != 1 + version % 20) {
+            return false;
+        }
+        for (int i = 0; i < entry.size(); i++) {
+            if (entry.productIdAt(i) != version * 100 + i || entry.scoreAt(i) != version) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,420 @@
+package com.ecommerce.recommendation.ranking;
+
+import com.ecommerce.recommendation.engine.ScoreAccumulator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pipeline control flow with scripted sources and stages: sources that answer late, fail
+ * or run degraded, the fallbacks standing in for them, stage budgets and candidate caps,
+ * and sources and stages scoped to an algorithm
+ */
+class RankingPipelineTest {
+
+    private static final long GENERATION_BUDGET_MILLIS = 100;
+
+    private final Map<String, Object> properties = new HashMap<>();
+    private final List<RankingPipeline> pipelines = new ArrayList<>();
+    // Holds slow sources until the test is over
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        for (RankingPipeline pipeline : pipelines) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    void sourcesOnTimeGiveAFullResult() {
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L, 2L),
+                source("content", 3L)), List.of());
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertFalse(result.isDegraded());
+        assertEquals(Set.of(1L, 2L, 3L), productIds(result));
+    }
+
+    @Test
+    void lateSourceIsDroppedWithoutWaitingForIt() {
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L, 2L),
+                slowSource("content", 3L)), List.of());
+
+        long start = System.nanoTime();
+        RankingResult result = pipeline.rank(42L, 10);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isDegraded());
+        assertEquals(Set.of(1L, 2L), productIds(result));
+        assertTrue(elapsedMillis < GENERATION_BUDGET_MILLIS + 1_000, "waited " + elapsedMillis + " ms");
+        assertEquals(1.0, dropped("content", "late"));
+    }
+
+    @Test
+    void fallbackStandsInForALateSource() {
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L),
+                slowSource("content", 3L),
+                fallback("trending", "content", 9L)), List.of());
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertTrue(result.isDegraded());
+        assertEquals(Set.of(1L, 9L), productIds(result));
+    }
+
+    @Test
+    void failingSourceIsDroppedAndItsFallbackRuns() {
+        CandidateSource failing = new ScriptedSource("content", null, (count, out) -> {
+            throw new IllegalStateException("embedding backend down");
+        });
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L),
+                failing,
+                fallback("trending", "content", 9L)), List.of());
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertTrue(result.isDegraded());
+        assertEquals(Set.of(1L, 9L), productIds(result));
+        assertEquals(1.0, dropped("content", "error"));
+    }
+
+    @Test
+    void degradedSourceWithCandidatesKeepsThemAndSkipsItsFallback() {
+        CandidateSource partial = new ScriptedSource("content", null, (count, out) -> {
+            out.add(3L, 0.5);
+            return false;
+        });
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L),
+                partial,
+                fallback("trending", "content", 9L)), List.of());
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertTrue(result.isDegraded());
+        assertEquals(Set.of(1L, 3L), productIds(result));
+    }
+
+    @Test
+    void fallbackDoesNotRunForAHealthySource() {
+        RankingPipeline pipeline = pipeline(List.of(
+                source("collaborative", 1L),
+                source("content", 3L),
+                fallback("trending", "content", 9L)), List.of());
+
+        assertEquals(Set.of(1L, 3L), productIds(pipeline.rank(42L, 10)));
+    }
+
+    @Test
+    void stageNeedingMoreThanThePhaseBudgetIsSkipped() {
+        properties.put("recommendation.ranking.scoring.budget", 50L);
+        properties.put("recommendation.ranking.scoring.stages.expensive.budget", 100L);
+        List<String> ran = new ArrayList<>();
+        RankingPipeline pipeline = pipeline(List.of(source("collaborative", 1L, 2L)), List.of(
+                stage("expensive", RankingPhase.SCORING, candidates -> ran.add("expensive")),
+                stage("cheap", RankingPhase.SCORING, candidates -> ran.add("cheap"))));
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertTrue(result.isDegraded());
+        assertEquals(List.of("cheap"), ran);
+        assertEquals(1.0, registry.counter("recommendation.ranking.stage.skipped",
+                "phase", "scoring", "stage", "expensive").count());
+    }
+
+    @Test
+    void stagesAfterThePhaseBudgetIsSpentAreSkipped() {
+        properties.put("recommendation.ranking.rerank.budget", 20L);
+        List<String> ran = new ArrayList<>();
+        RankingPipeline pipeline = pipeline(List.of(source("collaborative", 1L, 2L)), List.of(
+                stage("slow", RankingPhase.RERANK, candidates -> {
+                    ran.add("slow");
+                    sleep(40);
+                }),
+                stage("after", RankingPhase.RERANK, candidates -> ran.add("after"))));
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertTrue(result.isDegraded());
+        assertEquals(List.of("slow"), ran);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void stagesWithinBudgetLeaveTheResultFull() {
+        List<String> ran = new ArrayList<>();
+        RankingPipeline pipeline = pipeline(List.of(source("collaborative", 1L, 2L)), List.of(
+                stage("keep-odd", RankingPhase.FILTER, candidates -> {
+                    ran.add("keep-odd");
+                    candidates.retain(productId -> productId % 2 == 1);
+                }),
+                stage("boost", RankingPhase.SCORING, candidates -> ran.add("boost")),
+                stage("clamp", RankingPhase.RERANK, candidates -> ran.add("clamp"))));
+
+        RankingResult result = pipeline.rank(42L, 10);
+
+        assertFalse(result.isDegraded());
+        assertEquals(List.of("keep-odd", "boost", "clamp"), ran);
+        assertEquals(Set.of(1L), productIds(result));
+    }
+
+    @Test
+    void phaseCapNeverPrunesBelowTheRequestedLimit() {
+        properties.put("recommendation.ranking.scoring.max-candidates", 2);
+        int[] seen = new int[1];
+        RankingPipeline pipeline = pipeline(List.of(source("collaborative", 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L)),
+                List.of(stage("count", RankingPhase.SCORING, candidates -> seen[0] = candidates.size())));
+
+        RankingResult result = pipeline.rank(42L, 5);
+
+        assertEquals(5, seen[0]);
+        assertEquals(5, result.size());
+        assertEquals(3.0, registry.counter("recommendation.ranking.candidates.pruned", "phase", "scoring").count());
+    }
+
+    @Test
+    void stageCapIsAppliedRightBeforeTheStage() {
+        properties.put("recommendation.ranking.scoring.stages.narrow.max-candidates", 6);
+        List<Integer> seen = new ArrayList<>();
+        RankingPipeline pipeline = pipeline(List.of(source("collaborative", 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L)),
+                List.of(stage("wide", RankingPhase.SCORING, candidates -> seen.add(candidates.size())),
+                        stage("narrow", RankingPhase.SCORING, candidates -> seen.add(candidates.size()))));
+
+        pipeline.rank(42L, 3);
+
+        assertEquals(List.of(10, 6), seen);
+    }
+
+    @Test
+    void phaseCapKeepsTheBestOfEverySourceWhateverItsScale() {
+        properties.put("recommendation.ranking.scoring.max-candidates", 3);
+        Set<Long> seen = new HashSet<>();
+        RankingPipeline pipeline = pipeline(List.of(
+                // Unbounded sums next to cosines
+                scoredSource("collaborative", new long[] {1L, 2L, 3L, 4L}, new double[] {50, 40, 30, 20}),
+                scoredSource("content", new long[] {11L, 12L}, new double[] {0.9, 0.8})),
+                List.of(stage("record", RankingPhase.SCORING, candidates -> {
+                    for (int i = 0; i < candidates.size(); i++) {
+                        seen.add(candidates.productIdAt(i));
+                    }
+                })));
+
+        pipeline.rank(42L, 3);
+
+        assertEquals(Set.of(1L, 11L, 12L), seen);
+    }
+
+    @Test
+    void requestRunsOnlyTheSourcesAndStagesScopedToItsAlgorithm() {
+        CandidateSource collaborative = new ScriptedSource("collaborative", null,
+                EnumSet.of(RecommendationAlgorithm.HYBRID, RecommendationAlgorithm.USER_BASED), (count, out) -> {
+                    addAll(out, 1L, 2L);
+                    return true;
+                });
+        List<String> ran = new ArrayList<>();
+        RankingPipeline pipeline = pipeline(List.of(collaborative, source("content", 3L)), List.of(
+                stage("hybrid-only", RankingPhase.SCORING, candidates -> ran.add("hybrid-only")),
+                new ScriptedStage("shared", RankingPhase.FILTER, EnumSet.allOf(RecommendationAlgorithm.class),
+                        candidates -> ran.add("shared"))));
+
+        RankingResult userBased = pipeline.rank(42L, 10, RecommendationAlgorithm.USER_BASED);
+
+        assertEquals(Set.of(1L, 2L), productIds(userBased));
+        assertEquals(List.of("shared"), ran);
+
+        ran.clear();
+        assertEquals(Set.of(1L, 2L, 3L), productIds(pipeline.rank(42L, 10)));
+        assertEquals(List.of("shared", "hybrid-only"), ran);
+    }
+
+    // Fixtures
+
+    // Fixtures
+
+    private RankingPipeline pipeline(List<CandidateSource> sources, List<RankingStage> stages) {
+        Environment environment = mock(Environment.class);
+        doAnswer(call -> properties.getOrDefault(call.<String>getArgument(0), call.getArgument(2)))
+                .when(environment).getProperty(anyString(), any(Class.class), any());
+        RankingPipeline pipeline = new RankingPipeline(sources, stages, registry, environment,
+                4, 16, false, GENERATION_BUDGET_MILLIS, 2);
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    private static CandidateSource source(String name, long... productIds) {
+        return new ScriptedSource(name, null, (count, out) -> {
+            addAll(out, productIds);
+            return true;
+        });
+    }
+
+    private static CandidateSource scoredSource(String name, long[] productIds, double[] scores) {
+        return new ScriptedSource(name, null, (count, out) -> {
+            for (int i = 0; i < productIds.length; i++) {
+                out.add(productIds[i], scores[i]);
+            }
+            return true;
+        });
+    }
+
+    private static CandidateSource fallback(String name, String fallbackFor, long... productIds) {
+        return new ScriptedSource(name, fallbackFor, (count, out) -> {
+            addAll(out, productIds);
+            return true;
+        });
+    }
+
+    private CandidateSource slowSource(String name, long... productIds) {
+        return new ScriptedSource(name, null, (count, out) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            addAll(out, productIds);
+            return true;
+        });
+    }
+
+    private static RankingStage stage(String name, RankingPhase phase, Consumer<Candidates> action) {
+        return new ScriptedStage(name, phase, EnumSet.of(RecommendationAlgorithm.HYBRID), action);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void addAll(ScoreAccumulator out, long... productIds) {
+        for (int i = 0; i < productIds.length; i++) {
+            out.add(productIds[i], 1.0 - i * 0.1);
+        }
+    }
+
+    private double dropped(String source, String reason) {
+        return registry.counter("recommendation.ranking.source.dropped", "source", source, "reason", reason).count();
+    }
+
+    private static Set<Long> productIds(RankingResult result) {
+        Set<Long> productIds = new HashSet<>();
+        for (int i = 0; i < result.size(); i++) {
+            productIds.add(result.productIdAt(i));
+        }
+        return productIds;
+    }
+
+    private interface Generator {
+        boolean generate(int count, ScoreAccumulator out);
+    }
+
+    private static final class ScriptedSource implements CandidateSource {
+        private final String name;
+        private final String fallbackFor;
+        private final Set<RecommendationAlgorithm> algorithms;
+        private final Generator generator;
+
+        ScriptedSource(String name, String fallbackFor, Generator generator) {
+            this(name, fallbackFor, EnumSet.of(RecommendationAlgorithm.HYBRID), generator);
+        }
+
+        ScriptedSource(String name, String fallbackFor, Set<RecommendationAlgorithm> algorithms, Generator generator) {
+            this.name = name;
+            this.fallbackFor = fallbackFor;
+            this.algorithms = algorithms;
+            this.generator = generator;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String fallbackFor() {
+            return fallbackFor;
+        }
+
+        @Override
+        public Set<RecommendationAlgorithm> algorithms() {
+            return algorithms;
+        }
+
+        @Override
+        public boolean generate(Long userId, int count, ScoreAccumulator out) {
+            return generator.generate(count, out);
+        }
+    }
+
+    private static final class ScriptedStage implements RankingStage {
+        private final String name;
+        private final RankingPhase phase;
+        private final Set<RecommendationAlgorithm> algorithms;
+        private final Consumer<Candidates> action;
+
+        ScriptedStage(String name, RankingPhase phase, Set<RecommendationAlgorithm> algorithms,
+                      Consumer<Candidates> action) {
+            this.name = name;
+            this.phase = phase;
+            this.algorithms = algorithms;
+            this.action = action;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public RankingPhase phase() {
+            return phase;
+        }
+
+        @Override
+        public Set<RecommendationAlgorithm> algorithms() {
+            return algorithms;
+        }
+
+        @Override
+        public void apply(RankingContext context, Candidates candidates) {
+            action.accept(candidates);
+        }
+    }
+}
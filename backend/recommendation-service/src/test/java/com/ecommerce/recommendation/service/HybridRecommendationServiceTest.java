@@ -0,0 +1,100 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.dto.RecommendationDTO;
+import com.ecommerce.recommendation.ranking.RankingPipeline;
+import com.ecommerce.recommendation.ranking.RankingResult;
+import com.ecommerce.recommendation.ranking.RecommendationAlgorithm;
+import com.ecommerce.recommendation.repository.RecommendationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The degraded flag carried from the ranking result onto every recommendation, and the
+ * {@code unless} condition that keeps degraded and empty responses out of the cache,
+ * evaluated the way the cache interceptor does
+ */
+class HybridRecommendationServiceTest {
+
+    private RankingPipeline pipeline;
+    private MeterRegistry registry;
+    private HybridRecommendationService service;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = mock(RankingPipeline.class);
+        registry = new SimpleMeterRegistry();
+        service = new HybridRecommendationService(pipeline, mock(RecommendationRepository.class), registry);
+    }
+
+    @Test
+    void degradedRankingFlagsEveryRecommendation() {
+        rankingReturns(true, 7L, 3L);
+
+        List<RecommendationDTO> recommendations = service.computeHybridRecommendations(42L, 2);
+
+        assertEquals(2, recommendations.size());
+        assertEquals(7L, recommendations.get(0).getProductId().longValue());
+        assertTrue(recommendations.get(0).isDegraded());
+        assertTrue(recommendations.get(1).isDegraded());
+        assertEquals(1.0, registry.counter("recommendation.hybrid.responses", "degraded", "true").count());
+    }
+
+    @Test
+    void fullRankingIsNotFlagged() {
+        rankingReturns(false, 7L);
+
+        List<RecommendationDTO> recommendations = service.computeHybridRecommendations(42L, 1);
+
+        assertFalse(recommendations.get(0).isDegraded());
+        assertEquals("hybrid", recommendations.get(0).getAlgorithm());
+        assertEquals(1.0, registry.counter("recommendation.hybrid.responses", "degraded", "false").count());
+    }
+
+    @Test
+    void cacheVetoesDegradedAndEmptyResponses() throws Exception {
+        rankingReturns(true, 7L);
+        assertTrue(vetoed(service.computeHybridRecommendations(42L, 1)));
+
+        rankingReturns(false);
+        assertTrue(vetoed(service.computeHybridRecommendations(42L, 1)));
+
+        rankingReturns(false, 7L);
+        assertFalse(vetoed(service.computeHybridRecommendations(42L, 1)));
+    }
+
+    private void rankingReturns(boolean degraded, long... productIds) {
+        RankingResult result = mock(RankingResult.class);
+        doReturn(productIds.length).when(result).size();
+        for (int i = 0; i < productIds.length; i++) {
+            doReturn(productIds[i]).when(result).productIdAt(i);
+            doReturn(1.0 / (i + 1)).when(result).scoreAt(i);
+        }
+        doReturn(degraded).when(result).isDegraded();
+        doReturn(result).when(pipeline).rank(anyLong(), anyInt(), any(RecommendationAlgorithm.class));
+    }
+
+    private static boolean vetoed(List<RecommendationDTO> result) throws Exception {
+        Cacheable cacheable = HybridRecommendationService.class
+                .getMethod("getRecommendations", Long.class, int.class, RecommendationAlgorithm.class)
+                .getAnnotation(Cacheable.class);
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("result", result);
+        return new SpelExpressionParser().parseExpression(cacheable.unless()).getValue(context, Boolean.class);
+    }
+}
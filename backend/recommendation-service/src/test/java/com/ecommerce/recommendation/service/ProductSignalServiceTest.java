@@ -0,0 +1,164 @@
+package com.ecommerce.recommendation.service;
+
+import com.ecommerce.recommendation.engine.ProductSignals;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Incremental folding by id watermark against in-memory stand-ins for the
+ * recommendations and user_interactions tables, aggregated the way the queries do
+ */
+class ProductSignalServiceTest {
+
+    private final List<long[]> recommendations = new ArrayList<>(); // id, product, created at
+    private final List<long[]> interactions = new ArrayList<>(); // id, product
+    private boolean databaseDown;
+    private ProductSignalService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(call -> {
+            if (databaseDown) {
+                throw new DataAccessResourceFailureException("database down");
+            }
+            String sql = call.getArgument(0);
+            RowCallbackHandler handler = call.getArgument(1);
+            long afterId = ((Number) call.getArgument(2)).longValue();
+            boolean recommendationRows = sql.contains("FROM recommendations");
+            for (ResultSet row : aggregate(recommendationRows ? recommendations : interactions, afterId, recommendationRows)) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any());
+        service = new ProductSignalService(jdbcTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void refreshFoldsOnlyRowsPastTheWatermark() {
+        recommend(1, 42L, 1_000L);
+        recommend(2, 42L, 2_000L);
+        interact(1, 42L);
+        service.reload();
+
+        recommend(3, 42L, 3_000L);
+        recommend(4, 7L, 500L);
+        interact(2, 42L);
+        service.refresh();
+        // Nothing new: a second refresh must not count anything twice
+        service.refresh();
+
+        ProductSignals signals = service.current();
+        assertEquals(3, signals.recommendationCount(42L));
+        assertEquals(3_000L, signals.lastRecommendedAt(42L));
+        assertEquals(2, signals.interactionCount(42L));
+        assertEquals(1, signals.recommendationCount(7L));
+    }
+
+    @Test
+    void failedRefreshKeepsTheWatermarkSoRowsAreFoldedLater() {
+        service.reload();
+        recommend(1, 42L, 1_000L);
+        interact(1, 42L);
+
+        databaseDown = true;
+        service.refresh();
+        assertEquals(0, service.current().recommendationCount(42L));
+
+        databaseDown = false;
+        service.refresh();
+        assertEquals(1, service.current().recommendationCount(42L));
+        assertEquals(1, service.current().interactionCount(42L));
+    }
+
+    @Test
+    void reloadPicksUpRowsCommittedBehindTheWatermark() {
+        recommend(1, 42L, 1_000L);
+        recommend(3, 42L, 3_000L);
+        service.reload();
+        ProductSignals before = service.current();
+
+        // Row 2 committed after row 3 was folded, so refresh never sees it
+        recommend(2, 42L, 2_000L);
+        service.refresh();
+        assertEquals(2, service.current().recommendationCount(42L));
+
+        service.reload();
+        assertNotSame(before, service.current());
+        assertEquals(3, service.current().recommendationCount(42L));
+        assertEquals(3_000L, service.current().lastRecommendedAt(42L));
+    }
+
+    @Test
+    void failedReloadKeepsThePreviousSignals() {
+        recommend(1, 42L, 1_000L);
+        service.reload();
+        ProductSignals loaded = service.current();
+
+        databaseDown = true;
+        service.reload();
+
+        assertEquals(loaded, service.current());
+        assertEquals(1, service.current().recommendationCount(42L));
+    }
+
+    private void recommend(long id, long productId, long createdAt) {
+        recommendations.add(new long[] {id, productId, createdAt});
+    }
+
+    private void interact(long id, long productId) {
+        interactions.add(new long[] {id, productId});
+    }
+
+    /**
+     * One row per product over the table rows with id above {@code afterId}: product, count,
+     * then max(created_at) and max(id) for recommendations or max(id) for interactions
+     */
+    private static List<ResultSet> aggregate(List<long[]> table, long afterId, boolean recommendationRows)
+            throws Exception {
+        Map<Long, long[]> groups = new TreeMap<>(); // count, max created at, max id
+        for (long[] row : table) {
+            if (row[0] > afterId) {
+                long[] group = groups.computeIfAbsent(row[1], product -> new long[3]);
+                group[0]++;
+                if (recommendationRows) {
+                    group[1] = Math.max(group[1], row[2]);
+                }
+                group[2] = Math.max(group[2], row[0]);
+            }
+        }
+        List<ResultSet> rows = new ArrayList<>(groups.size());
+        for (Map.Entry<Long, long[]> group : groups.entrySet()) {
+            ResultSet row = mock(ResultSet.class);
+            doReturn(group.getKey()).when(row).getLong(1);
+            doReturn((int) group.getValue()[0]).when(row).getInt(2);
+            if (recommendationRows) {
+                doReturn(new Timestamp(group.getValue()[1])).when(row).getTimestamp(3);
+                doReturn(group.getValue()[2]).when(row).getLong(4);
+            } else {
+                doReturn(group.getValue()[2]).when(row).getLong(3);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -35,6 +35,17 @@ CREATE TABLE IF NOT EXISTS products (
     metadata JSONB
 );
 
+-- Transactional outbox of product changes (for product-service), delivered to recommendation-service
+CREATE TABLE IF NOT EXISTS product_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_at TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0
+);
+
 -- User interactions table (for recommendation-service)
 CREATE TABLE IF NOT EXISTS user_interactions (
     id BIGSERIAL PRIMARY KEY,
@@ -65,6 +76,7 @@ CREATE TABLE IF NOT EXISTS recommendations (
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_products_category ON products(category);
 CREATE INDEX IF NOT EXISTS idx_products_brand ON products(brand);
+CREATE INDEX IF NOT EXISTS idx_product_outbox_unpublished ON product_outbox(published_at, id);
 CREATE INDEX IF NOT EXISTS idx_user_interactions_user_id ON user_interactions(user_id);
 CREATE INDEX IF NOT EXISTS idx_user_interactions_product_id ON user_interactions(product_id);
 CREATE INDEX IF NOT EXISTS idx_user_interactions_type ON user_interactions(interaction_type);